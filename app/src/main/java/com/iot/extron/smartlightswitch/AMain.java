@@ -39,6 +39,10 @@ import com.iot.extron.smartlightswitch.bridgefinder.FBridgeFinder;
 import com.iot.extron.smartlightswitch.bridgefinder.FConnectToBridge;
 import com.iot.extron.smartlightswitch.lightswitch.DFColorPicker;
 import com.iot.extron.smartlightswitch.lightswitch.FLightswitch;
+import com.iot.extron.smartlightswitch.models.BridgeRequestScheduler;
+import com.iot.extron.smartlightswitch.models.BridgeSnapshot;
+import com.iot.extron.smartlightswitch.models.CommandTracer;
+import com.iot.extron.smartlightswitch.models.LightCommandQueue;
 import com.iot.extron.smartlightswitch.settings.FSettings;
 import com.iot.extron.smartlightswitch.utilities.TextUtilities;
 import com.philips.lighting.hue.sdk.wrapper.connection.BridgeConnection;
@@ -91,8 +95,8 @@ public class AMain extends Activity
 
     //region Fields
 
-    /** A list of bridge event callbacks to send events to. */
-    List<BridgeEventCallback> bridgeEventCallbacks = new ArrayList<>();
+    /** The bus that bridge events are sent to callbacks through. */
+    BridgeEventBus bridgeEventBus = new BridgeEventBus();
 
     /** The bridge that the app is currently connected to. */
     Bridge bridge;
@@ -106,6 +110,27 @@ public class AMain extends Activity
     /** The most recent errors received from the bridge. */
     List<HueError> latestErrors = new ArrayList<>();
 
+    /** The scheduler that all requests are sent to the bridge through. */
+    BridgeRequestScheduler requestScheduler = new BridgeRequestScheduler();
+
+    /** The queue that all light state changes are sent to the bridge through. */
+    LightCommandQueue commandQueue = new LightCommandQueue(requestScheduler);
+
+    /** Times light commands from the user's action until the bridge confirms them. */
+    CommandTracer commandTracer = new CommandTracer();
+
+    /** Stores the last known lights and groups of the bridge, so that the lightswitch can be shown before the bridge connects. */
+    BridgeSnapshotStore snapshotStore;
+
+    /** The snapshot the lightswitch is shown from until the current bridge is initialized, or <code>null</code> if there is none. */
+    BridgeSnapshot warmStartSnapshot;
+
+    /** Indicates that the current bridge has been initialized, so its state holds its lights, groups and scenes. */
+    volatile boolean bridgeInitialized;
+
+    /** The owner of the subscriptions that fall back to {@link FConnectToBridge} if a warm start cannot connect. */
+    private final Object warmStartSubscriptions = new Object();
+
     //endregion
 
 
@@ -199,17 +224,19 @@ public class AMain extends Activity
         bridgeNameTextView.setText(TextUtilities.getStringWithSub(getResources(), R.string.bridge_name, getResources().getString(R.string.not_connected)));
         bridgeIpTextView.setText(TextUtilities.getStringWithSub(getResources(), R.string.ip_address, getResources().getString(R.string.not_connected)));
 
-        addBridgeEventCallback(new BridgeEventCallback()
+        bridgeEventBus.subscribe(this, BridgeEvent.INITIALIZED, BridgeEventBus.ThreadMode.MAIN, event ->
         {
-            @Override
-            public void bridgeInitialized(final Bridge bridge)
-            {
-                runOnUiThread(() ->
-                {
-                    bridgeNameTextView.setText(TextUtilities.getStringWithSub(getResources(), R.string.bridge_name, bridge.getName()));
-                    bridgeIpTextView.setText(TextUtilities.getStringWithSub(getResources(), R.string.ip_address, bridgeIp));
-                });
-            }
+            bridgeNameTextView.setText(TextUtilities.getStringWithSub(getResources(), R.string.bridge_name, event.getBridge().getName()));
+            bridgeIpTextView.setText(TextUtilities.getStringWithSub(getResources(), R.string.ip_address, bridgeIp));
+        });
+
+        // Keep the snapshot up to date with every full or light state update.  Unchanged snapshots are not rewritten.
+        snapshotStore = new BridgeSnapshotStore(this);
+        bridgeEventBus.subscribe(this, BridgeEvent.INITIALIZED, BridgeEventBus.ThreadMode.POSTING, event -> snapshotStore.save(event.getBridge(), bridgeIp));
+        bridgeEventBus.subscribe(this, BridgeEvent.LIGHTS_AND_GROUPS, BridgeEventBus.ThreadMode.POSTING, event ->
+        {
+            if (bridgeInitialized)
+                snapshotStore.save(event.getBridge(), bridgeIp);
         });
 
 
@@ -220,6 +247,7 @@ public class AMain extends Activity
         // and we should silently reconnect to it.
         if (!TextUtils.isEmpty(bridgeIp))
         {
+            warmStartSnapshot = loadSnapshot(bridgeIp);
             connectToBridge(bridgeIp);
         }
         else
@@ -228,7 +256,7 @@ public class AMain extends Activity
 
             if (lastUsedBridge == null)
                 goToBridgeFinder();
-            else
+            else if (!warmStart(lastUsedBridge))
                 goToConnectToBridge(lastUsedBridge);
         }
     }
@@ -274,6 +302,60 @@ public class AMain extends Activity
         });
     }
 
+    /** Loads the stored snapshot of a bridge.
+     * @param bridgeIp The IP address of the bridge.
+     * @return The snapshot, or <code>null</code> if none is stored for the bridge.
+     */
+    private BridgeSnapshot loadSnapshot(String bridgeIp)
+    {
+        BridgeSnapshot snapshot = snapshotStore.load();
+
+        if (snapshot == null || !bridgeIp.equals(snapshot.getBridgeIp()))
+            return null;
+
+        return snapshot;
+    }
+
+    /** Shows the lightswitch straight away from the stored snapshot of a bridge, and connects to the bridge in the background.  The lightswitch
+     * reconciles with the bridge's state once it is initialized.  If the bridge cannot be connected to, or asks for its link button to be pressed,
+     * the app falls back to {@link FConnectToBridge}.
+     * @param knownBridge The bridge to connect to.
+     * @return <code>true</code> if a snapshot of the bridge was stored and the lightswitch is being shown, otherwise <code>false</code>.
+     */
+    private boolean warmStart(final KnownBridge knownBridge)
+    {
+        warmStartSnapshot = loadSnapshot(knownBridge.getIpAddress());
+
+        if (warmStartSnapshot == null)
+            return false;
+
+        bridgeEventBus.subscribe(warmStartSubscriptions, BridgeEvent.COULD_NOT_CONNECT, BridgeEventBus.ThreadMode.MAIN, event -> abandonWarmStart(knownBridge));
+        bridgeEventBus.subscribe(warmStartSubscriptions, BridgeEvent.PUSHLINK_REQUESTED, BridgeEventBus.ThreadMode.MAIN, event -> abandonWarmStart(knownBridge));
+        bridgeEventBus.subscribe(warmStartSubscriptions, BridgeEvent.INITIALIZED, BridgeEventBus.ThreadMode.MAIN, event -> bridgeEventBus.unsubscribe(warmStartSubscriptions));
+
+        connectToBridge(knownBridge.getIpAddress());
+        goToLightswitch();
+        return true;
+    }
+
+    /** Stops a warm start that could not connect, and connects to the bridge again through {@link FConnectToBridge}, which shows the user why.
+     * @param knownBridge The bridge to connect to.
+     */
+    private void abandonWarmStart(KnownBridge knownBridge)
+    {
+        bridgeEventBus.unsubscribe(warmStartSubscriptions);
+        warmStartSnapshot = null;
+
+        if (bridge != null)
+        {
+            manualDisconnect = true;
+            bridge.disconnect();
+            bridge = null;
+        }
+
+        goToConnectToBridge(knownBridge);
+    }
+
     /** Creates a new bridge and attempts to connect to it.
      * @param bridgeIp The IP address of the bridge to connect to.
      */
@@ -283,6 +365,7 @@ public class AMain extends Activity
         latestErrors.clear();
 
         this.bridgeIp = bridgeIp;
+        bridgeInitialized = false;
 
         bridge = new BridgeBuilder(getResources().getString(R.string.app_name), Build.MODEL)
                 .setIpAddress(bridgeIp)
@@ -312,12 +395,13 @@ public class AMain extends Activity
             manualDisconnect = true;
             latestErrors.clear();
 
-            for (BridgeEventCallback callback : bridgeEventCallbacks)
-                callback.bridgeDisconnecting(bridge);
+            postBridgeEvent(BridgeEvent.DISCONNECTING, bridge);
 
             bridge.disconnect();
             bridgeIp = null;
             bridge = null;
+            bridgeInitialized = false;
+            warmStartSnapshot = null;
         }
     }
 
@@ -327,20 +411,63 @@ public class AMain extends Activity
         return bridge;
     }
 
-    /** Adds a {@link BridgeEventCallback} to the list of callbacks receiving events from the current bridge.
-     * @param callback The callback to add.
+    /** Gets whether the current bridge has been initialized, so that its state holds its lights, groups and scenes.
+     * @return <code>true</code> if the bridge is initialized, otherwise <code>false</code>.
+     */
+    public boolean isBridgeInitialized()
+    {
+        return bridgeInitialized;
+    }
+
+    /** Gets the snapshot of the current bridge that screens can show until the bridge is initialized.
+     * @return The {@link BridgeSnapshot}, or <code>null</code> if the bridge is initialized or no snapshot of it is stored.
+     */
+    public BridgeSnapshot getWarmStartSnapshot()
+    {
+        return bridgeInitialized ? null : warmStartSnapshot;
+    }
+
+    /** Gets the scheduler that requests should be sent to the bridge through.
+     * @return The {@link BridgeRequestScheduler}.
+     */
+    public BridgeRequestScheduler getRequestScheduler()
+    {
+        return requestScheduler;
+    }
+
+    /** Gets the queue that light state changes should be sent to the bridge through.
+     * @return The {@link LightCommandQueue}.
+     */
+    public LightCommandQueue getCommandQueue()
+    {
+        return commandQueue;
+    }
+
+    /** Gets the tracer that light commands should be timed with.
+     * @return The {@link CommandTracer}.
      */
-    public void addBridgeEventCallback(BridgeEventCallback callback)
+    public CommandTracer getCommandTracer()
     {
-        bridgeEventCallbacks.add(callback);
+        return commandTracer;
     }
 
-    /** Removes a {@link BridgeEventCallback} from the list of callbacks receiving events from the current bridge.
-     * @param callback The callback to remove.
+    /** Gets the bus that events from the current bridge are delivered through.  Subscribe to only the {@link BridgeEvent.Type}s that are needed,
+     * and unsubscribe when they no longer are.
+     * @return The {@link BridgeEventBus}.
      */
-    public void removeBridgeEventCallback(BridgeEventCallback callback)
+    public BridgeEventBus getBridgeEventBus()
     {
-        bridgeEventCallbacks.remove(callback);
+        return bridgeEventBus;
+    }
+
+    /** Posts an event to the {@link BridgeEventBus}, if anything is subscribed to its type.
+     * @param type The type of the event.
+     * @param bridge The bridge the event is from.
+     */
+    private void postBridgeEvent(BridgeEvent.Type<BridgeEvent> type, Bridge bridge)
+    {
+        if (bridgeEventBus.hasSubscribers(type))
+            bridgeEventBus.post(new BridgeEvent(type, bridge));
     }
 
     /** Displays the lightswitch UI. */
@@ -463,41 +590,43 @@ public class AMain extends Activity
         @Override
         public void onConnectionEvent(BridgeConnection bridgeConnection, ConnectionEvent connectionEvent)
         {
-            Log.i(TAG, "Received connection event: " + connectionEvent);
+            if (Log.isLoggable(TAG, Log.DEBUG))
+                Log.d(TAG, "Received connection event: " + connectionEvent);
 
-            for (BridgeEventCallback callback : bridgeEventCallbacks)
+            final Bridge bridge = AMain.this.bridge;
+
+            switch (connectionEvent)
             {
-                switch (connectionEvent)
-                {
-                    case CONNECTED:
-                        callback.bridgeConnected(bridge);
-                        break;
-
-                    case CONNECTION_LOST:
-                        callback.bridgeConnectionLost(bridge);
-                        break;
-
-                    case CONNECTION_RESTORED:
-                        callback.bridgeConnectionRestored(bridge);
-                        break;
-
-                    case COULD_NOT_CONNECT:
-                        callback.bridgeCouldNotConnect(bridge);
-                        break;
-
-                    case NOT_AUTHENTICATED:
-                    case LINK_BUTTON_NOT_PRESSED:
-                        callback.bridgePushlinkRequested(bridge);
-                        break;
-
-                    case AUTHENTICATED:
-                        callback.bridgeAuthenticated(bridge);
-                        break;
-
-                    case DISCONNECTED:
-                        callback.bridgeDisconnected(bridge, manualDisconnect, latestErrors);
-                        break;
-                }
+                case CONNECTED:
+                    postBridgeEvent(BridgeEvent.CONNECTED, bridge);
+                    break;
+
+                case CONNECTION_LOST:
+                    postBridgeEvent(BridgeEvent.CONNECTION_LOST, bridge);
+                    break;
+
+                case CONNECTION_RESTORED:
+                    postBridgeEvent(BridgeEvent.CONNECTION_RESTORED, bridge);
+                    break;
+
+                case COULD_NOT_CONNECT:
+                    postBridgeEvent(BridgeEvent.COULD_NOT_CONNECT, bridge);
+                    break;
+
+                case NOT_AUTHENTICATED:
+                case LINK_BUTTON_NOT_PRESSED:
+                    postBridgeEvent(BridgeEvent.PUSHLINK_REQUESTED, bridge);
+                    break;
+
+                case AUTHENTICATED:
+                    postBridgeEvent(BridgeEvent.AUTHENTICATED, bridge);
+                    break;
+
+                case DISCONNECTED:
+                    // Main thread subscribers receive the event later, by when connecting again may have cleared the list, so they get a copy.
+                    if (bridgeEventBus.hasSubscribers(BridgeEvent.DISCONNECTED))
+                        bridgeEventBus.post(new BridgeEvent.Disconnected(bridge, manualDisconnect, new ArrayList<>(latestErrors)));
+                    break;
             }
         }
 
@@ -526,40 +655,39 @@ public class AMain extends Activity
         @Override
         public void onBridgeStateUpdated(Bridge bridge, BridgeStateUpdatedEvent bridgeStateUpdatedEvent)
         {
-            Log.i(TAG, "Received bridge state update event: " + bridgeStateUpdatedEvent);
+            if (Log.isLoggable(TAG, Log.DEBUG))
+                Log.d(TAG, "Received bridge state update event: " + bridgeStateUpdatedEvent);
 
-            for (BridgeEventCallback callback : bridgeEventCallbacks)
+            switch (bridgeStateUpdatedEvent)
             {
-                switch (bridgeStateUpdatedEvent)
-                {
-                    case INITIALIZED:
-                        callback.bridgeInitialized(bridge);
-                        break;
-
-                    case BRIDGE_CONFIG:
-                        callback.updatedBridgeConfig(bridge);
-                        break;
-
-                    case LIGHTS_AND_GROUPS:
-                        callback.updatedLightsAndGroups(bridge);
-                        break;
-
-                    case SCENES:
-                        callback.updatedScenes(bridge);
-                        break;
-
-                    case SENSORS_AND_SWITCHES:
-                        callback.updatedSensorsAndSwitches(bridge);
-                        break;
-
-                    case RULES:
-                        callback.updatedRules(bridge);
-                        break;
-
-                    case SCHEDULES_AND_TIMERS:
-                        callback.updatedSchedulesAndTimers(bridge);
-                        break;
-                }
+                case INITIALIZED:
+                    bridgeInitialized = true;
+                    postBridgeEvent(BridgeEvent.INITIALIZED, bridge);
+                    break;
+
+                case BRIDGE_CONFIG:
+                    postBridgeEvent(BridgeEvent.BRIDGE_CONFIG, bridge);
+                    break;
+
+                case LIGHTS_AND_GROUPS:
+                    postBridgeEvent(BridgeEvent.LIGHTS_AND_GROUPS, bridge);
+                    break;
+
+                case SCENES:
+                    postBridgeEvent(BridgeEvent.SCENES, bridge);
+                    break;
+
+                case SENSORS_AND_SWITCHES:
+                    postBridgeEvent(BridgeEvent.SENSORS_AND_SWITCHES, bridge);
+                    break;
+
+                case RULES:
+                    postBridgeEvent(BridgeEvent.RULES, bridge);
+                    break;
+
+                case SCHEDULES_AND_TIMERS:
+                    postBridgeEvent(BridgeEvent.SCHEDULES_AND_TIMERS, bridge);
+                    break;
             }
         }
     };
@@ -0,0 +1,189 @@
+/*
+ * This file is part of Hue SmartSwitch
+ *
+ * Hue SmartSwitch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package com.iot.extron.smartlightswitch;
+
+import com.philips.lighting.hue.sdk.wrapper.domain.Bridge;
+import com.philips.lighting.hue.sdk.wrapper.domain.HueError;
+
+import java.util.List;
+
+/** An event from the Hue bridge, delivered through the {@link BridgeEventBus}.  Each kind of event has a {@link Type}, which subscribers register
+ * for and which also fixes the class of the event they receive.
+ *  The bridge's connection lifecycle is Connected -> Pushlink -> Authenticated -> Initialized -> Disconnected
+ */
+public class BridgeEvent
+{
+    //region Event Types
+
+    /** Raised when the bridge is connected. */
+    public static final Type<BridgeEvent> CONNECTED = new Type<>(0, "CONNECTED");
+
+    /** Raised when the bridge connection is lost. */
+    public static final Type<BridgeEvent> CONNECTION_LOST = new Type<>(1, "CONNECTION_LOST");
+
+    /** Raised when the bridge connection is restored. */
+    public static final Type<BridgeEvent> CONNECTION_RESTORED = new Type<>(2, "CONNECTION_RESTORED");
+
+    /** Raised when the bridge could not connect. */
+    public static final Type<BridgeEvent> COULD_NOT_CONNECT = new Type<>(3, "COULD_NOT_CONNECT");
+
+    /** Raised when the bridge requests that the link button be pushed by the user. */
+    public static final Type<BridgeEvent> PUSHLINK_REQUESTED = new Type<>(4, "PUSHLINK_REQUESTED");
+
+    /** Raised when the bridge has authenticated the connection. */
+    public static final Type<BridgeEvent> AUTHENTICATED = new Type<>(5, "AUTHENTICATED");
+
+    /** Raised when the bridge has been fully initialized, and is ready to be used. */
+    public static final Type<BridgeEvent> INITIALIZED = new Type<>(6, "INITIALIZED");
+
+    /** Raised when the bridge is about to be disconnected manually. */
+    public static final Type<BridgeEvent> DISCONNECTING = new Type<>(7, "DISCONNECTING");
+
+    /** Raised when the bridge is disconnected. */
+    public static final Type<Disconnected> DISCONNECTED = new Type<>(8, "DISCONNECTED");
+
+    /** Raised when the bridge has updated its bridge configuration. */
+    public static final Type<BridgeEvent> BRIDGE_CONFIG = new Type<>(9, "BRIDGE_CONFIG");
+
+    /** Raised when the bridge has updated lights and groups. */
+    public static final Type<BridgeEvent> LIGHTS_AND_GROUPS = new Type<>(10, "LIGHTS_AND_GROUPS");
+
+    /** Raised when the bridge has updated scenes. */
+    public static final Type<BridgeEvent> SCENES = new Type<>(11, "SCENES");
+
+    /** Raised when the bridge has updated sensors and switches. */
+    public static final Type<BridgeEvent> SENSORS_AND_SWITCHES = new Type<>(12, "SENSORS_AND_SWITCHES");
+
+    /** Raised when the bridge has updated rules. */
+    public static final Type<BridgeEvent> RULES = new Type<>(13, "RULES");
+
+    /** Raised when the bridge has updated schedules and timers. */
+    public static final Type<BridgeEvent> SCHEDULES_AND_TIMERS = new Type<>(14, "SCHEDULES_AND_TIMERS");
+
+    /** The number of event types. */
+    static final int TYPE_COUNT = 15;
+
+    //endregion
+
+
+    //region Fields
+
+    final Type<?> type;
+    final Bridge bridge;
+
+    //endregion
+
+
+    //region Constructors
+
+    /** Creates a new event.
+     * @param type The type of the event.
+     * @param bridge The bridge the event is from.
+     */
+    public BridgeEvent(Type<? extends BridgeEvent> type, Bridge bridge)
+    {
+        this.type = type;
+        this.bridge = bridge;
+    }
+
+    //endregion
+
+
+    //region Getters
+
+    public Type<?> getType()
+    {
+        return type;
+    }
+
+    public Bridge getBridge()
+    {
+        return bridge;
+    }
+
+    @Override
+    public String toString()
+    {
+        return type.toString();
+    }
+
+    //endregion
+
+
+    //region Nested Types
+
+    /** A kind of bridge event.
+     * @param <E> The class of the events of this type.
+     */
+    public static final class Type<E extends BridgeEvent>
+    {
+        /** The position of the type, used to look up its subscribers. */
+        final int index;
+
+        final String name;
+
+        private Type(int index, String name)
+        {
+            this.index = index;
+            this.name = name;
+        }
+
+        @Override
+        public String toString()
+        {
+            return name;
+        }
+    }
+
+    /** The event raised when the bridge is disconnected. */
+    public static class Disconnected extends BridgeEvent
+    {
+        final boolean manualDisconnect;
+        final List<HueError> errors;
+
+        /** Creates a new disconnected event.
+         * @param bridge The bridge that was disconnected.
+         * @param manualDisconnect Indicates whether the disconnect was initiated by the user.
+         * @param errors A list of errors that caused the disconnect.  Will be empty in the case of a manual disconnect.
+         */
+        public Disconnected(Bridge bridge, boolean manualDisconnect, List<HueError> errors)
+        {
+            super(DISCONNECTED, bridge);
+            this.manualDisconnect = manualDisconnect;
+            this.errors = errors;
+        }
+
+        /** Gets whether the disconnect was initiated by the user.
+         * @return <code>true</code> if the user disconnected, otherwise <code>false</code>.
+         */
+        public boolean isManualDisconnect()
+        {
+            return manualDisconnect;
+        }
+
+        /** Gets the errors that caused the disconnect.
+         * @return The list of errors, which is empty in the case of a manual disconnect.
+         */
+        public List<HueError> getErrors()
+        {
+            return errors;
+        }
+    }
+
+    //endregion
+}
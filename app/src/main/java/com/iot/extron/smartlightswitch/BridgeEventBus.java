@@ -0,0 +1,247 @@
+/*
+ * This file is part of Hue SmartSwitch
+ *
+ * Hue SmartSwitch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package com.iot.extron.smartlightswitch;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/** Delivers {@link BridgeEvent}s to the listeners subscribed to their {@link BridgeEvent.Type}.  A listener only hears about the types it subscribed
+ * to, and posters can ask {@link #hasSubscribers} before building an event, so event types nobody listens for cost nothing.
+ *  Events arrive on the Hue SDK's threads while listeners are added and removed on the UI thread, so the subscribers of each type are kept in
+ * arrays that are replaced, never modified: posting an event reads the current array without locking, and subscribing builds a new one.  Each
+ * subscriber chooses a {@link ThreadMode}, and all subscribers that want the main thread share a single hop to it per event. */
+public class BridgeEventBus
+{
+    //region Constants
+
+    private static final Subscriber[] NO_SUBSCRIBERS = new Subscriber[0];
+
+    //endregion
+
+
+    //region Fields
+
+    /** The handler of the main thread, that {@link ThreadMode#MAIN} subscribers receive events through. */
+    private final Handler mainHandler;
+
+    /** The subscribers that receive events on the thread that posted them, indexed by event type.  Each array is only ever replaced, so a reader
+     * sees a consistent snapshot. */
+    private final AtomicReferenceArray<Subscriber[]> postingSubscribers = newSubscriberArrays();
+
+    /** The subscribers that receive events on the main thread, indexed by event type.  Each array is only ever replaced, so a reader sees a
+     * consistent snapshot. */
+    private final AtomicReferenceArray<Subscriber[]> mainSubscribers = newSubscriberArrays();
+
+    //endregion
+
+
+    //region Constructors
+
+    /** Creates a new event bus.
+     * @param mainHandler A {@link Handler} of the main thread.
+     */
+    public BridgeEventBus(Handler mainHandler)
+    {
+        this.mainHandler = mainHandler;
+    }
+
+    /** Creates a new event bus that delivers {@link ThreadMode#MAIN} events through the main {@link Looper}. */
+    public BridgeEventBus()
+    {
+        this(new Handler(Looper.getMainLooper()));
+    }
+
+    //endregion
+
+
+    //region Subscriptions
+
+    /** Subscribes a listener to one type of bridge event.
+     * @param owner The object the subscription belongs to, which {@link #unsubscribe} removes it by.  Usually the subscribing screen.
+     * @param type The {@link BridgeEvent.Type} of the events to receive.
+     * @param threadMode The {@link ThreadMode} to receive events on.
+     * @param listener The {@link Listener} to receive events with.
+     * @param <E> The class of the events of the type.
+     */
+    public synchronized <E extends BridgeEvent> void subscribe(Object owner, BridgeEvent.Type<E> type, ThreadMode threadMode, Listener<? super E> listener)
+    {
+        AtomicReferenceArray<Subscriber[]> subscribers = threadMode == ThreadMode.MAIN ? mainSubscribers : postingSubscribers;
+        subscribers.set(type.index, append(subscribers.get(type.index), new Subscriber(owner, listener)));
+    }
+
+    /** Removes every subscription belonging to an owner.  Its listeners receive no further events, even ones already on their way to the main
+     * thread.
+     * @param owner The owner the subscriptions were made with.
+     */
+    public synchronized void unsubscribe(Object owner)
+    {
+        for (int i = 0; i < BridgeEvent.TYPE_COUNT; i++)
+        {
+            postingSubscribers.set(i, remove(postingSubscribers.get(i), owner));
+            mainSubscribers.set(i, remove(mainSubscribers.get(i), owner));
+        }
+    }
+
+    /** Gets whether anything is subscribed to a type of event, so that a poster can skip building events nobody will receive.
+     * @param type The {@link BridgeEvent.Type} to check.
+     * @return <code>true</code> if at least one listener is subscribed to the type, otherwise <code>false</code>.
+     */
+    public boolean hasSubscribers(BridgeEvent.Type<?> type)
+    {
+        return postingSubscribers.get(type.index).length > 0 || mainSubscribers.get(type.index).length > 0;
+    }
+
+    //endregion
+
+
+    //region Posting
+
+    /** Delivers an event to every subscriber of its type.  {@link ThreadMode#POSTING} subscribers receive it before this returns.
+     * {@link ThreadMode#MAIN} subscribers receive it before this returns if it is called on the main thread, otherwise all of them receive it in
+     * one message posted to the main thread.
+     * @param event The {@link BridgeEvent} to deliver.
+     */
+    public void post(final BridgeEvent event)
+    {
+        int index = event.type.index;
+
+        deliver(postingSubscribers.get(index), event);
+
+        final Subscriber[] subscribers = mainSubscribers.get(index);
+
+        if (subscribers.length == 0)
+            return;
+
+        if (Looper.myLooper() == mainHandler.getLooper())
+            deliver(subscribers, event);
+        else
+            mainHandler.post(() -> deliver(subscribers, event));
+    }
+
+    //endregion
+
+
+    //region Helpers
+
+    private static AtomicReferenceArray<Subscriber[]> newSubscriberArrays()
+    {
+        AtomicReferenceArray<Subscriber[]> subscribers = new AtomicReferenceArray<>(BridgeEvent.TYPE_COUNT);
+
+        for (int i = 0; i < BridgeEvent.TYPE_COUNT; i++)
+            subscribers.set(i, NO_SUBSCRIBERS);
+
+        return subscribers;
+    }
+
+    private static void deliver(Subscriber[] subscribers, BridgeEvent event)
+    {
+        for (Subscriber subscriber : subscribers)
+        {
+            // A subscriber may have been removed since the snapshot was taken, in which case it must not be called.
+            if (subscriber.active)
+                subscriber.listener.onBridgeEvent(event);
+        }
+    }
+
+    private static Subscriber[] append(Subscriber[] subscribers, Subscriber subscriber)
+    {
+        Subscriber[] result = Arrays.copyOf(subscribers, subscribers.length + 1);
+        result[subscribers.length] = subscriber;
+        return result;
+    }
+
+    private static Subscriber[] remove(Subscriber[] subscribers, Object owner)
+    {
+        int remaining = 0;
+
+        for (Subscriber subscriber : subscribers)
+        {
+            if (subscriber.owner == owner)
+                subscriber.active = false;
+            else
+                remaining++;
+        }
+
+        if (remaining == subscribers.length)
+            return subscribers;
+
+        if (remaining == 0)
+            return NO_SUBSCRIBERS;
+
+        Subscriber[] result = new Subscriber[remaining];
+        int i = 0;
+
+        for (Subscriber subscriber : subscribers)
+        {
+            if (subscriber.active)
+                result[i++] = subscriber;
+        }
+
+        return result;
+    }
+
+    //endregion
+
+
+    //region Nested Types
+
+    /** The thread a subscriber receives events on. */
+    public enum ThreadMode
+    {
+        /** Events are received on whichever thread posted them, usually one of the Hue SDK's threads.  Suits work that must not wait for the UI. */
+        POSTING,
+
+        /** Events are received on the main thread, so the subscriber can touch the UI directly. */
+        MAIN
+    }
+
+    /** Receives bridge events of one type.
+     * @param <E> The class of the events received.
+     */
+    public interface Listener<E extends BridgeEvent>
+    {
+        /** Called when an event the listener is subscribed to is raised.
+         * @param event The event.
+         */
+        public void onBridgeEvent(E event);
+    }
+
+    /** A subscribed listener. */
+    private static class Subscriber
+    {
+        final Object owner;
+        final Listener<BridgeEvent> listener;
+
+        /** Cleared when the listener is unsubscribed, so that snapshots taken before then skip it. */
+        volatile boolean active = true;
+
+        @SuppressWarnings("unchecked")
+        Subscriber(Object owner, Listener<?> listener)
+        {
+            this.owner = owner;
+
+            // Safe, since a listener is only subscribed to a type whose events are of the class it accepts.
+            this.listener = (Listener<BridgeEvent>)listener;
+        }
+    }
+
+    //endregion
+}
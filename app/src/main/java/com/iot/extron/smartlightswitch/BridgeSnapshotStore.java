@@ -0,0 +1,171 @@
+/*
+ * This file is part of Hue SmartSwitch
+ *
+ * Hue SmartSwitch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package com.iot.extron.smartlightswitch;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.iot.extron.smartlightswitch.models.BridgeSnapshot;
+import com.philips.lighting.hue.sdk.wrapper.domain.Bridge;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/** Stores the {@link BridgeSnapshot} of the bridge the app last connected to, under the app's files directory, so that the lightswitch can be shown
+ * as soon as the app starts.  Snapshots are captured and written on a background thread, and the file is only rewritten when the snapshot has
+ * changed, so saving after every update from the bridge is cheap. */
+public class BridgeSnapshotStore
+{
+    //region Static Fields
+
+    private static final String TAG = "BridgeSnapshotStore";
+
+    /** The name of the file under the app's files directory that the snapshot is stored in. */
+    static final String FILE_NAME = "bridge_snapshot.bin";
+
+    //endregion
+
+
+    //region Fields
+
+    /** The file the snapshot is stored in. */
+    private final File file;
+
+    /** The thread that snapshots are captured and written on. */
+    private final ExecutorService ioExecutor = Executors.newSingleThreadExecutor(runnable ->
+    {
+        Thread thread = new Thread(runnable, TAG);
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** Set while a save is waiting to run.  A save captures the bridge's state when it runs, so further saves requested before then are dropped. */
+    private final AtomicBoolean savePending = new AtomicBoolean();
+
+    /** The stored form of the snapshot in the file, or <code>null</code> if it is not known.  Only used on {@link #ioExecutor}, apart from
+     * {@link #load}. */
+    private byte[] storedBytes;
+
+    //endregion
+
+
+    //region Constructors
+
+    /** Creates a new store.
+     * @param context Any context of the app.
+     */
+    public BridgeSnapshotStore(Context context)
+    {
+        file = new File(context.getFilesDir(), FILE_NAME);
+    }
+
+    //endregion
+
+
+    //region Store Methods
+
+    /** Reads the stored snapshot.  The file is small, so this is fast enough to call while the app starts.
+     * @return The stored snapshot, or <code>null</code> if none is stored or the stored file is unusable.
+     */
+    public BridgeSnapshot load()
+    {
+        if (!file.isFile())
+            return null;
+
+        try
+        {
+            byte[] bytes = Files.readAllBytes(file.toPath());
+            BridgeSnapshot snapshot = BridgeSnapshot.read(new DataInputStream(new ByteArrayInputStream(bytes)));
+
+            ioExecutor.execute(() -> storedBytes = bytes);
+            return snapshot;
+        }
+        catch (IOException e)
+        {
+            Log.w(TAG, "Discarding unusable bridge snapshot file " + file, e);
+            file.delete();
+            return null;
+        }
+    }
+
+    /** Captures a bridge's lights and groups on the background thread, and stores them if they differ from the stored snapshot.
+     * @param bridge The bridge, which must be initialized.
+     * @param bridgeIp The bridge's IP address.
+     */
+    public void save(final Bridge bridge, final String bridgeIp)
+    {
+        if (!savePending.compareAndSet(false, true))
+            return;
+
+        ioExecutor.execute(() ->
+        {
+            savePending.set(false);
+
+            byte[] bytes = BridgeSnapshot.capture(bridge.getIdentifier(), bridgeIp, bridge.getBridgeState()).toBytes();
+
+            if (Arrays.equals(bytes, storedBytes))
+                return;
+
+            if (writeFile(bytes))
+                storedBytes = bytes;
+        });
+    }
+
+    //endregion
+
+
+    //region File Methods
+
+    /** Writes the snapshot file.  The file is written under a temporary name and then renamed, so a partly written file is never read.
+     * @return <code>true</code> if the file was written, otherwise <code>false</code>.
+     */
+    private boolean writeFile(byte[] bytes)
+    {
+        File temp = new File(file.getParentFile(), FILE_NAME + ".tmp");
+
+        try (FileOutputStream stream = new FileOutputStream(temp))
+        {
+            stream.write(bytes);
+        }
+        catch (IOException e)
+        {
+            Log.w(TAG, "Could not write bridge snapshot file " + file, e);
+            temp.delete();
+            return false;
+        }
+
+        if (!temp.renameTo(file))
+        {
+            Log.w(TAG, "Could not store bridge snapshot file " + file);
+            temp.delete();
+            return false;
+        }
+
+        return true;
+    }
+
+    //endregion
+}
@@ -19,6 +19,9 @@ package com.iot.extron.smartlightswitch;
 
 import android.app.Fragment;
 
+import com.iot.extron.smartlightswitch.models.BridgeRequestScheduler;
+import com.iot.extron.smartlightswitch.models.CommandTracer;
+import com.iot.extron.smartlightswitch.models.LightCommandQueue;
 import com.philips.lighting.hue.sdk.wrapper.domain.Bridge;
 
 /** A base fragment that contains general functionality useful to all app fragments. */
@@ -32,6 +35,30 @@ public abstract class FBase extends Fragment
         return ((AMain)getActivity()).getBridge();
     }
 
+    /** Gets the scheduler that requests should be sent to the bridge through.
+     * @return The app's {@link BridgeRequestScheduler}.
+     */
+    protected BridgeRequestScheduler getRequestScheduler()
+    {
+        return ((AMain)getActivity()).getRequestScheduler();
+    }
+
+    /** Gets the queue that light state changes should be sent to the bridge through.
+     * @return The app's {@link LightCommandQueue}.
+     */
+    protected LightCommandQueue getCommandQueue()
+    {
+        return ((AMain)getActivity()).getCommandQueue();
+    }
+
+    /** Gets the tracer that light commands should be timed with.
+     * @return The app's {@link CommandTracer}.
+     */
+    protected CommandTracer getCommandTracer()
+    {
+        return ((AMain)getActivity()).getCommandTracer();
+    }
+
     /** Gets the fragment's owning activity and casts it to {@link AMain}.
      * @return The owning {@link AMain} activity.
      */
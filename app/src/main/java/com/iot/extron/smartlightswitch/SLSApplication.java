@@ -94,6 +94,7 @@ public class SLSApplication extends Application
 
     private static final String SETTINGS_PREFERENCES = "settings";
     public static final String SETTINGS_SCREEN_ORIENTATION = "screen_orientation";
+    public static final String SETTINGS_LIVE_COLOR_PREVIEW = "live_color_preview";
 
     /** Gets the {@link SharedPreferences} that app settings can be stored in.
      * @return The app settings {@link SharedPreferences}.
@@ -26,14 +26,13 @@ import android.view.ViewGroup;
 import android.widget.Button;
 import android.widget.TextView;
 
-import java.util.List;
 
 import com.iot.extron.smartlightswitch.FBase;
-import com.philips.lighting.hue.sdk.wrapper.domain.Bridge;
 import com.philips.lighting.hue.sdk.wrapper.domain.HueError;
 
 import com.iot.extron.smartlightswitch.AMain;
-import com.iot.extron.smartlightswitch.BridgeEventCallback;
+import com.iot.extron.smartlightswitch.BridgeEvent;
+import com.iot.extron.smartlightswitch.BridgeEventBus;
 import com.iot.extron.smartlightswitch.R;
 
 
@@ -186,7 +185,7 @@ public class FConnectToBridge extends FBase
     {
         super.onDetach();
 
-        getMainActivity().removeBridgeEventCallback(bridgeEventCallback);
+        getMainActivity().getBridgeEventBus().unsubscribe(this);
     }
 
     //endregion
@@ -199,103 +198,57 @@ public class FConnectToBridge extends FBase
     {
         AMain main = (AMain)getActivity();
 
-        main.addBridgeEventCallback(bridgeEventCallback);
+        subscribeToBridgeEvents(main.getBridgeEventBus());
         main.connectToBridge(bridgeIp);
     }
 
 
-    //region BridgeEventCallback
+    //region Bridge Events
 
-    private BridgeEventCallback bridgeEventCallback = new BridgeEventCallback()
+    /** Subscribes to the connection events that the connection progress is shown from.
+     * @param bus The {@link BridgeEventBus} to subscribe to.
+     */
+    private void subscribeToBridgeEvents(BridgeEventBus bus)
     {
-        @Override
-        public void bridgeConnected(Bridge bridge)
-        {
-            getActivity().runOnUiThread(new Runnable()
-            {
-                @Override
-                public void run()
-                {
-                    statusTextView.setText(R.string.connected);
-                }
-            });
-        }
-
-        @Override
-        public void bridgePushlinkRequested(Bridge bridge)
-        {
-            getActivity().runOnUiThread(new Runnable()
-            {
-                @Override
-                public void run()
-                {
-                    statusTextView.setText(R.string.press_link);
-                }
-            });
-        }
+        bus.subscribe(this, BridgeEvent.CONNECTED, BridgeEventBus.ThreadMode.MAIN, event -> statusTextView.setText(R.string.connected));
+        bus.subscribe(this, BridgeEvent.PUSHLINK_REQUESTED, BridgeEventBus.ThreadMode.MAIN, event -> statusTextView.setText(R.string.press_link));
+        bus.subscribe(this, BridgeEvent.AUTHENTICATED, BridgeEventBus.ThreadMode.MAIN, event -> statusTextView.setText(R.string.authenticated));
+        bus.subscribe(this, BridgeEvent.COULD_NOT_CONNECT, BridgeEventBus.ThreadMode.MAIN, event -> bridgeCouldNotConnect());
+        bus.subscribe(this, BridgeEvent.DISCONNECTED, BridgeEventBus.ThreadMode.MAIN, this::bridgeDisconnected);
+        bus.subscribe(this, BridgeEvent.INITIALIZED, BridgeEventBus.ThreadMode.MAIN, event -> bridgeInitialized());
+    }
 
-        @Override
-        public void bridgeAuthenticated(Bridge bridge)
-        {
-            getActivity().runOnUiThread(new Runnable()
-            {
-                @Override
-                public void run()
-                {
-                    statusTextView.setText(R.string.authenticated);
-                }
-            });
-        }
+    private void bridgeCouldNotConnect()
+    {
+        progressLayout.setVisibility(View.GONE);
+        connectFailedLayout.setVisibility(View.VISIBLE);
+    }
 
-        @Override
-        public void bridgeCouldNotConnect(Bridge bridge)
+    private void bridgeDisconnected(BridgeEvent.Disconnected event)
+    {
+        if (!event.isManualDisconnect())
         {
-            getActivity().runOnUiThread(new Runnable()
-            {
-                @Override
-                public void run()
-                {
-                    progressLayout.setVisibility(View.GONE);
-                    connectFailedLayout.setVisibility(View.VISIBLE);
-                }
-            });
-        }
+            final StringBuilder errorMsg = new StringBuilder();
 
-        @Override
-        public void bridgeDisconnected(Bridge bridge, boolean manualDisconnect, List<HueError> errors)
-        {
-            if (!manualDisconnect)
+            for (HueError error : event.getErrors())
             {
-                final StringBuilder errorMsg = new StringBuilder();
-
-                for (HueError error : errors)
-                {
-                    Log.e(TAG, "Connection error: " + error.toString());
-                    errorMsg.append(error.toString() + "\n");
-                }
-
-                getActivity().runOnUiThread(new Runnable()
-                {
-                    @Override
-                    public void run()
-                    {
-                        progressLayout.setVisibility(View.GONE);
-                        connectErrorLayout.setVisibility(View.VISIBLE);
-                        connectionErrorTextView.setText(getResources().getString(R.string.error_on_connect).replace("{0}", bridgeName).replace("{1}", bridgeIp).replace("{2}", errorMsg.toString()));
-                    }
-                });
+                Log.e(TAG, "Connection error: " + error.toString());
+                errorMsg.append(error.toString() + "\n");
             }
+
+            progressLayout.setVisibility(View.GONE);
+            connectErrorLayout.setVisibility(View.VISIBLE);
+            connectionErrorTextView.setText(getResources().getString(R.string.error_on_connect).replace("{0}", bridgeName).replace("{1}", bridgeIp).replace("{2}", errorMsg.toString()));
         }
+    }
 
-        @Override
-        public void bridgeInitialized(Bridge bridge)
+    private void bridgeInitialized()
+    {
+        if (connectToBridgeCallback != null)
         {
-            if (connectToBridgeCallback != null)
-            {
-                connectToBridgeCallback.connected();
-            }
+            connectToBridgeCallback.connected();
         }
-    };
+    }
 
     //endregion
 
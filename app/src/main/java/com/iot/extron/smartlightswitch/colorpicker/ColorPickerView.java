@@ -23,7 +23,7 @@ import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
-import android.graphics.Point;
+import android.graphics.Rect;
 import android.util.AttributeSet;
 import android.view.GestureDetector;
 import android.view.MotionEvent;
@@ -74,12 +74,26 @@ public class ColorPickerView extends View
     /** The size in pixels to draw the color selection circle border. */
     int selectionBorderSize = DEFAULT_SELECTION_BORDER_SIZE;
 
+    /** Incremented every time a new hue wheel is requested, so that wheels rendered for an earlier size are discarded. */
+    int hueWheelGeneration;
+
+    /** The view space coordinates of the center of the selection circle. */
+    float selectionX;
+    float selectionY;
+
+    /** A reusable rectangle that the area to redraw when the selection moves is computed in. */
+    final Rect dirtyRect = new Rect();
+
+    /** A reusable array that colors are converted to HSV in. */
+    final float[] hsv = new float[3];
+
     //endregion
 
 
     //region UI Elements
 
     Bitmap hueWheel;
+    Paint hueWheelPlaceholderBrush;
     Paint hueWheelBorderBrush;
     Paint selectionBrush;
     Paint selectionBorderBrush;
@@ -129,6 +143,10 @@ public class ColorPickerView extends View
         if (selectionBorderColorRes > -1)
             selectionBorderColor = getResources().getColor(selectionBorderColorRes, null);
 
+        hueWheelPlaceholderBrush = new Paint(Paint.ANTI_ALIAS_FLAG);
+        hueWheelPlaceholderBrush.setColor(Color.LTGRAY);
+        hueWheelPlaceholderBrush.setStyle(Paint.Style.FILL);
+
         hueWheelBorderBrush = new Paint(Paint.ANTI_ALIAS_FLAG);
         hueWheelBorderBrush.setColor(borderColor);
         hueWheelBorderBrush.setStyle(Paint.Style.STROKE);
@@ -149,8 +167,35 @@ public class ColorPickerView extends View
     {
         super.onSizeChanged(w, h, oldW, oldH);
 
-        int size = Math.min(w, h) - borderSize;
-        hueWheel = generateHueWheel(size);
+        final int size = Math.min(w, h) - borderSize;
+        final int generation = ++hueWheelGeneration;
+
+        if (selectedColor != NO_COLOR)
+            updateSelectionCoordinates(selectedColor);
+
+        // The wheel is loaded or rendered in the background, and a placeholder is drawn until it is ready.
+        hueWheel = null;
+
+        if (size <= 0)
+            return;
+
+        HueWheelCache cache = HueWheelCache.getInstance(getContext());
+        Bitmap cached = cache.getFromMemory(size, borderSize);
+
+        if (cached != null)
+        {
+            hueWheel = cached;
+            return;
+        }
+
+        cache.get(size, borderSize, bitmap -> post(() ->
+        {
+            if (generation != hueWheelGeneration)
+                return;
+
+            hueWheel = bitmap;
+            invalidate();
+        }));
     }
 
     @Override
@@ -160,14 +205,17 @@ public class ColorPickerView extends View
 
         int size = Math.min(getWidth(), getHeight());
 
-        canvas.drawBitmap(hueWheel, 0.5f * (getWidth() - size + borderSize), 0.5f * (getHeight() - size + borderSize), null);
+        if (hueWheel != null)
+            canvas.drawBitmap(hueWheel, 0.5f * (getWidth() - size + borderSize), 0.5f * (getHeight() - size + borderSize), null);
+        else
+            canvas.drawCircle(0.5f * getWidth(), 0.5f * getHeight(), 0.5f * (size - borderSize), hueWheelPlaceholderBrush);
+
         canvas.drawCircle(0.5f * getWidth(), 0.5f * getHeight(), 0.5f * size - 0.25f * borderSize - 4, hueWheelBorderBrush);
 
         if (selectedColor != NO_COLOR)
         {
-            Point point = getColorCoordinates(selectedColor);
-            canvas.drawCircle(point.x, point.y, selectionRadius, selectionBrush);
-            canvas.drawCircle(point.x, point.y, selectionRadius, selectionBorderBrush);
+            canvas.drawCircle(selectionX, selectionY, selectionRadius, selectionBrush);
+            canvas.drawCircle(selectionX, selectionY, selectionRadius, selectionBorderBrush);
         }
     }
 
@@ -180,11 +228,30 @@ public class ColorPickerView extends View
         {
             case MotionEvent.ACTION_DOWN:
             case MotionEvent.ACTION_MOVE:
-                int color = getColorAtCoordinates(new Point((int)event.getX(), (int)event.getY()));
+                // Moves are batched, so walk through the batched positions too and keep the latest one that is inside the wheel.  This keeps the
+                // selection tracking the finger right up to the edge of the wheel.
+                int color = NO_COLOR;
+                float x = 0;
+                float y = 0;
+
+                for (int i = 0; i <= event.getHistorySize(); i++)
+                {
+                    float sampleX = i < event.getHistorySize() ? event.getHistoricalX(i) : event.getX();
+                    float sampleY = i < event.getHistorySize() ? event.getHistoricalY(i) : event.getY();
+                    int sample = getColorAtCoordinates(sampleX, sampleY);
+
+                    if (sample != NO_COLOR)
+                    {
+                        color = sample;
+                        x = sampleX;
+                        y = sampleY;
+                    }
+                }
 
                 if (color != NO_COLOR)
                 {
-                    setSelectedColor(color);
+                    // Wheel colors already have full value, so they can be selected as they are.
+                    select(color, x, y);
                     result = true;
                 }
                 break;
@@ -212,18 +279,51 @@ public class ColorPickerView extends View
     public void setSelectedColor(int color)
     {
         // The hue wheel colors always have their V component set to 1, so set the incoming color appropriately.
-        float[] hsv = new float[3];
-
         Color.colorToHSV(color, hsv);
         hsv[2] = 1;
+        color = Color.HSVToColor(hsv);
+
+        invalidateSelection();
+        updateSelectionCoordinates(color);
+        applySelectedColor(color);
+    }
+
+    /** Selects a color from the wheel at the specified view space coordinates.  Only the areas under the old and new selection circles are redrawn. */
+    private void select(int color, float x, float y)
+    {
+        if (x == selectionX && y == selectionY)
+            return;
+
+        invalidateSelection();
+        selectionX = x;
+        selectionY = y;
+
+        // Neighboring pixels often share a color, in which case only the circle needs to move.
+        if (color == selectedColor)
+            invalidateSelection();
+        else
+            applySelectedColor(color);
+    }
 
-        selectedColor = Color.HSVToColor(hsv);
+    /** Stores a new selected color, redraws the selection circle at its current coordinates and notifies the listener. */
+    private void applySelectedColor(int color)
+    {
+        selectedColor = color;
         selectionBrush.setColor(selectedColor);
 
+        invalidateSelection();
+
         if (onSelectedColorChangedListener != null)
             onSelectedColorChangedListener.colorChanged(this, selectedColor);
+    }
 
-        invalidate();
+    /** Marks the area under the selection circle at its current coordinates as needing to be redrawn. */
+    private void invalidateSelection()
+    {
+        int extent = selectionRadius + selectionBorderSize + 1;
+
+        dirtyRect.set((int)selectionX - extent, (int)selectionY - extent, (int)selectionX + extent + 1, (int)selectionY + extent + 1);
+        invalidate(dirtyRect);
     }
 
     /** Gets the border color of the hue wheel.
@@ -330,46 +430,11 @@ public class ColorPickerView extends View
 
     //region Hue Wheel Methods
 
-    private Bitmap generateHueWheel(int size)
-    {
-        int[] pixels = new int[size * size];
-
-        // Computing some important and useful values here to reduce compute time.
-        double R = 0.5 * size;
-        double invR = 1.0 / R;
-        double radToDeg = 180.0 / Math.PI;
-
-        for (int i = 0; i < size; i++)
-        {
-            for (int j = 0; j < size; j++)
-            {
-                int index = j * size + i;
-
-                double x = R - i;
-                double y = R - j;
-
-                // In a hue wheel, a color is determined by the polar coordinates of the pixel.  The normalized radius becomes the saturation and the angle (in degrees) becomes the hue.
-                double sat = invR * Math.sqrt(x * x + y * y);
-                double hue =  radToDeg * (Math.atan2(y, x) + Math.PI);
-
-                if (sat > 1)
-                    pixels[index] = 0;
-                else
-                    pixels[index] = Color.HSVToColor(new float[]{ (float)hue, (float)sat, 1.0f });
-            }
-        }
-
-        return Bitmap.createBitmap(pixels, size, size, Bitmap.Config.ARGB_8888);
-    }
-
-    /** Gets the view space coordinates for the specified color from a hue wheel.
-     * @param color The ARGB color to get coordinates for.
-     * @return The view space coordinates.
+    /** Moves the selection circle to the view space coordinates of the specified color on the hue wheel.
+     * @param color The ARGB color to move the selection to.
      */
-    private Point getColorCoordinates(int color)
+    private void updateSelectionCoordinates(int color)
     {
-        float[] hsv = new float[3];
-
         Color.colorToHSV(color, hsv);
 
         // Hue is the angle of the polar coordinates, and saturation is the radius.
@@ -379,37 +444,46 @@ public class ColorPickerView extends View
         double r = R * hsv[1];
         double theta = Math.PI * hsv[0] / 180.0;
 
-        double x = r * Math.cos(theta);
-        double y = r * Math.sin(theta);
-
-        // At this point, x and y are with respect to the center of the circle.  Need to translate back into top-left coordinates.
-        return new Point((int)(x + 0.5 * getWidth()), (int)(y + 0.5 * getHeight()));
+        // Translate from coordinates with respect to the center of the circle back into top-left coordinates.
+        selectionX = (float)(r * Math.cos(theta) + 0.5 * getWidth());
+        selectionY = (float)(r * Math.sin(theta) + 0.5 * getHeight());
     }
 
     /** Gets the color within the hue wheel at the specified view space coordinates.  If the coordinates are not in the hue wheel, returns <code>NO_COLOR</code>.
-     * @param coordinates The view space coordinates.
+     * Once the wheel has been rendered, the color is read straight from its pixels.
+     * @param x The horizontal view space coordinate.
+     * @param y The vertical view space coordinate.
      * @return The color at the coordinates, or <code>NO_COLOR</code> if the coordinates are not in the hue wheel.
      */
-    private int getColorAtCoordinates(Point coordinates)
+    private int getColorAtCoordinates(float x, float y)
     {
-        // We must first check to see if the coordinates are in the hue wheel.  If not, return NO_COLOR.
         int size = Math.min(getWidth(), getHeight()) - borderSize;
 
-        double x = 0.5 * getWidth() - coordinates.x;
-        double y = 0.5 * getHeight() - coordinates.y;
+        if (hueWheel != null && hueWheel.getWidth() == size)
+        {
+            int i = (int)(x - 0.5f * (getWidth() - size));
+            int j = (int)(y - 0.5f * (getHeight() - size));
 
-        double R = 0.5 * size;
-        double r = Math.sqrt(x * x + y * y);
+            if (i < 0 || j < 0 || i >= size || j >= size)
+                return NO_COLOR;
+
+            // Pixels outside of the wheel are transparent.
+            int pixel = hueWheel.getPixel(i, j);
+            return Color.alpha(pixel) == 0 ? NO_COLOR : pixel;
+        }
+
+        // The wheel has not been rendered yet, so compute the color the same way the renderer does.
+        float dx = 0.5f * getWidth() - x;
+        float dy = 0.5f * getHeight() - y;
+
+        float R = 0.5f * size;
+        float r = (float)Math.sqrt(dx * dx + dy * dy);
 
         if (R < r)
             return NO_COLOR;
 
         // The normalized radius becomes the saturation and the angle becomes the hue.
-
-        double sat = r / R;
-        double hue = (180.0 / Math.PI) * (Math.atan2(y, x) + Math.PI);
-
-        return Color.HSVToColor(new float[]{ (float)hue, (float)sat, 1.0f });
+        return HueWheelRenderer.hsvToColor(HueWheelRenderer.atan2Degrees(dy, dx) + 180f, r / R);
     }
 
     //endregion
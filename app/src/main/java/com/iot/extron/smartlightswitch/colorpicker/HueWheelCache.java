@@ -0,0 +1,267 @@
+/*
+ * This file is part of Hue SmartSwitch
+ *
+ * Hue SmartSwitch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package com.iot.extron.smartlightswitch.colorpicker;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+import android.util.LruCache;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/** Caches rendered hue wheel bitmaps, since a wheel's pixels depend only on its size.  Wheels are kept in a size-bounded in-memory tier, and are
+ * also written as PNG files under the app's files directory so that they survive restarts.  A wheel is only rendered when neither tier has it. */
+public class HueWheelCache
+{
+    //region Static Fields
+
+    private static final String TAG = "HueWheelCache";
+
+    /** The most bytes of bitmap data kept in the in-memory tier. */
+    static final int MEMORY_CACHE_BYTES = 16 * 1024 * 1024;
+
+    /** The directory under the app's files directory that the file tier is stored in. */
+    static final String DIRECTORY_NAME = "huewheels";
+
+    /** The single cache shared by every color picker. */
+    private static HueWheelCache instance;
+
+    //endregion
+
+
+    //region Fields
+
+    /** The in-memory tier, keyed by {@link #getKey}. */
+    private final LruCache<String, Bitmap> memoryCache = new LruCache<String, Bitmap>(MEMORY_CACHE_BYTES)
+    {
+        @Override
+        protected int sizeOf(String key, Bitmap bitmap)
+        {
+            return bitmap.getAllocationByteCount();
+        }
+    };
+
+    /** The directory the file tier is stored in. */
+    private final File directory;
+
+    /** The thread that files are read and written on. */
+    private final ExecutorService ioExecutor = Executors.newSingleThreadExecutor(runnable ->
+    {
+        Thread thread = new Thread(runnable, TAG);
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** The callbacks waiting on each wheel that is being loaded or rendered, so that the same wheel is never produced twice at once. */
+    private final Map<String, List<Consumer<Bitmap>>> pending = new HashMap<>();
+
+    //endregion
+
+
+    //region Constructors
+
+    private HueWheelCache(Context context)
+    {
+        directory = new File(context.getFilesDir(), DIRECTORY_NAME);
+    }
+
+    /** Gets the cache shared by every color picker.
+     * @param context Any context of the app.
+     * @return The shared {@link HueWheelCache}.
+     */
+    public static synchronized HueWheelCache getInstance(Context context)
+    {
+        if (instance == null)
+            instance = new HueWheelCache(context.getApplicationContext());
+
+        return instance;
+    }
+
+    //endregion
+
+
+    //region Cache Methods
+
+    /** Gets the key a wheel is cached under.
+     * @param size The width and height of the wheel, in pixels.
+     * @param borderSize The size of the border drawn around the wheel, in pixels.
+     * @param config The pixel format of the wheel.
+     * @return The key.
+     */
+    public static String getKey(int size, int borderSize, Bitmap.Config config)
+    {
+        return size + "_" + borderSize + "_" + config.name();
+    }
+
+    /** Gets a wheel from the in-memory tier only.
+     * @param size The width and height of the wheel, in pixels.
+     * @param borderSize The size of the border drawn around the wheel, in pixels.
+     * @return The wheel, or <code>null</code> if it is not in memory.
+     */
+    public Bitmap getFromMemory(int size, int borderSize)
+    {
+        return memoryCache.get(getKey(size, borderSize, Bitmap.Config.ARGB_8888));
+    }
+
+    /** Gets a wheel, reading it from the file tier or rendering it if it is not in memory.
+     * @param size The width and height of the wheel, in pixels.
+     * @param borderSize The size of the border drawn around the wheel, in pixels.
+     * @param onLoaded Receives the wheel.  Called immediately if the wheel is in memory, otherwise on a background thread.
+     */
+    public void get(final int size, int borderSize, Consumer<Bitmap> onLoaded)
+    {
+        final String key = getKey(size, borderSize, Bitmap.Config.ARGB_8888);
+        Bitmap bitmap = memoryCache.get(key);
+
+        if (bitmap != null)
+        {
+            onLoaded.accept(bitmap);
+            return;
+        }
+
+        synchronized (pending)
+        {
+            List<Consumer<Bitmap>> callbacks = pending.get(key);
+
+            if (callbacks != null)
+            {
+                callbacks.add(onLoaded);
+                return;
+            }
+
+            callbacks = new ArrayList<>();
+            callbacks.add(onLoaded);
+            pending.put(key, callbacks);
+        }
+
+        ioExecutor.execute(() ->
+        {
+            Bitmap stored = readFile(key, size);
+
+            if (stored != null)
+            {
+                complete(key, stored);
+                return;
+            }
+
+            HueWheelRenderer.renderAsync(size, pixels ->
+            {
+                Bitmap rendered = Bitmap.createBitmap(pixels, size, size, Bitmap.Config.ARGB_8888);
+                complete(key, rendered);
+                ioExecutor.execute(() -> writeFile(key, rendered));
+            });
+        });
+    }
+
+    /** Stores a produced wheel in memory and hands it to everyone waiting on it. */
+    private void complete(String key, Bitmap bitmap)
+    {
+        List<Consumer<Bitmap>> callbacks;
+
+        memoryCache.put(key, bitmap);
+
+        synchronized (pending)
+        {
+            callbacks = pending.remove(key);
+        }
+
+        if (callbacks != null)
+        {
+            for (Consumer<Bitmap> callback : callbacks)
+                callback.accept(bitmap);
+        }
+    }
+
+    //endregion
+
+
+    //region File Tier
+
+    /** Gets the file a wheel is stored in. */
+    private File getFile(String key)
+    {
+        return new File(directory, key + ".png");
+    }
+
+    /** Reads a wheel from the file tier.
+     * @return The wheel, or <code>null</code> if it is not stored or the stored file is unusable.
+     */
+    private Bitmap readFile(String key, int size)
+    {
+        File file = getFile(key);
+
+        if (!file.isFile())
+            return null;
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+
+        Bitmap bitmap = BitmapFactory.decodeFile(file.getPath(), options);
+
+        if (bitmap == null || bitmap.getWidth() != size || bitmap.getHeight() != size)
+        {
+            Log.w(TAG, "Discarding unusable hue wheel file " + file);
+            file.delete();
+            return null;
+        }
+
+        return bitmap;
+    }
+
+    /** Writes a wheel to the file tier.  The file is written under a temporary name and then renamed, so a partly written file is never read. */
+    private void writeFile(String key, Bitmap bitmap)
+    {
+        if (!directory.isDirectory() && !directory.mkdirs())
+        {
+            Log.w(TAG, "Could not create hue wheel directory " + directory);
+            return;
+        }
+
+        File file = getFile(key);
+        File temp = new File(directory, key + ".tmp");
+
+        try (FileOutputStream stream = new FileOutputStream(temp))
+        {
+            bitmap.compress(Bitmap.CompressFormat.PNG, 100, stream);
+        }
+        catch (IOException e)
+        {
+            Log.w(TAG, "Could not write hue wheel file " + file, e);
+            temp.delete();
+            return;
+        }
+
+        if (!temp.renameTo(file))
+        {
+            Log.w(TAG, "Could not store hue wheel file " + file);
+            temp.delete();
+        }
+    }
+
+    //endregion
+}
@@ -0,0 +1,207 @@
+/*
+ * This file is part of Hue SmartSwitch
+ *
+ * Hue SmartSwitch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package com.iot.extron.smartlightswitch.colorpicker;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/** Renders the pixels of a hue wheel, where the angle of a pixel around the center is its hue and its distance from the center is its saturation.
+ * Angles come from an arctangent lookup table and colors from an allocation-free HSV conversion, and large wheels are rendered in parallel bands
+ * of rows. */
+public class HueWheelRenderer
+{
+    //region Static Fields
+
+    /** The number of steps in {@link #ATAN_TABLE} between a ratio of 0 and 1.  One step is well under a hundredth of a degree. */
+    private static final int ATAN_TABLE_SIZE = 4096;
+
+    /** The arctangent in degrees of every ratio between 0 and 1, in steps of <code>1 / ATAN_TABLE_SIZE</code>. */
+    private static final float[] ATAN_TABLE = new float[ATAN_TABLE_SIZE + 1];
+
+    /** The fewest rows in a band.  Smaller wheels are rendered in fewer bands, since splitting them further costs more than it saves. */
+    private static final int MIN_BAND_ROWS = 64;
+
+    /** The number of threads wheels are rendered on. */
+    private static final int THREAD_COUNT = Math.max(1, Runtime.getRuntime().availableProcessors());
+
+    /** The threads wheels are rendered on. */
+    private static final ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT, runnable ->
+    {
+        Thread thread = new Thread(runnable, "HueWheelRenderer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static
+    {
+        for (int i = 0; i <= ATAN_TABLE_SIZE; i++)
+            ATAN_TABLE[i] = (float)Math.toDegrees(Math.atan((double)i / ATAN_TABLE_SIZE));
+    }
+
+    //endregion
+
+
+    //region Rendering
+
+    /** Renders a hue wheel on a background thread, splitting the rows into bands that are rendered in parallel.
+     * @param size The width and height of the wheel, in pixels.
+     * @param onRendered Receives the ARGB pixels of the wheel, row by row, once every band is done.  Called on a background thread.
+     */
+    public static void renderAsync(final int size, final Consumer<int[]> onRendered)
+    {
+        final int[] pixels = new int[size * size];
+        final int bands = Math.max(1, Math.min(THREAD_COUNT, size / MIN_BAND_ROWS));
+        final AtomicInteger remaining = new AtomicInteger(bands);
+
+        for (int band = 0; band < bands; band++)
+        {
+            final int firstRow = size * band / bands;
+            final int lastRow = size * (band + 1) / bands;
+
+            executor.execute(() ->
+            {
+                renderRows(pixels, size, firstRow, lastRow);
+
+                if (remaining.decrementAndGet() == 0)
+                    onRendered.accept(pixels);
+            });
+        }
+    }
+
+    /** Renders a hue wheel on the calling thread.
+     * @param size The width and height of the wheel, in pixels.
+     * @return The ARGB pixels of the wheel, row by row.
+     */
+    public static int[] render(int size)
+    {
+        int[] pixels = new int[size * size];
+        renderRows(pixels, size, 0, size);
+        return pixels;
+    }
+
+    /** Renders a range of rows of a hue wheel.  Pixels outside of the wheel are left transparent.
+     * @param pixels The pixels of the whole wheel, row by row.
+     * @param size The width and height of the wheel, in pixels.
+     * @param firstRow The first row to render.
+     * @param lastRow The row after the last row to render.
+     */
+    static void renderRows(int[] pixels, int size, int firstRow, int lastRow)
+    {
+        float R = 0.5f * size;
+        float invR = 1f / R;
+
+        // The horizontal offsets from the center are the same on every row, so they are computed once.
+        float[] xs = new float[size];
+        float[] xSquares = new float[size];
+
+        for (int i = 0; i < size; i++)
+        {
+            xs[i] = R - i;
+            xSquares[i] = xs[i] * xs[i];
+        }
+
+        for (int j = firstRow; j < lastRow; j++)
+        {
+            float y = R - j;
+            float ySquare = y * y;
+            int index = j * size;
+
+            for (int i = 0; i < size; i++, index++)
+            {
+                // In a hue wheel, a color is determined by the polar coordinates of the pixel.  The normalized radius becomes the saturation and the angle (in degrees) becomes the hue.
+                float sat = invR * (float)Math.sqrt(xSquares[i] + ySquare);
+
+                if (sat > 1)
+                    pixels[index] = 0;
+                else
+                    pixels[index] = hsvToColor(atan2Degrees(y, xs[i]) + 180f, sat);
+            }
+        }
+    }
+
+    //endregion
+
+
+    //region Color Math
+
+    /** Computes the angle of a point around the origin using {@link #ATAN_TABLE}.
+     * @param y The vertical coordinate.
+     * @param x The horizontal coordinate.
+     * @return The angle in degrees, between -180 and 180, matching {@link Math#atan2(double, double)}.
+     */
+    static float atan2Degrees(float y, float x)
+    {
+        float ax = Math.abs(x);
+        float ay = Math.abs(y);
+
+        if (ax == 0 && ay == 0)
+            return 0;
+
+        // Reduce to the first octant, where the ratio is between 0 and 1, then unfold the result back to the original quadrant.
+        float angle;
+
+        if (ay <= ax)
+            angle = ATAN_TABLE[(int)(ay / ax * ATAN_TABLE_SIZE + 0.5f)];
+        else
+            angle = 90f - ATAN_TABLE[(int)(ax / ay * ATAN_TABLE_SIZE + 0.5f)];
+
+        if (x < 0)
+            angle = 180f - angle;
+
+        return y < 0 ? -angle : angle;
+    }
+
+    /** Converts a hue and saturation at full value to an opaque ARGB color, in the same way as <code>android.graphics.Color.HSVToColor</code>
+     * but without allocating.
+     * @param hue The hue, in degrees between 0 and 360.
+     * @param sat The saturation, between 0 and 1.
+     * @return The ARGB color.
+     */
+    static int hsvToColor(float hue, float sat)
+    {
+        if (sat <= 0)
+            return 0xFFFFFFFF;
+
+        float hx = (hue < 0 || hue >= 360f) ? 0 : hue / 60f;
+        int sector = (int)hx;
+        float f = hx - sector;
+
+        int v = 255;
+        int p = Math.round((1f - sat) * 255f);
+        int q = Math.round((1f - sat * f) * 255f);
+        int t = Math.round((1f - sat * (1f - f)) * 255f);
+
+        int r, g, b;
+
+        switch (sector)
+        {
+            case 0:  r = v; g = t; b = p; break;
+            case 1:  r = q; g = v; b = p; break;
+            case 2:  r = p; g = v; b = t; break;
+            case 3:  r = p; g = q; b = v; break;
+            case 4:  r = t; g = p; b = v; break;
+            default: r = v; g = p; b = q; break;
+        }
+
+        return 0xFF000000 | (r << 16) | (g << 8) | b;
+    }
+
+    //endregion
+}
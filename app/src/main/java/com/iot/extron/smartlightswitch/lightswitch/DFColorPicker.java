@@ -39,9 +39,15 @@ public class DFColorPicker extends DialogFragment
     /** The callback used when a color is selected. */
     OnColorSelectedCallback onColorSelectedCallback;
 
+    /** The callback used to preview colors while they are being picked, or <code>null</code> if colors are not previewed. */
+    OnColorPreviewCallback onColorPreviewCallback;
+
     /** The color to set as the starting color when the dialog is created. */
     int startingColor;
 
+    /** Whether the dialog has already reported that it was closed, so that it is only reported once. */
+    boolean closed;
+
     //endregion
 
 
@@ -63,9 +69,20 @@ public class DFColorPicker extends DialogFragment
      * @param startingColor The color to display as selected when the dialog first loads.
      */
     public static DFColorPicker newInstance(int startingColor, OnColorSelectedCallback callback)
+    {
+        return newInstance(startingColor, callback, null);
+    }
+
+    /** Creates a new dialog fragment to pick colors, which previews each color as it is picked.
+     * @param startingColor The color to display as selected when the dialog first loads.
+     * @param callback The callback used when a color is selected.
+     * @param previewCallback The callback used to preview colors while they are being picked, or <code>null</code> to not preview colors.
+     */
+    public static DFColorPicker newInstance(int startingColor, OnColorSelectedCallback callback, OnColorPreviewCallback previewCallback)
     {
         DFColorPicker fragment = new DFColorPicker();
         fragment.onColorSelectedCallback = callback;
+        fragment.onColorPreviewCallback = previewCallback;
         fragment.startingColor = startingColor;
         return fragment;
     }
@@ -85,6 +102,13 @@ public class DFColorPicker extends DialogFragment
         colorPickerView = customView.findViewById(R.id.colorPickerView);
         colorPickerView.setSelectedColor(startingColor);
 
+        // The listener is set after the starting color so that the starting color is not previewed.
+        colorPickerView.setOnSelectedColorChangedListener((view, color) ->
+        {
+            if (onColorPreviewCallback != null && !closed)
+                onColorPreviewCallback.colorPreviewed(color);
+        });
+
         builder
                 .setTitle(R.string.select_color)
                 .setIcon(R.drawable.ic_color_lens_white_24dp)
@@ -94,6 +118,8 @@ public class DFColorPicker extends DialogFragment
                     @Override
                     public void onClick(DialogInterface dialog, int id)
                     {
+                        closed = true;
+
                         if (onColorSelectedCallback != null)
                         {
                             onColorSelectedCallback.colorSelected(colorPickerView.getSelectedColor());
@@ -105,12 +131,37 @@ public class DFColorPicker extends DialogFragment
                     @Override
                     public void onClick(DialogInterface dialog, int id)
                     {
+                        previewCancelled();
                     }
                 });
 
         return builder.create();
     }
 
+    @Override
+    public void onCancel(DialogInterface dialog)
+    {
+        super.onCancel(dialog);
+        previewCancelled();
+    }
+
+    //endregion
+
+
+    //region Preview Methods
+
+    /** Reports that picking was cancelled, so that anything previewed can be reverted.  Only reported once, and only if nothing was selected. */
+    private void previewCancelled()
+    {
+        if (closed)
+            return;
+
+        closed = true;
+
+        if (onColorPreviewCallback != null)
+            onColorPreviewCallback.previewCancelled();
+    }
+
     //endregion
 
 
@@ -125,5 +176,17 @@ public class DFColorPicker extends DialogFragment
         public void colorSelected(int color);
     }
 
+    /** A callback for previewing colors while they are being picked. */
+    public interface OnColorPreviewCallback
+    {
+        /** Raised each time the color being picked changes, before any color has been selected.
+         * @param color The color being picked.
+         */
+        public void colorPreviewed(int color);
+
+        /** Raised when the dialog is closed without selecting a color, so that anything previewed can be reverted. */
+        public void previewCancelled();
+    }
+
     //endregion
 }
@@ -24,26 +24,32 @@ import android.content.DialogInterface;
 import android.os.Bundle;
 import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.CheckBox;
 import android.widget.CompoundButton;
+import android.widget.EditText;
 import android.widget.TextView;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
-import java.util.function.BinaryOperator;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import com.philips.lighting.hue.sdk.wrapper.domain.device.light.LightPoint;
 
 import com.iot.extron.smartlightswitch.R;
+import com.iot.extron.smartlightswitch.utilities.NameIndex;
 import com.philips.lighting.hue.sdk.wrapper.domain.resource.Group;
 
 /**
- * Manages a dialog that allows users to pick one or more lights to manage with the light switch.
+ * Manages a dialog that allows users to pick one or more lights to manage with the light switch.  Lights and groups can be found by typing part
+ * of their name.
  */
 public class DFLightPicker extends DialogFragment
 {
@@ -69,6 +75,7 @@ public class DFLightPicker extends DialogFragment
 
     //region UI Elements
 
+    EditText searchEditText;
     RecyclerView recyclerView;
     LightsRVAdapter adapter;
 
@@ -128,6 +135,22 @@ public class DFLightPicker extends DialogFragment
 
         recyclerView.setAdapter(adapter);
 
+        searchEditText = customView.findViewById(R.id.searchEditText);
+        searchEditText.addTextChangedListener(new TextWatcher()
+        {
+            @Override
+            public void beforeTextChanged(CharSequence text, int start, int count, int after) { }
+
+            @Override
+            public void onTextChanged(CharSequence text, int start, int before, int count) { }
+
+            @Override
+            public void afterTextChanged(Editable text)
+            {
+                adapter.setFilter(text.toString());
+            }
+        });
+
         builder
             .setTitle(R.string.lights)
             .setIcon(R.drawable.ic_lightbulb_outline_white_24dp)
@@ -168,7 +191,7 @@ public class DFLightPicker extends DialogFragment
 
     //region RecyclerView Adapter
 
-    /** {@link RecyclerView.Adapter} that can display a a sectioned list of light and group names. */
+    /** {@link RecyclerView.Adapter} that can display a a sectioned list of light and group names, filtered by a search query. */
     class LightsRVAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
     {
         //region Static Fields
@@ -187,8 +210,18 @@ public class DFLightPicker extends DialogFragment
         /** A list of sections, each of which contains a list of items to display under that section. */
         List<Section> sections;
 
-        /** The index of the selected item. */
-        List<Integer> selectedItems = new ArrayList<>();
+        /** The indices of the sections that are shown.  While the list is filtered, sections with no matching items are hidden. */
+        int[] shownSections = new int[0];
+
+        /** The position of each shown section's header, in the same order as {@link #shownSections}.  Since the positions are ascending, the section
+         * at a position is found with a binary search. */
+        int[] sectionStarts = new int[0];
+
+        /** The current filter query, or an empty string if the list is not filtered. */
+        String query = "";
+
+        /** The total number of headers and items. */
+        int itemCount = 0;
 
         //endregion
 
@@ -235,7 +268,7 @@ public class DFLightPicker extends DialogFragment
 
                 case ITEM_TYPE:
                 default:
-                    ((ItemViewHolder)holder).bind(rawItem);
+                    ((ItemViewHolder)holder).bind(rawItem, position);
                     break;
             }
         }
@@ -243,39 +276,13 @@ public class DFLightPicker extends DialogFragment
         @Override
         public int getItemCount()
         {
-            // The total number of items in the list is the number of headers plus the sum of the sizes of all of the items in all collections.
-            return sections.size() + sections.stream().map(new Function<Section, Integer>()
-            {
-                @Override
-                public Integer apply(Section section)
-                {
-                    return section.items.size();
-                }
-            }).reduce(0, new BinaryOperator<Integer>()
-            {
-                @Override
-                public Integer apply(Integer current, Integer element)
-                {
-                    return current + element;
-                }
-            });
+            return itemCount;
         }
 
         @Override
         public int getItemViewType(int position)
         {
-            // Flatten the sections into a single list, adding the headers in with the items.
-            List<Integer> types = new ArrayList<>();
-
-            for (Section section : sections)
-            {
-                types.add(HEADER_TYPE);
-
-                for (String item : section.items)
-                    types.add(ITEM_TYPE);
-            }
-
-            return types.get(position);
+            return sectionStarts[getShownSectionIndex(position)] == position ? HEADER_TYPE : ITEM_TYPE;
         }
 
         //endregion
@@ -287,11 +294,16 @@ public class DFLightPicker extends DialogFragment
          */
         public void addSection(String header, List<String> items, List<Integer> selectedItemsInSection)
         {
-            int offset = getItemCount() + 1;
-            sections.add(new Section(header, items));
+            Section section = new Section(header, items);
 
             for (Integer item : selectedItemsInSection)
-                selectedItems.add(item + offset);
+            {
+                if (item >= 0 && item < items.size())
+                    section.selected.set(item);
+            }
+
+            sections.add(section);
+            rebuildSectionStarts();
         }
 
         /** Gets the raw item at the specified position, which can either be a header or an item.
@@ -300,18 +312,64 @@ public class DFLightPicker extends DialogFragment
          */
         private String getItem(int position)
         {
-            // Flatten the sections into a single list, adding the headers in with the items.
-            List<String> rawItems = new ArrayList<>();
+            int shownIndex = getShownSectionIndex(position);
+            Section section = sections.get(shownSections[shownIndex]);
+            int start = sectionStarts[shownIndex];
+
+            return position == start ? section.name : section.items.get(section.visible[position - start - 1]);
+        }
+
+        /** Filters every section to the items matching a query.  Typing more of the previous query only searches the items that matched it, where
+         * {@link NameIndex#isNarrowing} allows.
+         * @param query The text to search for, or an empty string to show every item.
+         */
+        public void setFilter(String query)
+        {
+            String newQuery = query.trim();
+            boolean narrowing = NameIndex.isNarrowing(this.query, newQuery);
 
             for (Section section : sections)
+                section.filter(newQuery, narrowing);
+
+            this.query = newQuery;
+            rebuildSectionStarts();
+            notifyDataSetChanged();
+        }
+
+        /** Recomputes which sections are shown, the position of each shown section's header and the total item count, after the sections or the
+         * filter have changed. */
+        private void rebuildSectionStarts()
+        {
+            int[] shown = new int[sections.size()];
+            int[] starts = new int[sections.size()];
+            int shownCount = 0;
+            int position = 0;
+
+            for (int i = 0; i < sections.size(); i++)
             {
-                rawItems.add(section.name);
+                Section section = sections.get(i);
+
+                if (!query.isEmpty() && section.visible.length == 0)
+                    continue;
 
-                for (String item : section.items)
-                    rawItems.add(item);
+                shown[shownCount] = i;
+                starts[shownCount] = position;
+                shownCount++;
+                position += 1 + section.visible.length;
             }
 
-            return rawItems.get(position);
+            shownSections = Arrays.copyOf(shown, shownCount);
+            sectionStarts = Arrays.copyOf(starts, shownCount);
+            itemCount = position;
+        }
+
+        /** Gets the index within {@link #shownSections} of the section that contains a position, either as its header or as one of its items. */
+        private int getShownSectionIndex(int position)
+        {
+            int index = Arrays.binarySearch(sectionStarts, position);
+
+            // A miss returns the negated insertion point, and the section containing the position is the one before it.
+            return index >= 0 ? index : -index - 2;
         }
 
         //region Item Selection
@@ -321,22 +379,14 @@ public class DFLightPicker extends DialogFragment
          */
         public List<List<Integer>> getSelectedItems()
         {
-            List<List<Integer>> sectionSelections = new ArrayList<>();
-            int position = 0;
+            List<List<Integer>> sectionSelections = new ArrayList<>(sections.size());
 
             for (Section section : sections)
             {
-                position++;
-
-                List<Integer> selections = new ArrayList<>();
+                List<Integer> selections = new ArrayList<>(section.selected.cardinality());
 
-                for (String item : section.items)
-                {
-                    if (selectedItems.contains(position))
-                        selections.add(section.items.indexOf(item));
-
-                    position++;
-                }
+                for (int item = section.selected.nextSetBit(0); item >= 0; item = section.selected.nextSetBit(item + 1))
+                    selections.add(item);
 
                 sectionSelections.add(selections);
             }
@@ -349,8 +399,7 @@ public class DFLightPicker extends DialogFragment
          */
         void selectItem(int position)
         {
-            if (!selectedItems.contains(position))
-                selectedItems.add(position);
+            setItemSelected(position, true);
         }
 
         /** Removes an item from the list of selected item.
@@ -358,14 +407,32 @@ public class DFLightPicker extends DialogFragment
          */
         void deselectItem(int position)
         {
-            if (selectedItems.contains(position))
-                selectedItems.remove(Integer.valueOf(position));
+            setItemSelected(position, false);
         }
 
         /** Determines if the item at the specified position is selected. */
         private boolean isItemSelected(int position)
         {
-            return selectedItems.contains(position);
+            int shownIndex = getShownSectionIndex(position);
+            int row = position - sectionStarts[shownIndex] - 1;
+            Section section = sections.get(shownSections[shownIndex]);
+
+            return row >= 0 && section.selected.get(section.visible[row]);
+        }
+
+        /** Selects or deselects the item at a position.  Headers and positions outside the list are ignored. */
+        private void setItemSelected(int position, boolean selected)
+        {
+            if (position < 0 || position >= itemCount)
+                return;
+
+            int shownIndex = getShownSectionIndex(position);
+            int row = position - sectionStarts[shownIndex] - 1;
+            Section section = sections.get(shownSections[shownIndex]);
+
+            // Selection is kept by item rather than by position, so that it survives the list being filtered.
+            if (row >= 0)
+                section.selected.set(section.visible[row], selected);
         }
 
         //endregion
@@ -437,13 +504,14 @@ public class DFLightPicker extends DialogFragment
 
             /** Binds the view holder to a list item.
              * @param item The item to bind to.
+             * @param position The position of the item.
              */
-            public void bind(String item)
+            public void bind(String item, int position)
             {
                 this.item = item;
 
                 itemTextView.setText(item);
-                itemCheckbox.setChecked(isItemSelected(getAdapterPosition()));
+                itemCheckbox.setChecked(isItemSelected(position));
             }
         }
 
@@ -457,10 +525,37 @@ public class DFLightPicker extends DialogFragment
             String name;
             List<String> items;
 
+            /** The indices of the selected items within the section. */
+            BitSet selected = new BitSet();
+
+            /** The search index of the item names. */
+            NameIndex index;
+
+            /** The indices of the items matching the current filter. */
+            BitSet matches;
+
+            /** The indices of the items that are shown, in order, so that the item at a row is a single lookup. */
+            int[] visible;
+
             public Section(String name, List<String> items)
             {
                 this.name = name;
                 this.items = items;
+                this.index = new NameIndex(items);
+                filter("", false);
+            }
+
+            /** Filters the section to the items matching a query.
+             * @param query The text to search for, or an empty string to show every item.
+             * @param narrowing Whether the query extends the previous query, so that only the items matching the previous query need searching.
+             */
+            void filter(String query, boolean narrowing)
+            {
+                matches = narrowing ? index.search(query, matches) : index.search(query);
+                visible = new int[matches.cardinality()];
+
+                for (int item = matches.nextSetBit(0), row = 0; item >= 0; item = matches.nextSetBit(item + 1), row++)
+                    visible[row] = item;
             }
 
             public String getName()
@@ -59,13 +59,13 @@ public class DFScenePicker extends DialogFragment
     }
 
     /** Creates a new dialog fragment to pick a scene.
-     * @param scenes The list of scenes to display.
+     * @param scenes The list of scenes to display, in the order they should be shown, such as from {@link com.iot.extron.smartlightswitch.models.SceneCatalog}.
      */
     public static DFScenePicker newInstance(List<SceneGroup> scenes, OnSceneSelectedCallback callback)
     {
         DFScenePicker fragment = new DFScenePicker();
         fragment.onSceneSelectedCallback = callback;
-        fragment.scenes = scenes.stream().sorted((s1, s2) -> s1.getName().compareTo(s2.getName())).collect(Collectors.toList());
+        fragment.scenes = scenes;
         return fragment;
     }
 
@@ -24,9 +24,13 @@ import android.graphics.Color;
 import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
 import android.graphics.drawable.GradientDrawable;
+import android.os.AsyncTask;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.support.design.widget.FloatingActionButton;
 import android.support.design.widget.Snackbar;
+import android.support.v7.util.DiffUtil;
 import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
 import android.util.ArraySet;
@@ -44,13 +48,24 @@ import android.widget.Switch;
 import android.widget.TextView;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import com.iot.extron.smartlightswitch.models.AggregateLight;
+import com.iot.extron.smartlightswitch.models.BridgeRequestScheduler;
+import com.iot.extron.smartlightswitch.models.BridgeSnapshot;
+import com.iot.extron.smartlightswitch.models.CachedLight;
+import com.iot.extron.smartlightswitch.models.CommandTracer;
 import com.iot.extron.smartlightswitch.models.Light;
+import com.iot.extron.smartlightswitch.models.LightCommandQueue;
+import com.iot.extron.smartlightswitch.models.LightSnapshot;
+import com.iot.extron.smartlightswitch.models.LightStateDelta;
 import com.philips.lighting.hue.sdk.wrapper.connection.BridgeConnectionType;
 import com.philips.lighting.hue.sdk.wrapper.connection.BridgeResponseCallback;
 import com.philips.lighting.hue.sdk.wrapper.connection.BridgeStateCacheType;
@@ -62,14 +77,17 @@ import com.philips.lighting.hue.sdk.wrapper.domain.clip.ClipResponse;
 import com.philips.lighting.hue.sdk.wrapper.domain.device.light.LightPoint;
 import com.philips.lighting.hue.sdk.wrapper.domain.device.light.LightState;
 import com.philips.lighting.hue.sdk.wrapper.domain.resource.Group;
-import com.philips.lighting.hue.sdk.wrapper.domain.resource.Scene;
-import com.philips.lighting.hue.sdk.wrapper.utilities.HueColor;
 
 import com.iot.extron.smartlightswitch.AMain;
-import com.iot.extron.smartlightswitch.BridgeEventCallback;
+import com.iot.extron.smartlightswitch.BridgeEvent;
+import com.iot.extron.smartlightswitch.BridgeEventBus;
 import com.iot.extron.smartlightswitch.FBase;
+import com.iot.extron.smartlightswitch.SLSApplication;
+import com.iot.extron.smartlightswitch.models.SceneCatalog;
 import com.iot.extron.smartlightswitch.models.SceneGroup;
+import com.iot.extron.smartlightswitch.models.SingleLight;
 import com.iot.extron.smartlightswitch.utilities.ColorUtilities;
+import com.iot.extron.smartlightswitch.utilities.HueColorConverter;
 import com.iot.extron.smartlightswitch.R;
 
 
@@ -101,6 +119,37 @@ public class FLightswitch extends FBase
     /** The current colors of the aggregate light. */
     List<Integer> colors = new ArrayList<>();
 
+    /** A handler that runs work on the UI thread. */
+    Handler uiHandler = new Handler(Looper.getMainLooper());
+
+    /** Streams brightness values to the selected lights while the brightness slider is dragged. */
+    LatestValueSender brightnessSender = new LatestValueSender(uiHandler, (value, isFinal, onComplete) -> sendBrightness(value, isFinal, onComplete));
+
+    /** Streams colors to the selected lights while they are previewed in the color picker. */
+    LatestValueSender colorSender = new LatestValueSender(uiHandler, (value, isFinal, onComplete) -> sendColor(value, isFinal, onComplete));
+
+    /** Indicates that the user is dragging the brightness slider, so bridge updates should not move it. */
+    boolean trackingBrightness = false;
+
+    /** The bridge's scenes, grouped and sorted ahead of time, so that the scene picker opens without filtering them. */
+    SceneCatalog sceneCatalog = new SceneCatalog();
+
+    /** Decides when to pull the lights and groups from the bridge, both on a heartbeat and after commands complete. */
+    RefreshCoordinator refreshCoordinator = new RefreshCoordinator(uiHandler, HEARTBEAT_INTERVAL, () -> sendRefresh());
+
+    /** Indicates that {@link #aggregateLight} holds the bridge's live lights.  Until the bridge is initialized it holds lights restored from the
+     * last {@link BridgeSnapshot} instead, which can be shown but not controlled. */
+    boolean live;
+
+    /** The identifier of the bridge, which the selected lights are saved under. */
+    String bridgeIdentifier;
+
+    /** A state set on all of the selected lights before the bridge was initialized, to be sent once it is, or <code>null</code> if there is none. */
+    LightState pendingState;
+
+    /** States set on single lights before the bridge was initialized, to be sent after {@link #pendingState}, keyed by {@link #getPendingKey}. */
+    Map<String, LightState> pendingLightStates = new LinkedHashMap<>();
+
     //endregion
 
 
@@ -164,14 +213,34 @@ public class FLightswitch extends FBase
             List<LightPoint> currentLights = aggregateLight.getLightPoints();
             List<Group> currentGroups = aggregateLight.getGroups();
 
+            // Map identifiers to positions once, rather than searching the lists for each selected light.
+            Map<String, Integer> lightPositions = new HashMap<>(allLights.size() * 2);
+            Map<String, Integer> groupPositions = new HashMap<>(allGroups.size() * 2);
+
+            for (int i = 0; i < allLights.size(); i++)
+                lightPositions.put(allLights.get(i).getIdentifier(), i);
+
+            for (int i = 0; i < allGroups.size(); i++)
+                groupPositions.put(allGroups.get(i).getIdentifier(), i);
+
             List<Integer> selectedLights = new ArrayList<>();
             List<Integer> selectedGroups = new ArrayList<>();
 
             for (LightPoint light : currentLights)
-                selectedLights.add(allLights.indexOf(light));
+            {
+                Integer position = lightPositions.get(light.getIdentifier());
+
+                if (position != null)
+                    selectedLights.add(position);
+            }
 
             for (Group group : currentGroups)
-                selectedGroups.add(allGroups.indexOf(group));
+            {
+                Integer position = groupPositions.get(group.getIdentifier());
+
+                if (position != null)
+                    selectedGroups.add(position);
+            }
 
             DFLightPicker lightPicker = DFLightPicker.newInstance(allLights, selectedLights, allGroups, selectedGroups, new DFLightPicker.OnLightsSelectedCallback()
             {
@@ -183,10 +252,11 @@ public class FLightswitch extends FBase
                     aggregateLight.addLightGroups(selectedGroups, bridgeState);
 
                     saveSelectedLights();
+                    sceneCatalog.prefetch(aggregateLight.getLightIds());
                     bindData();
                     configureUI(false);
 
-                    getBridge().getBridgeState().refresh(BridgeStateCacheType.LIGHTS_AND_GROUPS, BridgeConnectionType.LOCAL);
+                    refreshCoordinator.requestRefresh();
                 }
             });
 
@@ -201,7 +271,12 @@ public class FLightswitch extends FBase
             if (colors.size() == 1)
                 currentColor = colors.get(0);
 
-            DFColorPicker colorPicker = DFColorPicker.newInstance(currentColor, selectedColor -> setColor(selectedColor));
+            DFColorPicker colorPicker;
+
+            if (getApplication().getSettingsPreferences().getBoolean(SLSApplication.SETTINGS_LIVE_COLOR_PREVIEW, true))
+                colorPicker = newPreviewingColorPicker(currentColor);
+            else
+                colorPicker = DFColorPicker.newInstance(currentColor, selectedColor -> setColor(selectedColor));
 
             colorPicker.show(getFragmentManager(), TAG_COLOR_PICKER);
         });
@@ -209,9 +284,7 @@ public class FLightswitch extends FBase
         sceneFab = view.findViewById(R.id.sceneFab);
         sceneFab.setOnClickListener(v ->
         {
-            List<Scene> scenes = getBridge().getBridgeState().getScenes();
-
-            DFScenePicker scenePicker = DFScenePicker.newInstance(aggregateLight.filterValidScenes(scenes), scene -> recallScene(scene));
+            DFScenePicker scenePicker = DFScenePicker.newInstance(sceneCatalog.getSceneGroups(aggregateLight.getLightIds()), scene -> recallScene(scene));
 
             scenePicker.show(getFragmentManager(), TAG_SCENE_PICKER);
         });
@@ -223,25 +296,29 @@ public class FLightswitch extends FBase
             public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser)
             {
                 brightnessTextView.setText(getResources().getString(R.string.brightness).replace("{0}", Integer.toString(progress)));
+
+                if (fromUser)
+                    brightnessSender.offer(progress);
             }
 
             @Override
             public void onStartTrackingTouch(SeekBar seekBar)
             {
-
+                trackingBrightness = true;
             }
 
             @Override
             public void onStopTrackingTouch(SeekBar seekBar)
             {
-                setBrightness(seekBar.getProgress());
+                trackingBrightness = false;
+                brightnessSender.finish(seekBar.getProgress());
             }
         });
 
         lightsBottomsheetRecyclerView = view.findViewById(R.id.lightsBottomsheetRecyclerView);
         lightsBottomsheetRecyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
 
-        lightsBottomsheetAdapter = new LightsRVAdapter(new ArrayList<>());
+        lightsBottomsheetAdapter = new LightsRVAdapter();
         lightsBottomsheetRecyclerView.setAdapter(lightsBottomsheetAdapter);
 
         return view;
@@ -252,10 +329,22 @@ public class FLightswitch extends FBase
     {
         super.onStart();
 
-        getMainActivity().addBridgeEventCallback(bridgeEventCallback);
-        getBridge().getBridgeConnection(BridgeConnectionType.LOCAL).getHeartbeatManager().startHeartbeat(BridgeStateCacheType.LIGHTS_AND_GROUPS, HEARTBEAT_INTERVAL);
+        subscribeToBridgeEvents();
+
+        BridgeSnapshot snapshot = getMainActivity().getWarmStartSnapshot();
+        live = getMainActivity().isBridgeInitialized();
+
+        if (live)
+        {
+            startLive();
+        }
+        else if (snapshot != null)
+        {
+            // Show the lights as they were last seen, so the switch is usable while the bridge connects.
+            bridgeIdentifier = snapshot.getBridgeIdentifier();
+            loadSelectedLights(snapshot);
+        }
 
-        loadSelectedLights();
         bindData();
 
         getView().post(() ->
@@ -273,7 +362,8 @@ public class FLightswitch extends FBase
     {
         super.onDetach();
 
-        getMainActivity().removeBridgeEventCallback(bridgeEventCallback);
+        getMainActivity().getBridgeEventBus().unsubscribe(this);
+        refreshCoordinator.stop();
     }
 
     //endregion
@@ -281,6 +371,91 @@ public class FLightswitch extends FBase
 
     //region Light Manipulation Methods
 
+    /** Loads the selected lights from the bridge's live state, and starts keeping them up to date. */
+    private void startLive()
+    {
+        Bridge bridge = getBridge();
+
+        bridgeIdentifier = bridge.getIdentifier();
+        refreshCoordinator.start();
+
+        loadSelectedLights();
+        sceneCatalog.update(bridge.getBridgeState().getScenes());
+        sceneCatalog.prefetch(aggregateLight.getLightIds());
+    }
+
+    /** Replaces the lights restored from the snapshot with the bridge's live lights once it is initialized, and sends any states that were set
+     * before then. */
+    private void goLive()
+    {
+        if (live)
+            return;
+
+        boolean oldOn = aggregateLight.getOn();
+
+        live = true;
+        startLive();
+
+        bindData();
+        configureUI(oldOn != on);
+
+        // The progress shown for the deferred states is shown again by the updates that send them, if any lights are still selected.
+        responseProgressBar.setVisibility(View.GONE);
+
+        if (pendingState != null && aggregateLight.hasLights())
+            updateLightState(pendingState);
+
+        for (Light light : aggregateLight.getLights())
+        {
+            LightState lightState = pendingLightStates.get(getPendingKey(light));
+
+            if (lightState != null)
+                updateLightState(light, lightState);
+        }
+
+        pendingState = null;
+        pendingLightStates.clear();
+    }
+
+    /** Holds a state set before the bridge was initialized, merging it with any held before, so that it can be sent once the bridge is.
+     * @param light The {@link Light} the state was set on, or <code>null</code> if it was set on all of the selected lights.
+     * @param newState The state.
+     */
+    private void deferLightState(Light light, LightState newState)
+    {
+        if (light == null)
+        {
+            if (pendingState == null)
+                pendingState = new LightState();
+
+            LightCommandQueue.mergeLightState(pendingState, newState);
+
+            // The single light states are sent after the state for all lights, so they must carry its newer values too.
+            for (LightState lightState : pendingLightStates.values())
+                LightCommandQueue.mergeLightState(lightState, newState);
+        }
+        else
+        {
+            LightState lightState = pendingLightStates.get(getPendingKey(light));
+
+            if (lightState == null)
+            {
+                lightState = new LightState();
+                pendingLightStates.put(getPendingKey(light), lightState);
+            }
+
+            LightCommandQueue.mergeLightState(lightState, newState);
+        }
+
+        responseProgressBar.setVisibility(View.VISIBLE);
+    }
+
+    /** Gets the key a light's deferred state is held under, which is the same for the light restored from the snapshot and the live light. */
+    private static String getPendingKey(Light light)
+    {
+        return (light.isGroup() ? "group/" : "light/") + light.getIdentifier();
+    }
+
     /** Turns on the selected lights. */
     public void turnOn()
     {
@@ -303,13 +478,23 @@ public class FLightswitch extends FBase
      * @param brightness The brightness to set, between 0 and 100.
      */
     public void setBrightness(int brightness)
+    {
+        sendBrightness(brightness, true, null);
+    }
+
+    /** Sends a brightness to the selected lights.
+     * @param brightness The brightness to set, between 0 and 100.
+     * @param isFinal Whether this is a final value, or an intermediate one streamed while the brightness slider is dragged.
+     * @param onComplete Run once all lights have responded, or <code>null</code>.
+     */
+    private void sendBrightness(int brightness, boolean isFinal, Runnable onComplete)
     {
         int scaledBrightness = (int)(254f * (float)brightness / 100f);
         aggregateLight.setBrightness(scaledBrightness);
 
         LightState newState = new LightState();
         newState.setBrightness(scaledBrightness);
-        updateLightState(newState);
+        updateLightState(newState, isFinal, onComplete);
     }
 
     /** Sets the color of the selected lights.
@@ -317,13 +502,67 @@ public class FLightswitch extends FBase
      */
     public void setColor(int color)
     {
-        aggregateLight.setColor(color);
+        sendColor(color, true, null);
+    }
 
-        HueColor hueColor = new HueColor(new HueColor.RGB(Color.red(color), Color.green(color), Color.blue(color)), null, null);
+    /** Sends a color to the selected lights.
+     * @param color The color to set.
+     * @param isFinal Whether this is a final value, or an intermediate one streamed while the color is previewed.
+     * @param onComplete Run once all lights have responded, or <code>null</code>.
+     */
+    private void sendColor(int color, boolean isFinal, Runnable onComplete)
+    {
+        aggregateLight.setColor(color);
 
+        // The selected lights may each have a different gamut, so the bridge fits the color to each of them.
         LightState newState = new LightState();
-        newState.setXYWithColor(hueColor);
-        updateLightState(newState);
+        HueColorConverter.setXY(newState, color, HueColorConverter.Gamut.NONE);
+        updateLightState(newState, isFinal, onComplete);
+    }
+
+    /** Creates a color picker that shows each color on the selected lights while it is being picked, and puts the lights' original colors back
+     * if picking is cancelled.
+     * @param currentColor The color to display as selected when the picker first loads.
+     * @return The color picker.
+     */
+    private DFColorPicker newPreviewingColorPicker(int currentColor)
+    {
+        // Each light's own color is kept, rather than the aggregate color, since the lights may not all have had the same color.
+        final Map<String, LightState> originalStates = aggregateLight.captureColorStates();
+        final int originalColor = aggregateLight.getColor();
+
+        return DFColorPicker.newInstance(currentColor, selectedColor -> colorSender.finish(selectedColor), new DFColorPicker.OnColorPreviewCallback()
+        {
+            @Override
+            public void colorPreviewed(int color)
+            {
+                colorSender.offer(color);
+            }
+
+            @Override
+            public void previewCancelled()
+            {
+                colorSender.cancel();
+
+                // A preview may still be in flight, and could be sent to different targets than the original colors, so the original colors are
+                // only sent once it completes.  Otherwise the preview could land after them.
+                colorSender.whenIdle(() ->
+                {
+                    aggregateLight.setColor(originalColor);
+
+                    if (originalStates.isEmpty())
+                        return;
+
+                    responseProgressBar.setVisibility(View.VISIBLE);
+
+                    aggregateLight.restoreColorStates(originalStates, BridgeConnectionType.LOCAL, getBridge().getBridgeState(), getCommandQueue(), results -> getActivity().runOnUiThread(() ->
+                    {
+                        responseProgressBar.setVisibility(View.GONE);
+                        refreshCoordinator.requestRefresh();
+                    }));
+                });
+            }
+        });
     }
 
     /** Updates the state of the currently selected lights.
@@ -331,16 +570,47 @@ public class FLightswitch extends FBase
      */
     private void updateLightState(LightState newState)
     {
-        responseProgressBar.setVisibility(View.VISIBLE);
-        aggregateLight.applyLightState(newState, BridgeConnectionType.LOCAL, results ->
+        updateLightState(newState, true, null);
+    }
+
+    /** Updates the state of the currently selected lights.
+     * @param newState The new light state.
+     * @param isFinal Whether this is a final state.  Intermediate states, such as those streamed while a slider is dragged, do not show progress,
+     *                report errors or force a refresh, since another state is about to follow.
+     * @param onComplete Run once all lights have responded, or <code>null</code>.
+     */
+    private void updateLightState(LightState newState, boolean isFinal, Runnable onComplete)
+    {
+        if (!live)
+        {
+            deferLightState(null, newState);
+
+            if (onComplete != null)
+                onComplete.run();
+
+            return;
+        }
+
+        CommandTracer.Trace trace = getCommandTracer().begin(newState);
+
+        if (isFinal)
+            responseProgressBar.setVisibility(View.VISIBLE);
+
+        aggregateLight.applyLightState(newState, BridgeConnectionType.LOCAL, getBridge().getBridgeState(), getCommandQueue(), trace, results ->
         {
+            if (onComplete != null)
+                onComplete.run();
+
+            if (!isFinal)
+                return;
+
             Log.i(TAG, "AggregateLight finished applying new state.");
             getActivity().runOnUiThread(() ->
             {
                 responseProgressBar.setVisibility(View.GONE);
 
                 // Force the bridge to send a refreshed state as soon as possible to make sure switch is responsive as possible.
-                getBridge().getBridgeState().refresh(BridgeStateCacheType.LIGHTS_AND_GROUPS, BridgeConnectionType.LOCAL);
+                refreshCoordinator.requestRefresh();
 
                 boolean anyErrors = results.stream().anyMatch(lightObjectApplyResults -> lightObjectApplyResults.getReturnCode() != ReturnCode.SUCCESS);
 
@@ -358,19 +628,50 @@ public class FLightswitch extends FBase
      */
     private void updateLightState(Light light, LightState newState)
     {
-        responseProgressBar.setVisibility(View.VISIBLE);
-        light.applyLightState(newState, BridgeConnectionType.LOCAL, new BridgeResponseCallback()
+        updateLightState(light, newState, true, null);
+    }
+
+    /** Updates the state of a single {@link Light}.
+     * @param light The {@link Light} to update.
+     * @param newState The {@link LightState} to update with.
+     * @param isFinal Whether this is a final state.  Intermediate states do not show progress, report errors or force a refresh.
+     * @param onComplete Run once the light has responded, or <code>null</code>.
+     */
+    private void updateLightState(Light light, LightState newState, boolean isFinal, Runnable onComplete)
+    {
+        if (!live)
+        {
+            deferLightState(light, newState);
+
+            if (onComplete != null)
+                onComplete.run();
+
+            return;
+        }
+
+        CommandTracer.Trace trace = getCommandTracer().begin(newState);
+
+        if (isFinal)
+            responseProgressBar.setVisibility(View.VISIBLE);
+
+        getCommandQueue().submit(light, newState, BridgeConnectionType.LOCAL, trace, new BridgeResponseCallback()
         {
             @Override
             public void handleCallback(Bridge bridge, ReturnCode returnCode, List<ClipResponse> responses, List<HueError> errors)
             {
+                if (onComplete != null)
+                    onComplete.run();
+
+                if (!isFinal)
+                    return;
+
                 Log.i(TAG, "Light finished applying new state.");
                 getActivity().runOnUiThread(() ->
                 {
                     responseProgressBar.setVisibility(View.GONE);
 
                     // Force the bridge to send a refreshed state as soon as possible to make sure switch is responsive as possible.
-                    getBridge().getBridgeState().refresh(BridgeStateCacheType.LIGHTS_AND_GROUPS, BridgeConnectionType.LOCAL);
+                    refreshCoordinator.requestRefresh();
 
                     if (returnCode != ReturnCode.SUCCESS)
                     {
@@ -386,8 +687,10 @@ public class FLightswitch extends FBase
      */
     private void recallScene(SceneGroup scene)
     {
+        CommandTracer.Trace trace = getCommandTracer().begin(CommandTracer.CommandType.SCENE);
+
         responseProgressBar.setVisibility(View.VISIBLE);
-        scene.recallScenes(BridgeConnectionType.LOCAL, results ->
+        scene.recallScenes(BridgeConnectionType.LOCAL, getRequestScheduler(), trace, results ->
         {
             StringBuilder codesStr = new StringBuilder().append("\n");
 
@@ -402,7 +705,7 @@ public class FLightswitch extends FBase
                 aggregateLight.setColor(AggregateLight.COLOR_UNDEFINED);
 
                 // Force the bridge to send a refreshed state as soon as possible to make sure switch is responsive as possible.
-                getBridge().getBridgeState().refresh(BridgeStateCacheType.LIGHTS_AND_GROUPS, BridgeConnectionType.LOCAL);
+                refreshCoordinator.requestRefresh();
 
                 boolean anyErrors = results.stream().anyMatch(new Predicate<SceneGroup.SceneGroupRecallResult>()
                 {
@@ -421,6 +724,21 @@ public class FLightswitch extends FBase
         });
     }
 
+    /** Asks the bridge to send its current lights and groups through the request scheduler.  A pull that is still waiting to be sent is replaced.
+     * Pulls should be requested through {@link #refreshCoordinator} rather than sent directly. */
+    private void sendRefresh()
+    {
+        final Bridge bridge = getBridge();
+        final CommandTracer tracer = getCommandTracer();
+
+        if (bridge != null)
+            getRequestScheduler().schedule(BridgeRequestScheduler.Lane.REFRESH, () ->
+            {
+                tracer.refreshSent();
+                bridge.getBridgeState().refresh(BridgeStateCacheType.LIGHTS_AND_GROUPS, BridgeConnectionType.LOCAL);
+            });
+    }
+
     //endregion
 
 
@@ -446,22 +764,79 @@ public class FLightswitch extends FBase
      */
     private void configureUI(boolean animate)
     {
-        lightBackgroundView.setBackground(createLightBackgroundDrawable());
+        configureColors();
+        configureOnOff();
+        configureBrightness();
+        configureLightButton();
+        configureColorSupport();
 
-        onButton.setEnabled(aggregateLight.hasLights());
-        onButton.setActivated(on);
+        lightsBottomsheetAdapter.setLights(aggregateLight.getLights(), aggregateLight.getSnapshots());
+
+        animateControls(animate);
+    }
+
+    /** Configures only the parts of the UI affected by an update from the bridge.  Controls only animate when the on state changed.
+     * @param delta The {@link LightStateDelta} describing what changed.
+     */
+    private void configureUI(LightStateDelta delta)
+    {
+        if (delta.getColorsChanged() || delta.getOnChanged())
+            configureColors();
+
+        if (delta.getOnChanged())
+            configureOnOff();
+
+        if (delta.getBrightnessChanged())
+            configureBrightness();
+
+        if (delta.getNameChanged() || delta.getLightsRemoved())
+            configureLightButton();
+
+        if (delta.getSupportsColorsChanged())
+            configureColorSupport();
+
+        if (delta.getLightsRemoved() || !delta.getChangedLights().isEmpty())
+            lightsBottomsheetAdapter.setLights(aggregateLight.getLights(), aggregateLight.getSnapshots());
+
+        if (delta.getOnChanged())
+            animateControls(true);
+    }
+
+    /** Configures the background and the on button's text, which follow the colors of the lights. */
+    private void configureColors()
+    {
+        lightBackgroundView.setBackground(createLightBackgroundDrawable());
 
         Color averageColor = ColorUtilities.averageColors(colors.stream().map(c -> Color.valueOf(c)).collect(Collectors.toList()));
         int onColor = ColorUtilities.getContrastColor(averageColor) > 0 ? R.color.colorTextOnLight : R.color.colorTextOnDark;
         onButton.setTextColor(getResources().getColor(on ? onColor : R.color.colorTextOff, null));
+    }
+
+    /** Configures the controls that depend on whether the lights are on. */
+    private void configureOnOff()
+    {
+        onButton.setEnabled(aggregateLight.hasLights());
+        onButton.setActivated(on);
 
         offButton.setEnabled(aggregateLight.hasLights());
         offButton.setTextColor(getResources().getColor(on ? R.color.colorTextOff : R.color.colorTextOnLight, null));
 
+        // Colors are previewed and scenes recalled on the live lights, so they wait for the bridge to be initialized.
         brightnessSeekBar.setEnabled(on);
-        brightnessSeekBar.setProgress(brightness);
+        colorFab.setEnabled(on && live);
+        sceneFab.setEnabled(on && live);
+    }
+
+    /** Configures the brightness slider's position. */
+    private void configureBrightness()
+    {
+        if (!trackingBrightness)
+            brightnessSeekBar.setProgress(brightness);
+    }
 
-        // Configure the light selection button.  It should display the name of the current light.
+    /** Configures the light selection button.  It should display the name of the current light. */
+    private void configureLightButton()
+    {
         String name = aggregateLight.getName();
 
         switch (name)
@@ -479,13 +854,24 @@ public class FLightswitch extends FBase
                 break;
         }
 
-        colorFab.setEnabled(on);
-        colorFab.setVisibility(aggregateLight.getSupportsColors() ? View.VISIBLE : View.GONE);
+        onButton.setEnabled(aggregateLight.hasLights());
+        offButton.setEnabled(aggregateLight.hasLights());
 
-        sceneFab.setEnabled(on);
+        // The light picker lists the bridge's live lights, so it waits for the bridge to be initialized.
+        lightButton.setEnabled(live);
+    }
 
-        lightsBottomsheetAdapter.setLights(aggregateLight.getLights());
+    /** Configures the controls that are only shown for lights that support colors. */
+    private void configureColorSupport()
+    {
+        colorFab.setVisibility(aggregateLight.getSupportsColors() ? View.VISIBLE : View.GONE);
+    }
 
+    /** Moves the controls that are hidden while the lights are off to their proper locations.
+     * @param animate Indicates that UI animations should play.
+     */
+    private void animateControls(boolean animate)
+    {
         if (animate)
         {
             animateColorFab(getResources().getInteger(android.R.integer.config_shortAnimTime));
@@ -608,21 +994,21 @@ public class FLightswitch extends FBase
     /** Saves the currently selected lights to the app's preferences storage. */
     private void saveSelectedLights()
     {
+        // Before the bridge is initialized, its identifier is only known from the snapshot, and there may be no snapshot to have selected from.
+        if (bridgeIdentifier == null)
+            return;
+
         SharedPreferences preferences = getActivity().getPreferences(Context.MODE_PRIVATE);
         SharedPreferences.Editor editor = preferences.edit();
 
         Set<String> lightIds = new ArraySet<>();
         Set<String> groupIds = new ArraySet<>();
 
-        for (LightPoint lightPoint : aggregateLight.getLightPoints())
-            lightIds.add(lightPoint.getIdentifier());
-
-        for (Group group : aggregateLight.getGroups())
-            groupIds.add(group.getIdentifier());
+        lightIds.addAll(aggregateLight.getIdentifiers(false));
+        groupIds.addAll(aggregateLight.getIdentifiers(true));
 
-        Bridge bridge = getBridge();
-        editor.putStringSet(bridge.getIdentifier() + SK_SELECTED_LIGHTPOINTS, lightIds);
-        editor.putStringSet(bridge.getIdentifier() + SK_SELECTED_GROUPS, groupIds);
+        editor.putStringSet(bridgeIdentifier + SK_SELECTED_LIGHTPOINTS, lightIds);
+        editor.putStringSet(bridgeIdentifier + SK_SELECTED_GROUPS, groupIds);
         editor.apply();
     }
 
@@ -633,8 +1019,8 @@ public class FLightswitch extends FBase
         Bridge bridge = getBridge();
         BridgeState bridgeState = bridge.getBridgeState();
 
-        Set<String> lightIds = preferences.getStringSet(bridge.getIdentifier() + SK_SELECTED_LIGHTPOINTS, new ArraySet<String>());
-        Set<String> groupIds = preferences.getStringSet(bridge.getIdentifier() + SK_SELECTED_GROUPS, new ArraySet<String>());
+        Set<String> lightIds = preferences.getStringSet(bridgeIdentifier + SK_SELECTED_LIGHTPOINTS, new ArraySet<String>());
+        Set<String> groupIds = preferences.getStringSet(bridgeIdentifier + SK_SELECTED_GROUPS, new ArraySet<String>());
 
         aggregateLight = new AggregateLight();
 
@@ -655,70 +1041,144 @@ public class FLightswitch extends FBase
         }
     }
 
-    //endregion
+    /** Loads a set of lights from the app's preferences and sets them as the currently selected lights, as they were when a snapshot was taken.
+     * @param snapshot The {@link BridgeSnapshot} to restore the lights from.
+     */
+    private void loadSelectedLights(BridgeSnapshot snapshot)
+    {
+        SharedPreferences preferences = getActivity().getPreferences(Context.MODE_PRIVATE);
 
+        Set<String> lightIds = preferences.getStringSet(bridgeIdentifier + SK_SELECTED_LIGHTPOINTS, new ArraySet<String>());
+        Set<String> groupIds = preferences.getStringSet(bridgeIdentifier + SK_SELECTED_GROUPS, new ArraySet<String>());
 
-    //region BridgeEventCallback
+        aggregateLight = new AggregateLight();
 
-    private BridgeEventCallback bridgeEventCallback = new BridgeEventCallback()
-    {
-        @Override
-        public void bridgeDisconnecting(Bridge bridge)
+        for (String lightId : lightIds)
         {
-            getBridge().getBridgeConnection(BridgeConnectionType.LOCAL).getHeartbeatManager().stopHeartbeat(BridgeStateCacheType.LIGHTS_AND_GROUPS);
-            saveSelectedLights();
+            CachedLight light = snapshot.getLight(lightId);
+
+            if (light != null)
+                aggregateLight.addLight(light);
         }
 
-        @Override
-        public void bridgeDisconnected(Bridge bridge, boolean manualDisconnect, List<HueError> errors)
+        for (String groupId : groupIds)
         {
-            if (!manualDisconnect)
-            {
-                Snackbar.make(((AMain)getActivity()).getLayoutForSnackbar(), R.string.unexpected_disconnect_snack, Snackbar.LENGTH_LONG).show();
-            }
+            CachedLight group = snapshot.getGroup(groupId);
+
+            if (group != null)
+                aggregateLight.addLight(group);
         }
+    }
 
-        @Override
-        public void updatedLightsAndGroups(Bridge bridge)
-        {
-            getActivity().runOnUiThread(new Runnable()
-            {
-                @Override
-                public void run()
-                {
-                    Bridge bridge = getBridge();
+    //endregion
 
-                    aggregateLight.updateLightState(bridge.getBridgeState());
 
-                    bindData();
-                    configureUI(true);
-                }
-            });
+    //region Bridge Events
+
+    /** Subscribes to the bridge events the lightswitch responds to.  Every listener updates the UI, so all are delivered on the main thread. */
+    private void subscribeToBridgeEvents()
+    {
+        BridgeEventBus bus = getMainActivity().getBridgeEventBus();
+
+        bus.subscribe(this, BridgeEvent.INITIALIZED, BridgeEventBus.ThreadMode.MAIN, event -> goLive());
+        bus.subscribe(this, BridgeEvent.DISCONNECTING, BridgeEventBus.ThreadMode.MAIN, event -> bridgeDisconnecting());
+        bus.subscribe(this, BridgeEvent.DISCONNECTED, BridgeEventBus.ThreadMode.MAIN, this::bridgeDisconnected);
+        bus.subscribe(this, BridgeEvent.SCENES, BridgeEventBus.ThreadMode.MAIN, event -> updatedScenes(event.getBridge()));
+        bus.subscribe(this, BridgeEvent.LIGHTS_AND_GROUPS, BridgeEventBus.ThreadMode.MAIN, event -> updatedLightsAndGroups(event.getBridge()));
+    }
+
+    private void bridgeDisconnecting()
+    {
+        refreshCoordinator.stop();
+        saveSelectedLights();
+    }
+
+    private void bridgeDisconnected(BridgeEvent.Disconnected event)
+    {
+        if (!event.isManualDisconnect())
+        {
+            Snackbar.make(((AMain)getActivity()).getLayoutForSnackbar(), R.string.unexpected_disconnect_snack, Snackbar.LENGTH_LONG).show();
         }
-    };
+    }
+
+    private void updatedScenes(Bridge bridge)
+    {
+        sceneCatalog.update(bridge.getBridgeState().getScenes());
+
+        // Have the scenes for the current selection ready before the scene picker is next opened.
+        sceneCatalog.prefetch(aggregateLight.getLightIds());
+    }
+
+    private void updatedLightsAndGroups(Bridge bridge)
+    {
+        // Until the bridge is initialized its state may be incomplete, and the lights are kept as they were in the snapshot.
+        if (!live)
+            return;
+
+        refreshCoordinator.onRefreshCompleted();
+        getCommandTracer().stateRefreshed();
+
+        LightStateDelta delta = aggregateLight.updateLightState(bridge.getBridgeState());
+
+        // Most updates change nothing, in which case there is nothing to redraw.
+        if (delta.isEmpty())
+            return;
+
+        bindData();
+        configureUI(delta);
+    }
 
     //endregion
 
 
     //region Lights Bottomsheet RecyclerView.Adapter
 
-    /** {@link RecyclerView.Adapter} that can display a {@link Light}. */
+    /** {@link RecyclerView.Adapter} that can display a {@link Light}.  List changes are diffed against the displayed list on a background thread,
+     * and only the rows and row parts that changed are rebound. */
     class LightsRVAdapter extends RecyclerView.Adapter<LightsRVAdapter.ViewHolder>
     {
+        //region Static Fields
+
+        /** A change payload indicating that a light's name changed. */
+        static final int PAYLOAD_NAME = 1;
+
+        /** A change payload indicating that a light's on state changed. */
+        static final int PAYLOAD_ON = 1 << 1;
+
+        /** A change payload indicating that a light's brightness changed. */
+        static final int PAYLOAD_BRIGHTNESS = 1 << 2;
+
+        /** A change payload indicating that a light's color changed. */
+        static final int PAYLOAD_COLOR = 1 << 3;
+
+        /** A change payload indicating that a light's support for colors changed. */
+        static final int PAYLOAD_SUPPORTS_COLORS = 1 << 4;
+
+        /** All change payloads, for binding a row from scratch. */
+        static final int PAYLOAD_ALL = PAYLOAD_NAME | PAYLOAD_ON | PAYLOAD_BRIGHTNESS | PAYLOAD_COLOR | PAYLOAD_SUPPORTS_COLORS;
+
+        //endregion
+
+
         //region Fields
 
         /** The list of {@link Light}s that this adapter manages. */
-        List<Light> lights;
+        List<Light> lights = new ArrayList<>();
+
+        /** The snapshot of each light in {@link #lights} that its row displays, at the same index. */
+        List<LightSnapshot> snapshots = new ArrayList<>();
+
+        /** Incremented every time the list is set, so that diffs of lists that have since been replaced are discarded. */
+        int generation;
 
         //endregion
 
 
         //region Constructors
 
-        /** Creates a new adapter for the specified list of lights. */
-        public LightsRVAdapter(List<Light> lights)
+        /** Creates a new adapter with no lights. */
+        public LightsRVAdapter()
         {
-            this.lights = lights;
         }
 
         //endregion
@@ -736,7 +1196,24 @@ public class FLightswitch extends FBase
         @Override
         public void onBindViewHolder(LightsRVAdapter.ViewHolder holder, int position)
         {
-            holder.bind(lights.get(position));
+            holder.bind(lights.get(position), snapshots.get(position), PAYLOAD_ALL);
+        }
+
+        @Override
+        public void onBindViewHolder(LightsRVAdapter.ViewHolder holder, int position, List<Object> payloads)
+        {
+            if (payloads.isEmpty())
+            {
+                onBindViewHolder(holder, position);
+                return;
+            }
+
+            int changes = 0;
+
+            for (Object payload : payloads)
+                changes |= (Integer)payload;
+
+            holder.bind(lights.get(position), snapshots.get(position), changes);
         }
 
         @Override
@@ -750,13 +1227,112 @@ public class FLightswitch extends FBase
 
         //region List Setter Methods
 
-        /** Sets the list of {@link Light}s contained by this adapter.
+        /** Sets the list of {@link Light}s contained by this adapter.  The new list is diffed against the displayed one on a background thread, and
+         * the changes are applied once the diff is complete.
          * @param lights The list of {@link Light}s.
+         * @param snapshots The current {@link LightSnapshot} of each light, in the same order.
          */
-        public void setLights(List<Light> lights)
+        public void setLights(List<Light> lights, List<LightSnapshot> snapshots)
         {
-            this.lights = lights;
-            notifyDataSetChanged();
+            final List<Light> oldLights = this.lights;
+            final List<LightSnapshot> oldSnapshots = this.snapshots;
+            final List<Light> newLights = new ArrayList<>(lights);
+            final List<LightSnapshot> newSnapshots = new ArrayList<>(snapshots);
+            final int currentGeneration = ++generation;
+
+            AsyncTask.THREAD_POOL_EXECUTOR.execute(() ->
+            {
+                final DiffUtil.DiffResult result = DiffUtil.calculateDiff(new LightsDiffCallback(oldLights, oldSnapshots, newLights, newSnapshots));
+
+                uiHandler.post(() ->
+                {
+                    if (currentGeneration != generation)
+                        return;
+
+                    this.lights = newLights;
+                    this.snapshots = newSnapshots;
+                    result.dispatchUpdatesTo(this);
+                });
+            });
+        }
+
+        //endregion
+
+
+        //region DiffUtil.Callback
+
+        /** Compares two lists of lights by their snapshots.  Rows are the same item when they show the same light point or group, and the change
+         * payload is a mask of the parts of the row that differ. */
+        class LightsDiffCallback extends DiffUtil.Callback
+        {
+            final List<Light> oldLights;
+            final List<LightSnapshot> oldSnapshots;
+            final List<Light> newLights;
+            final List<LightSnapshot> newSnapshots;
+
+            LightsDiffCallback(List<Light> oldLights, List<LightSnapshot> oldSnapshots, List<Light> newLights, List<LightSnapshot> newSnapshots)
+            {
+                this.oldLights = oldLights;
+                this.oldSnapshots = oldSnapshots;
+                this.newLights = newLights;
+                this.newSnapshots = newSnapshots;
+            }
+
+            @Override
+            public int getOldListSize()
+            {
+                return oldLights.size();
+            }
+
+            @Override
+            public int getNewListSize()
+            {
+                return newLights.size();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldItemPosition, int newItemPosition)
+            {
+                // Light points and groups have separate identifier spaces on the bridge, so the type must match too.  A light restored from the
+                // snapshot is the same item as the live light that replaces it.
+                return oldLights.get(oldItemPosition).isGroup() == newLights.get(newItemPosition).isGroup()
+                        && oldSnapshots.get(oldItemPosition).getIdentifier().equals(newSnapshots.get(newItemPosition).getIdentifier());
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldItemPosition, int newItemPosition)
+            {
+                // A row whose light has been replaced, such as a light restored from the snapshot once the bridge is live, must be rebound even if
+                // nothing it displays changed, since the row sends its commands to the light it was bound to.  The change payload is then empty,
+                // so only the row's light is swapped.
+                return oldLights.get(oldItemPosition) == newLights.get(newItemPosition)
+                        && oldSnapshots.get(oldItemPosition).equals(newSnapshots.get(newItemPosition));
+            }
+
+            @Override
+            public Object getChangePayload(int oldItemPosition, int newItemPosition)
+            {
+                LightSnapshot oldSnapshot = oldSnapshots.get(oldItemPosition);
+                LightSnapshot newSnapshot = newSnapshots.get(newItemPosition);
+                int changes = 0;
+
+                if (!Objects.equals(oldSnapshot.getName(), newSnapshot.getName()))
+                    changes |= PAYLOAD_NAME;
+
+                if (oldSnapshot.getOn() != newSnapshot.getOn())
+                    changes |= PAYLOAD_ON;
+
+                if (oldSnapshot.getBrightness() != newSnapshot.getBrightness())
+                    changes |= PAYLOAD_BRIGHTNESS;
+
+                if (oldSnapshot.getColor() != newSnapshot.getColor())
+                    changes |= PAYLOAD_COLOR;
+
+                if (oldSnapshot.getSupportsColors() != newSnapshot.getSupportsColors())
+                    changes |= PAYLOAD_SUPPORTS_COLORS;
+
+                return changes;
+            }
         }
 
         //endregion
@@ -769,6 +1345,22 @@ public class FLightswitch extends FBase
             Light light;
             boolean isBinding = false;
 
+            /** Indicates that the user is dragging the brightness slider, so rebinding should not move it. */
+            boolean trackingBrightness = false;
+
+            /** The light the brightness slider's values are sent to, captured when a drag starts.  Values can still be waiting to be sent after the
+             * row has been rebound to a different light, and must go to the light they were dragged for. */
+            Light brightnessTarget;
+
+            /** Streams brightness values to the light while the brightness slider is dragged. */
+            LatestValueSender brightnessSender = new LatestValueSender(uiHandler, (value, isFinal, onComplete) ->
+            {
+                int scaledBrightness = (int) (254f * (float) value / 100f);
+                LightState newState = new LightState();
+                newState.setBrightness(scaledBrightness);
+                updateLightState(brightnessTarget, newState, isFinal, onComplete);
+            });
+
             TextView lightNameTextView;
             Switch lightSwitch;
             SeekBar lightBrightnessSeekBar;
@@ -798,25 +1390,30 @@ public class FLightswitch extends FBase
                     @Override
                     public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser)
                     {
+                        if (fromUser && !isBinding)
+                        {
+                            // A change that is not part of a drag, such as from a key press, targets the light currently shown.
+                            if (!trackingBrightness)
+                                brightnessTarget = light;
 
+                            brightnessSender.offer(progress);
+                        }
                     }
 
                     @Override
                     public void onStartTrackingTouch(SeekBar seekBar)
                     {
-
+                        trackingBrightness = true;
+                        brightnessTarget = light;
                     }
 
                     @Override
                     public void onStopTrackingTouch(SeekBar seekBar)
                     {
+                        trackingBrightness = false;
+
                         if (!isBinding)
-                        {
-                            int scaledBrightness = (int) (254f * (float) seekBar.getProgress() / 100f);
-                            LightState newState = new LightState();
-                            newState.setBrightness(scaledBrightness);
-                            updateLightState(light, newState);
-                        }
+                            brightnessSender.finish(seekBar.getProgress());
                     }
                 });
 
@@ -825,10 +1422,11 @@ public class FLightswitch extends FBase
                 {
                     DFColorPicker colorPicker = DFColorPicker.newInstance(light.getColor(), selectedColor ->
                     {
-                        HueColor hueColor = new HueColor(new HueColor.RGB(Color.red(selectedColor), Color.green(selectedColor), Color.blue(selectedColor)), null, null);
+                        // A single light's color can be fitted to its gamut here, but a group's lights may each have a different gamut, so the bridge fits it instead.
+                        HueColorConverter.Gamut gamut = light instanceof SingleLight ? HueColorConverter.getGamut(((SingleLight)light).getLightPoint()) : HueColorConverter.Gamut.NONE;
 
                         LightState newState = new LightState();
-                        newState.setXYWithColor(hueColor);
+                        HueColorConverter.setXY(newState, selectedColor, gamut);
                         updateLightState(light, newState);
                     });
 
@@ -840,28 +1438,40 @@ public class FLightswitch extends FBase
 
             /** Binds the view holder to a {@link Light} list light.
              * @param light The {@link Light} light to bind to.
+             * @param snapshot The {@link LightSnapshot} of the light's values to display.
+             * @param changes A mask of the <code>PAYLOAD_</code> parts of the row to rebind.
              */
-            public void bind(Light light)
+            public void bind(Light light, LightSnapshot snapshot, int changes)
             {
                 isBinding = true;
                 this.light = light;
 
-                lightNameTextView.setText(light.getName());
+                if ((changes & PAYLOAD_NAME) != 0)
+                    lightNameTextView.setText(snapshot.getName());
 
-                lightSwitch.setChecked(light.getOn());
+                if ((changes & PAYLOAD_ON) != 0)
+                {
+                    lightSwitch.setChecked(snapshot.getOn());
+                    lightBrightnessSeekBar.setEnabled(snapshot.getOn());
+                    lightColorFab.setEnabled(snapshot.getOn());
+                }
 
-                int brightness = light.getBrightness();
+                if ((changes & PAYLOAD_BRIGHTNESS) != 0)
+                {
+                    int brightness = snapshot.getBrightness();
 
-                if (brightness == Light.BRIGHTNESS_MULTIPLE)
-                    brightness = 100;
+                    if (brightness == Light.BRIGHTNESS_MULTIPLE)
+                        brightness = 100;
 
-                lightBrightnessSeekBar.setProgress((int)(100 * (float)brightness / 254f));
-                lightBrightnessSeekBar.setEnabled(light.getOn());
+                    if (!trackingBrightness)
+                        lightBrightnessSeekBar.setProgress((int)(100 * (float)brightness / 254f));
+                }
 
-                lightColorView.setBackgroundColor(light.getColor());
+                if ((changes & PAYLOAD_COLOR) != 0)
+                    lightColorView.setBackgroundColor(snapshot.getColor());
 
-                lightColorFab.setVisibility(light.getSupportsColors() ? View.VISIBLE : View.INVISIBLE);
-                lightColorFab.setEnabled(light.getOn());
+                if ((changes & PAYLOAD_SUPPORTS_COLORS) != 0)
+                    lightColorFab.setVisibility(snapshot.getSupportsColors() ? View.VISIBLE : View.INVISIBLE);
 
                 isBinding = false;
             }
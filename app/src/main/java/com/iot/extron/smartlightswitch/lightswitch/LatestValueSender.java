@@ -0,0 +1,233 @@
+/*
+ * This file is part of Hue SmartSwitch
+ *
+ * Hue SmartSwitch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package com.iot.extron.smartlightswitch.lightswitch;
+
+import android.os.Handler;
+import android.os.SystemClock;
+
+/** Streams a rapidly changing value, such as a slider position, to the bridge.  Only one value is sent at a time, and values that are superseded
+ * while waiting are dropped, so the send rate adapts to how quickly the bridge responds.  Sends are additionally spaced at least as far apart as
+ * the recent average response time, bounded by {@link #MIN_SEND_INTERVAL} and {@link #MAX_SEND_INTERVAL}.  The final value of a stream is never
+ * dropped.  A send that has not completed after {@link #SEND_TIMEOUT} is given up on, so a sink that never completes cannot stall the stream.
+ * <p>
+ * All methods must be called on the thread of the {@link Handler} the sender was created with.
+ */
+public class LatestValueSender
+{
+    //region Static Fields
+
+    /** The shortest time between sends, in milliseconds.  The Hue bridge handles roughly ten light commands per second. */
+    static final int MIN_SEND_INTERVAL = 100;
+
+    /** The longest time between sends, in milliseconds, regardless of how slowly the bridge responds. */
+    static final int MAX_SEND_INTERVAL = 1000;
+
+    /** How long to wait for a sent value to complete, in milliseconds, before sending the next one anyway. */
+    static final int SEND_TIMEOUT = 5000;
+
+    //endregion
+
+
+    //region Fields
+
+    /** The handler that delayed sends and completions are run on. */
+    private final Handler handler;
+
+    /** The sink that values are sent to. */
+    private final ValueSink sink;
+
+    /** Whether a value has been sent and has not yet completed. */
+    private boolean inFlight;
+
+    /** Whether there is a value waiting to be sent. */
+    private boolean hasPending;
+
+    /** The value waiting to be sent. */
+    private int pendingValue;
+
+    /** Whether the waiting value is the final value of the stream. */
+    private boolean pendingIsFinal;
+
+    /** Whether a delayed send has been posted to the handler. */
+    private boolean sendScheduled;
+
+    /** The uptime at which the last value was sent. */
+    private long lastSendTime;
+
+    /** A moving average of how long the bridge takes to respond, in milliseconds. */
+    private long averageLatency;
+
+    /** Run once nothing is waiting or in flight, or <code>null</code>. */
+    private Runnable onIdle;
+
+    /** The number of values sent so far, so that the completion of a send that has already timed out is ignored. */
+    private int sendCount;
+
+    /** Gives up waiting for a send that never completed. */
+    private final Runnable timeout = () -> onSendCompleted(sendCount);
+
+    //endregion
+
+
+    //region Constructors
+
+    /** Creates a new sender.
+     * @param handler The handler that delayed sends and completions are run on.
+     * @param sink The sink that values are sent to.
+     */
+    public LatestValueSender(Handler handler, ValueSink sink)
+    {
+        this.handler = handler;
+        this.sink = sink;
+    }
+
+    //endregion
+
+
+    //region Sending
+
+    /** Offers an intermediate value.  It is sent as soon as the rate allows, unless a newer value replaces it first.
+     * @param value The value.
+     */
+    public void offer(int value)
+    {
+        // An intermediate value must not overwrite a final one that has not been sent yet.
+        if (hasPending && pendingIsFinal)
+            return;
+
+        pendingValue = value;
+        hasPending = true;
+        trySend();
+    }
+
+    /** Offers the final value of a stream.  It is always sent, after any value already in flight completes.
+     * @param value The value.
+     */
+    public void finish(int value)
+    {
+        pendingValue = value;
+        pendingIsFinal = true;
+        hasPending = true;
+        trySend();
+    }
+
+    /** Drops any value that is waiting to be sent.  A value already in flight is unaffected. */
+    public void cancel()
+    {
+        hasPending = false;
+        pendingIsFinal = false;
+    }
+
+    /** Runs an action once nothing is waiting to be sent or in flight, for example to send a different state that must not be overtaken by a
+     * streamed value.  Replaces any action passed earlier that has not run yet.
+     * @param action The action to run.
+     */
+    public void whenIdle(Runnable action)
+    {
+        onIdle = action;
+        runIfIdle();
+    }
+
+    /** Runs the idle action if there is one and nothing is waiting or in flight. */
+    private void runIfIdle()
+    {
+        if (onIdle == null || inFlight || hasPending)
+            return;
+
+        Runnable action = onIdle;
+        onIdle = null;
+        action.run();
+    }
+
+    /** Sends the waiting value if nothing is in flight and enough time has passed since the last send, otherwise arranges to try again later. */
+    private void trySend()
+    {
+        if (inFlight || sendScheduled)
+            return;
+
+        if (!hasPending)
+        {
+            runIfIdle();
+            return;
+        }
+
+        long interval = Math.max(MIN_SEND_INTERVAL, Math.min(MAX_SEND_INTERVAL, averageLatency));
+        long wait = lastSendTime + interval - SystemClock.uptimeMillis();
+
+        if (wait > 0)
+        {
+            sendScheduled = true;
+            handler.postDelayed(() ->
+            {
+                sendScheduled = false;
+                trySend();
+            }, wait);
+            return;
+        }
+
+        final int value = pendingValue;
+        final boolean isFinal = pendingIsFinal;
+        final long sendTime = SystemClock.uptimeMillis();
+
+        final int send = ++sendCount;
+
+        hasPending = false;
+        pendingIsFinal = false;
+        inFlight = true;
+        lastSendTime = sendTime;
+
+        handler.postDelayed(timeout, SEND_TIMEOUT);
+        sink.send(value, isFinal, () -> handler.post(() -> onSendCompleted(send)));
+    }
+
+    /** Records that a send completed or timed out, and sends the waiting value if there is one.
+     * @param send The {@link #sendCount} of the send.  Ignored unless it is the send in flight.
+     */
+    private void onSendCompleted(int send)
+    {
+        if (!inFlight || send != sendCount)
+            return;
+
+        handler.removeCallbacks(timeout);
+
+        long latency = SystemClock.uptimeMillis() - lastSendTime;
+        averageLatency = averageLatency == 0 ? latency : (3 * averageLatency + latency) / 4;
+
+        inFlight = false;
+        trySend();
+    }
+
+    //endregion
+
+
+    //region Callback Interfaces
+
+    /** Receives the values a {@link LatestValueSender} decides to send. */
+    public interface ValueSink
+    {
+        /** Sends a value to the bridge.
+         * @param value The value to send.
+         * @param isFinal Whether this is the final value of the stream.
+         * @param onComplete Must be run, on any thread, once the bridge has responded.  If it is not run within {@link #SEND_TIMEOUT}, the next
+         *                   value is sent anyway.
+         */
+        public void send(int value, boolean isFinal, Runnable onComplete);
+    }
+
+    //endregion
+}
@@ -0,0 +1,190 @@
+/*
+ * This file is part of Hue SmartSwitch
+ *
+ * Hue SmartSwitch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package com.iot.extron.smartlightswitch.lightswitch;
+
+import android.os.Handler;
+import android.os.SystemClock;
+
+/** Decides when to pull the lights and groups from the bridge.  Pulls happen on a regular heartbeat, and can also be requested after a command
+ * completes.  Requests made within {@link #COALESCE_WINDOW} of each other are merged into one pull, only one pull is ever in flight, and a
+ * requested pull is skipped entirely when the next heartbeat is less than {@link #HEARTBEAT_GRACE} away.
+ * <p>
+ * All methods must be called on the thread of the {@link Handler} the coordinator was created with.
+ */
+public class RefreshCoordinator
+{
+    //region Static Fields
+
+    /** How long to wait for further refresh requests before pulling, in milliseconds. */
+    static final int COALESCE_WINDOW = 250;
+
+    /** How close the next heartbeat must be, in milliseconds, for a requested pull to be left to it. */
+    static final int HEARTBEAT_GRACE = 1000;
+
+    /** How long to wait for a pull to complete, in milliseconds, before allowing another one to be sent. */
+    static final int REFRESH_TIMEOUT = 5000;
+
+    //endregion
+
+
+    //region Fields
+
+    /** The handler that delayed work is run on. */
+    private final Handler handler;
+
+    /** The time between heartbeats, in milliseconds. */
+    private final int heartbeatInterval;
+
+    /** Sends a pull to the bridge. */
+    private final Runnable refresher;
+
+    /** Whether the heartbeat is running. */
+    private boolean running;
+
+    /** Whether a pull has been requested and not yet sent or skipped. */
+    private boolean requested;
+
+    /** Whether a pull has been sent and its result has not arrived yet. */
+    private boolean inFlight;
+
+    /** Whether {@link #flush} has been posted to the handler. */
+    private boolean flushScheduled;
+
+    /** The uptime at which the next heartbeat is due. */
+    private long nextHeartbeatTime;
+
+    /** Sends a heartbeat pull and schedules the next one. */
+    private final Runnable heartbeat = new Runnable()
+    {
+        @Override
+        public void run()
+        {
+            nextHeartbeatTime = SystemClock.uptimeMillis() + heartbeatInterval;
+            handler.postDelayed(this, heartbeatInterval);
+
+            // A pull already in flight will deliver the state the heartbeat would have.
+            if (!inFlight)
+            {
+                requested = false;
+                send();
+            }
+        }
+    };
+
+    /** Sends the requested pull once the coalescing window has passed. */
+    private final Runnable flush = () -> flush();
+
+    /** Gives up waiting for a pull that never completed. */
+    private final Runnable timeout = () -> onRefreshCompleted();
+
+    //endregion
+
+
+    //region Constructors
+
+    /** Creates a new refresh coordinator.  The heartbeat is not started until {@link #start()} is called.
+     * @param handler The handler that delayed work is run on.
+     * @param heartbeatInterval The time between heartbeats, in milliseconds.
+     * @param refresher Sends a pull of the lights and groups to the bridge.  Completion is reported through {@link #onRefreshCompleted()}.
+     */
+    public RefreshCoordinator(Handler handler, int heartbeatInterval, Runnable refresher)
+    {
+        this.handler = handler;
+        this.heartbeatInterval = heartbeatInterval;
+        this.refresher = refresher;
+    }
+
+    //endregion
+
+
+    //region Refresh Methods
+
+    /** Starts the heartbeat, pulling immediately. */
+    public void start()
+    {
+        stop();
+
+        running = true;
+        handler.post(heartbeat);
+    }
+
+    /** Stops the heartbeat and drops any requested pull. */
+    public void stop()
+    {
+        running = false;
+        requested = false;
+        inFlight = false;
+        flushScheduled = false;
+
+        handler.removeCallbacks(heartbeat);
+        handler.removeCallbacks(flush);
+        handler.removeCallbacks(timeout);
+    }
+
+    /** Requests a pull of the lights and groups, for example after a command has changed them. */
+    public void requestRefresh()
+    {
+        if (requested)
+            return;
+
+        requested = true;
+        flushScheduled = true;
+        handler.postDelayed(flush, COALESCE_WINDOW);
+    }
+
+    /** Reports that the lights and groups have been updated from the bridge, whether by a pull from this coordinator or otherwise. */
+    public void onRefreshCompleted()
+    {
+        if (!inFlight)
+            return;
+
+        inFlight = false;
+        handler.removeCallbacks(timeout);
+
+        // A request that arrived while the pull was in flight may have been made after the bridge answered it, so it still needs its own pull.
+        if (requested && !flushScheduled)
+            flush();
+    }
+
+    /** Sends the requested pull, unless one is already in flight or the heartbeat is about to pull anyway. */
+    private void flush()
+    {
+        handler.removeCallbacks(flush);
+        flushScheduled = false;
+
+        if (!requested || inFlight)
+            return;
+
+        requested = false;
+
+        if (running && nextHeartbeatTime - SystemClock.uptimeMillis() <= HEARTBEAT_GRACE)
+            return;
+
+        send();
+    }
+
+    /** Sends a pull to the bridge and waits for it to complete. */
+    private void send()
+    {
+        inFlight = true;
+        handler.postDelayed(timeout, REFRESH_TIMEOUT);
+        refresher.run();
+    }
+
+    //endregion
+}
@@ -0,0 +1,125 @@
+/*
+ * This file is part of Hue SmartSwitch
+ *
+ * Hue SmartSwitch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package com.iot.extron.smartlightswitch.models;
+
+/** Running totals over the {@link LightSnapshot}s of an {@link AggregateLight}.  Snapshots are added and removed one at a time, so recounting the
+ * aggregate costs a constant amount of work per changed light instead of a recount of every light.  Finding which lights changed still means
+ * capturing a snapshot of each, see {@link AggregateLight#updateLightState}. */
+class AggregateCounters
+{
+    //region Fields
+
+    /** The number of lights that are on. */
+    int onCount;
+
+    /** The number of lights that support colors. */
+    int colorCapableCount;
+
+    /** The number of lights with each brightness. */
+    final IntHistogram brightnessHistogram = new IntHistogram();
+
+    /** The number of lights with each single color, where lights with multiple colors count towards {@link Light#COLOR_MULTIPLE}. */
+    final IntHistogram colorHistogram = new IntHistogram();
+
+    /** The number of lights that contain each color, counting every unique color of every light. */
+    final IntHistogram colorMultiset = new IntHistogram();
+
+    /** Incremented whenever the set of distinct colors in {@link #colorMultiset} changes, so that derived data can tell when it is stale. */
+    int colorsVersion;
+
+    //endregion
+
+
+    //region Snapshot Methods
+
+    /** Adds a light's values to the totals.
+     * @param snapshot The snapshot of the light to add.
+     */
+    void add(LightSnapshot snapshot)
+    {
+        if (snapshot.on)
+            onCount++;
+
+        if (snapshot.supportsColors)
+            colorCapableCount++;
+
+        brightnessHistogram.add(snapshot.brightness);
+        colorHistogram.add(snapshot.color);
+
+        for (int color : snapshot.colors)
+        {
+            if (colorMultiset.add(color))
+                colorsVersion++;
+        }
+    }
+
+    /** Removes a light's values from the totals.  The snapshot must have been previously added.
+     * @param snapshot The snapshot of the light to remove.
+     */
+    void remove(LightSnapshot snapshot)
+    {
+        if (snapshot.on)
+            onCount--;
+
+        if (snapshot.supportsColors)
+            colorCapableCount--;
+
+        brightnessHistogram.remove(snapshot.brightness);
+        colorHistogram.remove(snapshot.color);
+
+        for (int color : snapshot.colors)
+        {
+            if (colorMultiset.remove(color))
+                colorsVersion++;
+        }
+    }
+
+    /** Removes all values from the totals. */
+    void clear()
+    {
+        onCount = 0;
+        colorCapableCount = 0;
+        brightnessHistogram.clear();
+        colorHistogram.clear();
+        colorMultiset.clear();
+        colorsVersion++;
+    }
+
+    //endregion
+
+
+    //region Getters
+
+    /** Gets the brightness shared by every counted light.
+     * @return The shared brightness, or {@link Light#BRIGHTNESS_MULTIPLE} if the lights have different brightnesses or there are no lights.
+     */
+    int getUniqueBrightness()
+    {
+        return brightnessHistogram.getSingleValue(Light.BRIGHTNESS_MULTIPLE);
+    }
+
+    /** Gets the color shared by every counted light.
+     * @return The shared color, or {@link Light#COLOR_MULTIPLE} if the lights have different colors or there are no lights.
+     */
+    int getUniqueColor()
+    {
+        return colorHistogram.getSingleValue(Light.COLOR_MULTIPLE);
+    }
+
+    //endregion
+}
@@ -17,8 +17,7 @@
 
 package com.iot.extron.smartlightswitch.models;
 
-import android.graphics.Color;
-
+import com.iot.extron.smartlightswitch.utilities.ColorUtilities;
 import com.philips.lighting.hue.sdk.wrapper.connection.BridgeConnectionType;
 import com.philips.lighting.hue.sdk.wrapper.connection.BridgeResponseCallback;
 import com.philips.lighting.hue.sdk.wrapper.domain.Bridge;
@@ -26,6 +25,7 @@ import com.philips.lighting.hue.sdk.wrapper.domain.BridgeState;
 import com.philips.lighting.hue.sdk.wrapper.domain.HueError;
 import com.philips.lighting.hue.sdk.wrapper.domain.ReturnCode;
 import com.philips.lighting.hue.sdk.wrapper.domain.clip.ClipResponse;
+import com.philips.lighting.hue.sdk.wrapper.domain.clip.ColorMode;
 import com.philips.lighting.hue.sdk.wrapper.domain.device.light.LightPoint;
 import com.philips.lighting.hue.sdk.wrapper.domain.device.light.LightState;
 import com.philips.lighting.hue.sdk.wrapper.domain.resource.Group;
@@ -33,8 +33,13 @@ import com.philips.lighting.hue.sdk.wrapper.domain.resource.Scene;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.function.Predicate;
@@ -65,6 +70,21 @@ public class AggregateLight
     /** The list of light points and groups that are encapsulated in the light object. */
     private List<Light> lights = new ArrayList<>();
 
+    /** The most recent snapshot of each light in {@link #lights}, at the same index. */
+    private List<LightSnapshot> snapshots = new ArrayList<>();
+
+    /** Running totals over {@link #snapshots}, which the property getters read from. */
+    private AggregateCounters counters = new AggregateCounters();
+
+    /** The unique colors of the contained lights, sorted by their HSV value.  Rebuilt only when the set of colors changes. */
+    private List<Integer> sortedColors = Collections.emptyList();
+
+    /** The version of {@link AggregateCounters#colorsVersion} that {@link #sortedColors} was built from. */
+    private int sortedColorsVersion = -1;
+
+    /** A reusable histogram that light colors are collected into while taking snapshots. */
+    private final IntHistogram scratch = new IntHistogram();
+
     /** The current brightness of the light object, which will be set across all lights contained within. */
     private int brightness = BRIGHTNESS_UNDEFINED;
 
@@ -101,14 +121,7 @@ public class AggregateLight
      */
     public boolean getOn()
     {
-        return lights.stream().anyMatch(new Predicate<Light>()
-        {
-            @Override
-            public boolean test(Light light)
-            {
-                return light.getOn();
-            }
-        });
+        return counters.onCount > 0;
     }
 
     /** Gets whether the light object supports color, which it does if any contained lights support color.
@@ -116,14 +129,7 @@ public class AggregateLight
      */
     public boolean getSupportsColors()
     {
-        return lights.stream().anyMatch(new Predicate<Light>()
-        {
-            @Override
-            public boolean test(Light light)
-            {
-                return light.getSupportsColors();
-            }
-        });
+        return counters.colorCapableCount > 0;
     }
 
     /** Gets the brightness of the light object.  If there is only a single {@link Light} contained that has a single brightness, returns its brightness.  Otherwise, unless the brightness
@@ -132,34 +138,12 @@ public class AggregateLight
      */
     public int getBrightness()
     {
-        switch (lights.size())
-        {
-            case 0:
-                return brightness;
-
-            case 1:
-                int lightBrightness = lights.get(0).getBrightness();
-                if (lightBrightness != Light.BRIGHTNESS_MULTIPLE)
-                    return lightBrightness;
-                else
-                    return brightness;
-
-            default:
-                List<Integer> uniqueBrightnesses = new ArrayList<>();
-
-                for (Light light : lights)
-                {
-                    int brightness = light.getBrightness();
-
-                    if (!uniqueBrightnesses.contains(brightness))
-                        uniqueBrightnesses.add(brightness);
-                }
+        int lightBrightness = counters.getUniqueBrightness();
 
-                if (uniqueBrightnesses.size() == 1 && uniqueBrightnesses.get(0) != Light.BRIGHTNESS_MULTIPLE)
-                    return uniqueBrightnesses.get(0);
-                else
-                    return brightness;
-        }
+        if (lightBrightness != Light.BRIGHTNESS_MULTIPLE)
+            return lightBrightness;
+        else
+            return brightness;
     }
 
     /** Sets the brightness of the light object.  Note that this does not apply the brightness to the contained lights, but merely stores
@@ -177,35 +161,12 @@ public class AggregateLight
      */
     public int getColor()
     {
-        switch (lights.size())
-        {
-            case 0:
-                return color;
-
-            case 1:
-                int lightColor = lights.get(0).getColor();
-
-                if (color != Light.COLOR_MULTIPLE)
-                    return lightColor;
-                else
-                    return color;
-
-            default:
-                List<Integer> uniqueColors = new ArrayList<>();
+        int lightColor = counters.getUniqueColor();
 
-                for (Light light : lights)
-                {
-                    int color = light.getColor();
-
-                    if (!uniqueColors.contains(color))
-                        uniqueColors.add(color);
-                }
-
-                if (uniqueColors.size() == 1 && uniqueColors.get(0) != Light.COLOR_MULTIPLE)
-                    return uniqueColors.get(0);
-                else
-                    return color;
-        }
+        if (lightColor != Light.COLOR_MULTIPLE)
+            return lightColor;
+        else
+            return color;
     }
 
     /** Gets a list of all unique colors of the lights contained within.  Colors are sorted by their HSV value.
@@ -213,39 +174,22 @@ public class AggregateLight
      */
     public List<Integer> getColors()
     {
-        List<Integer> colors = new ArrayList<>();
-
-        for (Light light : lights)
-        {
-            List<Integer> lightColors = light.getColors();
-
-            for (int lightColor : lightColors)
-            {
-                if (!colors.contains(lightColor))
-                    colors.add(lightColor);
-            }
-        }
-
-        colors.sort((c1, c2) ->
+        if (sortedColorsVersion != counters.colorsVersion)
         {
-            float[] c1HSV = new float[3];
-            float[] c2HSV = new float[3];
-            Color.colorToHSV(c1, c1HSV);
-            Color.colorToHSV(c2, c2HSV);
-
-            if (c1HSV[0] != c2HSV[0])
-                return c1HSV[0] < c2HSV[0] ? -1 : 1;
+            int[] distinctColors = new int[counters.colorMultiset.size()];
+            counters.colorMultiset.copyValues(distinctColors);
+            ColorUtilities.sortByHSV(distinctColors, distinctColors.length);
 
-            if (c1HSV[1] != c2HSV[1])
-                return c1HSV[1] < c2HSV[1] ? -1 : 1;
+            List<Integer> colors = new ArrayList<>(distinctColors.length);
 
-            if (c1HSV[2] != c2HSV[2])
-                return c1HSV[2] < c2HSV[2] ? -1 : 1;
+            for (int distinctColor : distinctColors)
+                colors.add(distinctColor);
 
-            return 0;
-        });
+            sortedColors = Collections.unmodifiableList(colors);
+            sortedColorsVersion = counters.colorsVersion;
+        }
 
-        return colors;
+        return sortedColors;
     }
 
     /** Sets the color of the light object.  Note that this does not apply the color to the contained lights, but merely stores
@@ -267,7 +211,7 @@ public class AggregateLight
      */
     public void addLightPoint(LightPoint lightPoint)
     {
-        lights.add(new SingleLight(lightPoint));
+        addLight(new SingleLight(lightPoint));
     }
 
     /** Adds a list of {@link LightPoint}s to the light object.
@@ -276,7 +220,7 @@ public class AggregateLight
     public void addLightPoints(List<LightPoint> lightPoints)
     {
         for (LightPoint lightPoint : lightPoints)
-            lights.add(new SingleLight(lightPoint));
+            addLight(new SingleLight(lightPoint));
     }
 
     /** Adds a {@link Group} to the light object.
@@ -285,7 +229,7 @@ public class AggregateLight
      */
     public void addLightGroup(Group lightGroup, BridgeState bridgeState)
     {
-        lights.add(new GroupLight(lightGroup, bridgeState));
+        addLight(new GroupLight(lightGroup, bridgeState));
     }
 
     /** Adds a list of {@link Group}s to the light object.
@@ -295,7 +239,19 @@ public class AggregateLight
     public void addLightGroups(List<Group> lightGroups, BridgeState bridgeState)
     {
         for (Group lightGroup : lightGroups)
-            lights.add(new GroupLight(lightGroup, bridgeState));
+            addLight(new GroupLight(lightGroup, bridgeState));
+    }
+
+    /** Adds a {@link Light} to the light object and counts its values towards the aggregate.
+     * @param light The {@link Light} to add.
+     */
+    public void addLight(Light light)
+    {
+        LightSnapshot snapshot = LightSnapshot.capture(light, scratch);
+
+        lights.add(light);
+        snapshots.add(snapshot);
+        counters.add(snapshot);
     }
 
     /** Gets all of the {@link Light}s in the aggregate light.
@@ -306,6 +262,44 @@ public class AggregateLight
         return lights;
     }
 
+    /** Gets the identifiers of every light point controlled by the aggregate light, including those controlled through groups.
+     * @return A new set of light point identifiers.
+     */
+    public Set<String> getLightIds()
+    {
+        Set<String> lightIds = new HashSet<>();
+
+        for (Light light : lights)
+            light.getLightIds(lightIds);
+
+        return lightIds;
+    }
+
+    /** Gets the identifiers of the light points or groups in the aggregate light, whether they are live or restored from a {@link BridgeSnapshot}.
+     * @param groups <code>true</code> to get the identifiers of the groups, <code>false</code> to get those of the light points.
+     * @return A new set of identifiers.
+     */
+    public Set<String> getIdentifiers(boolean groups)
+    {
+        Set<String> identifiers = new HashSet<>();
+
+        for (Light light : lights)
+        {
+            if (light.isGroup() == groups)
+                identifiers.add(light.getIdentifier());
+        }
+
+        return identifiers;
+    }
+
+    /** Gets the most recent {@link LightSnapshot} of each of the {@link Light}s in the aggregate light.
+     * @return A copy of the list of snapshots, in the same order as {@link #getLights()}.
+     */
+    public List<LightSnapshot> getSnapshots()
+    {
+        return new ArrayList<>(snapshots);
+    }
+
     /** Gets all of the {@link LightPoint}s within the light object.
      * @return A list of {@link LightPoint}s.
      */
@@ -364,104 +358,323 @@ public class AggregateLight
         return lights.size() > 0;
     }
 
-    /** Updates the light states of all contained lights.
+    /** Updates the light states of all contained lights.  Only lights whose values have changed since the last update are recounted in the aggregate.
+     * Lights that no longer exist on the bridge are removed.
+     * <p>
+     * Only the recount is incremental.  The bridge's state updates do not say which lights changed, so every contained light is captured again
+     * to compare it with its last snapshot, and an update costs work in proportion to the number of contained lights.
      * @param bridgeState The bridge state that contains the updated light states.
+     * @return A {@link LightStateDelta} describing what changed.
      */
-    public void updateLightState(BridgeState bridgeState)
+    public LightStateDelta updateLightState(BridgeState bridgeState)
     {
-        List<String> lightIds = getLightPoints().stream().map(new Function<LightPoint, String>()
+        LightStateDelta delta = new LightStateDelta();
+
+        String oldName = getName();
+        boolean oldOn = getOn();
+        int oldBrightness = getBrightness();
+        int oldColor = getColor();
+        int oldColorsVersion = counters.colorsVersion;
+        boolean oldSupportsColors = getSupportsColors();
+
+        for (int i = lights.size() - 1; i >= 0; i--)
         {
-            @Override
-            public String apply(LightPoint lightPoint)
+            Light light = lights.get(i);
+            boolean exists = false;
+
+            // The wrappers are updated in place with the bridge's latest objects rather than recreated.
+            if (light instanceof SingleLight)
+            {
+                LightPoint lightPoint = bridgeState.getLight(light.getIdentifier());
+
+                if (lightPoint != null)
+                {
+                    ((SingleLight)light).setLightPoint(lightPoint);
+                    exists = true;
+                }
+            }
+            else if (light instanceof GroupLight)
             {
-                return lightPoint.getIdentifier();
+                Group group = bridgeState.getGroup(light.getIdentifier());
+
+                if (group != null)
+                {
+                    ((GroupLight)light).setGroup(group, bridgeState);
+                    exists = true;
+                }
             }
-        }).collect(Collectors.<String>toList());
 
-        List<String> groupIds = getGroups().stream().map(new Function<Group, String>()
-        {
-            @Override
-            public String apply(Group group)
+            LightSnapshot oldSnapshot = snapshots.get(i);
+
+            if (!exists)
+            {
+                lights.remove(i);
+                snapshots.remove(i);
+                counters.remove(oldSnapshot);
+                delta.lightsRemoved = true;
+
+                // Every change recorded so far was after this light, so it has moved up one position.
+                for (int c = 0; c < delta.changedLights.size(); c++)
+                    delta.changedLights.set(c, delta.changedLights.get(c) - 1);
+
+                continue;
+            }
+
+            LightSnapshot newSnapshot = LightSnapshot.capture(light, oldSnapshot, scratch);
+
+            if (newSnapshot != oldSnapshot)
             {
-                return group.getIdentifier();
+                snapshots.set(i, newSnapshot);
+                counters.remove(oldSnapshot);
+                counters.add(newSnapshot);
+                delta.changedLights.add(i);
             }
-        }).collect(Collectors.<String>toList());
+        }
 
-        lights.clear();
+        Collections.reverse(delta.changedLights);
 
-        for (String id : lightIds)
-            addLightPoint(bridgeState.getLight(id));
+        delta.nameChanged = !Objects.equals(oldName, getName());
+        delta.onChanged = oldOn != getOn();
+        delta.brightnessChanged = oldBrightness != getBrightness();
+        delta.colorsChanged = oldColor != getColor() || oldColorsVersion != counters.colorsVersion;
+        delta.supportsColorsChanged = oldSupportsColors != getSupportsColors();
 
-        for (String id : groupIds)
-            addLightGroup(bridgeState.getGroup(id), bridgeState);
+        return delta;
     }
 
-    /** Applies a new {@link LightState} to all lights contained in this light object.
+    /** Applies a new {@link LightState} to all lights contained in this light object.  Selected groups are sent a single group command, and where
+     * every light point of a large enough bridge group is selected, the state is sent to that group rather than to each light point, see
+     * {@link LightCommandPlanner}.
      * @param newState The {@link LightState} to apply.
      * @param connectionType The connection type to apply the update over.
+     * @param bridgeState The {@link BridgeState} holding the bridge's groups, or <code>null</code> to send the update to each light separately.
+     * @param commandQueue The {@link LightCommandQueue} to send the update to each light through.
      * @param callback A callback to receive results with.  Will be called once all lights have responded to the update.
      */
-    public void applyLightState(LightState newState, BridgeConnectionType connectionType, final LightObjectApplyStateCallback callback)
+    public void applyLightState(LightState newState, BridgeConnectionType connectionType, BridgeState bridgeState, LightCommandQueue commandQueue, final LightObjectApplyStateCallback callback)
+    {
+        applyLightState(newState, connectionType, bridgeState, commandQueue, null, callback);
+    }
+
+    /** Applies a new {@link LightState} to all lights contained in this light object, and traces each command sent for it.
+     * @param newState The {@link LightState} to apply.
+     * @param connectionType The connection type to apply the update over.
+     * @param bridgeState The {@link BridgeState} holding the bridge's groups, or <code>null</code> to send the update to each light separately.
+     * @param commandQueue The {@link LightCommandQueue} to send the update to each light through.
+     * @param trace The {@link CommandTracer.Trace} to time each command with, or <code>null</code> to not trace the update.
+     * @param callback A callback to receive results with.  Will be called once all lights have responded to the update, or immediately with no
+     *                 results if there are no lights.
+     */
+    public void applyLightState(LightState newState, BridgeConnectionType connectionType, BridgeState bridgeState, LightCommandQueue commandQueue, CommandTracer.Trace trace, final LightObjectApplyStateCallback callback)
+    {
+        applyLightState(newState, connectionType, LightCommandPlanner.layoutOf(bridgeState), commandQueue, trace, callback);
+    }
+
+    /** Applies a new {@link LightState} to all lights contained in this light object, planning the commands around a {@link LightCommandPlanner.BridgeLayout}.
+     * @param newState The {@link LightState} to apply.
+     * @param connectionType The connection type to apply the update over.
+     * @param layout The {@link LightCommandPlanner.BridgeLayout} holding the bridge's groups, or <code>null</code> to send the update to each light separately.
+     * @param commandQueue The {@link LightCommandQueue} to send the update to each light through.
+     * @param trace The {@link CommandTracer.Trace} to time each command with, or <code>null</code> to not trace the update.
+     * @param callback A callback to receive results with.  Will be called once all lights have responded to the update, or immediately with no
+     *                 results if there are no lights.
+     */
+    public void applyLightState(LightState newState, BridgeConnectionType connectionType, LightCommandPlanner.BridgeLayout layout, LightCommandQueue commandQueue, CommandTracer.Trace trace, final LightObjectApplyStateCallback callback)
     {
-        final AtomicInteger latch = new AtomicInteger(lights.size());
-        final LightObjectApplyResults[] results = new LightObjectApplyResults[lights.size()];
+        final LightCommandPlanner.Plan plan = LightCommandPlanner.plan(lights, layout);
+        final List<Light> commands = plan.getCommands();
+        final List<Light> targets = new ArrayList<>(lights);
+
+        // With nothing to send, no command would ever answer, so the callback is answered straight away.
+        if (commands.isEmpty())
+        {
+            callback.onApplyCompleted(Collections.emptyList());
+            return;
+        }
+
+        final AtomicInteger latch = new AtomicInteger(commands.size());
+        final LightObjectApplyResults[] commandResults = new LightObjectApplyResults[commands.size()];
 
-        for (int i = 0; i < lights.size(); i++)
+        for (int i = 0; i < commands.size(); i++)
         {
-            final Light light = lights.get(i);
             final int index = i;
+            final Light command = commands.get(i);
 
-            light.applyLightState(newState, connectionType, new BridgeResponseCallback()
+            commandQueue.submit(command, newState, connectionType, trace, new BridgeResponseCallback()
             {
                 @Override
                 public void handleCallback(Bridge bridge, ReturnCode returnCode, List<ClipResponse> responses, List<HueError> errors)
                 {
-                    results[index] = new LightObjectApplyResults(light, returnCode, errors);
+                    commandResults[index] = new LightObjectApplyResults(command, returnCode, errors);
 
                     int current = latch.decrementAndGet();
 
                     if (current == 0)
+                        callback.onApplyCompleted(collectResults(targets, plan, commandResults));
+                }
+            });
+        }
+    }
+
+    /** Attributes the responses of a plan's commands back to the lights the plan was made for.  A light reports the first failed command that
+     * reached it, or the response of its first command if they all succeeded. */
+    private List<LightObjectApplyResults> collectResults(List<Light> targets, LightCommandPlanner.Plan plan, LightObjectApplyResults[] commandResults)
+    {
+        List<LightObjectApplyResults> results = new ArrayList<>(targets.size());
+
+        for (int i = 0; i < targets.size(); i++)
+        {
+            List<Integer> commandsForLight = plan.getCommandsForLight(i);
+            LightObjectApplyResults reported = commandResults[commandsForLight.get(0)];
+
+            for (int command : commandsForLight)
+            {
+                if (commandResults[command].returnCode != ReturnCode.SUCCESS)
+                {
+                    reported = commandResults[command];
+                    break;
+                }
+            }
+
+            results.add(new LightObjectApplyResults(targets.get(i), reported.returnCode, reported.errors));
+        }
+
+        return results;
+    }
+
+    /** Captures the color of every light point contained in this light object, so that it can be put back later with {@link #restoreColorStates}.
+     * @return A {@link LightState} holding only the color of each light point, keyed by light point identifier.
+     */
+    public Map<String, LightState> captureColorStates()
+    {
+        Map<String, LightState> states = new LinkedHashMap<>();
+
+        for (Light light : lights)
+        {
+            if (light instanceof SingleLight)
+            {
+                LightPoint lightPoint = ((SingleLight)light).lightPoint;
+                states.put(lightPoint.getIdentifier(), copyColor(lightPoint.getLightState()));
+            }
+            else if (light instanceof GroupLight)
+            {
+                for (LightPoint lightPoint : ((GroupLight)light).lights)
+                    states.put(lightPoint.getIdentifier(), copyColor(lightPoint.getLightState()));
+            }
+        }
+
+        return states;
+    }
+
+    /** Sends previously captured colors back to their light points.  Light points that no longer exist on the bridge are skipped.
+     * @param states The colors returned by {@link #captureColorStates()}.
+     * @param connectionType The connection type to apply the update over.
+     * @param bridgeState The {@link BridgeState} to look up the light points in.
+     * @param commandQueue The {@link LightCommandQueue} to send the update to each light point through.
+     * @param callback A callback to receive results with.  Will be called once all light points have responded, with one result per light point.
+     */
+    public void restoreColorStates(Map<String, LightState> states, BridgeConnectionType connectionType, BridgeState bridgeState, LightCommandQueue commandQueue, final LightObjectApplyStateCallback callback)
+    {
+        final List<Light> targets = new ArrayList<>();
+        final List<LightState> targetStates = new ArrayList<>();
+
+        for (Map.Entry<String, LightState> entry : states.entrySet())
+        {
+            LightPoint lightPoint = bridgeState.getLight(entry.getKey());
+
+            if (lightPoint != null)
+            {
+                targets.add(new SingleLight(lightPoint));
+                targetStates.add(entry.getValue());
+            }
+        }
+
+        if (targets.isEmpty())
+        {
+            callback.onApplyCompleted(Collections.emptyList());
+            return;
+        }
+
+        final AtomicInteger latch = new AtomicInteger(targets.size());
+        final LightObjectApplyResults[] results = new LightObjectApplyResults[targets.size()];
+
+        for (int i = 0; i < targets.size(); i++)
+        {
+            final int index = i;
+            final Light target = targets.get(i);
+
+            commandQueue.submit(target, targetStates.get(i), connectionType, new BridgeResponseCallback()
+            {
+                @Override
+                public void handleCallback(Bridge bridge, ReturnCode returnCode, List<ClipResponse> responses, List<HueError> errors)
+                {
+                    results[index] = new LightObjectApplyResults(target, returnCode, errors);
+
+                    if (latch.decrementAndGet() == 0)
                         callback.onApplyCompleted(Arrays.asList(results));
                 }
             });
         }
     }
 
+    /** Creates a {@link LightState} holding only the color fields of another, in whichever color mode the light is currently in. */
+    private static LightState copyColor(LightState state)
+    {
+        LightState color = new LightState();
+        ColorMode mode = state.getColormode();
+
+        if (mode == ColorMode.COLOR_TEMPERATURE && state.getCT() != null)
+        {
+            color.setCT(state.getCT());
+        }
+        else if (mode == ColorMode.HUE_SATURATION && state.getHue() != null && state.getSaturation() != null)
+        {
+            color.setHue(state.getHue());
+            color.setSaturation(state.getSaturation());
+        }
+        else if (state.getXY() != null)
+        {
+            color.setXY(state.getXY().getValue1(), state.getXY().getValue2());
+        }
+
+        return color;
+    }
+
     /** Filters and groups a list of scenes to those that apply to the lights contained in this light object.
      * @param scenes The list of scenes to filter and group.
      * @return A filtered list of scene groups.
      */
     public List<SceneGroup> filterValidScenes(List<Scene> scenes)
     {
-        List<Scene> filteredScenes = scenes.stream().filter(new Predicate<Scene>()
-        {
-            @Override
-            public boolean test(final Scene scene)
-            {
-                return lights.stream().anyMatch(new Predicate<Light>()
-                {
-                    @Override
-                    public boolean test(Light light)
-                    {
-                        return light.isSceneValid(scene);
-                    }
-                });
-            }
-        }).collect(Collectors.<Scene>toList());
+        return filterValidScenes(new SceneIndex(scenes));
+    }
+
+    /** Filters and groups indexed scenes to those that apply to the lights contained in this light object.  A scene applies if it contains any of
+     * the light points, so the valid scenes are the union of the index's scenes for each light point.
+     * @param sceneIndex The {@link SceneIndex} of the scenes to filter and group.
+     * @return A filtered list of scene groups.
+     */
+    public List<SceneGroup> filterValidScenes(SceneIndex sceneIndex)
+    {
+        Map<String, List<Scene>> groups = new LinkedHashMap<>();
 
-        Map<String, List<Scene>> groups = filteredScenes.stream().collect(Collectors.groupingBy(new Function<Scene, String>()
+        for (Scene scene : sceneIndex.getValidScenes(getLightIds()))
         {
-            @Override
-            public String apply(Scene scene)
+            List<Scene> group = groups.get(scene.getName());
+
+            if (group == null)
             {
-                return scene.getName();
+                group = new ArrayList<>();
+                groups.put(scene.getName(), group);
             }
-        }));
 
-        List<SceneGroup> sceneGroups = new ArrayList<>();
+            group.add(scene);
+        }
+
+        List<SceneGroup> sceneGroups = new ArrayList<>(groups.size());
 
-        for (Map.Entry<String, List<Scene>> entry : groups.entrySet())
-            sceneGroups.add(new SceneGroup(entry.getValue()));
+        for (List<Scene> group : groups.values())
+            sceneGroups.add(new SceneGroup(group));
 
         return sceneGroups;
     }
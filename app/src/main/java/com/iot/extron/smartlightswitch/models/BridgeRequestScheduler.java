@@ -0,0 +1,269 @@
+/*
+ * This file is part of Hue SmartSwitch
+ *
+ * Hue SmartSwitch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package com.iot.extron.smartlightswitch.models;
+
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/** Throttles every request the app sends to the Hue bridge.  Requests wait in one of several {@link Lane}s and are released by a token bucket, so
+ * bursts of up to {@link #BUCKET_CAPACITY} requests go out immediately while the sustained rate is held to {@link #REQUESTS_PER_SECOND}.  Each
+ * request costs as many tokens as the bridge's budget for it: one for a light request, and {@link #GROUP_REQUEST_COST} for a group command or scene
+ * recall.  Whenever there are enough tokens, the request at the front of the highest priority non-empty lane is sent next.
+ * <p>
+ * Requests are sent on the thread that scheduled them if a token is available straight away, otherwise on the scheduler's own thread.
+ */
+public class BridgeRequestScheduler
+{
+    //region Static Fields
+
+    private static final String TAG = "BridgeRequestScheduler";
+
+    /** The sustained number of requests per second sent to the bridge.  The Hue bridge handles roughly ten light commands per second before it
+     * starts rejecting requests. */
+    static final double REQUESTS_PER_SECOND = 10;
+
+    /** The number of requests that can be sent in an immediate burst after the bridge has been idle. */
+    static final double BUCKET_CAPACITY = 10;
+
+    /** The number of tokens a light request costs. */
+    public static final int LIGHT_REQUEST_COST = 1;
+
+    /** The number of tokens a group command or scene recall costs.  The bridge handles only about one of these per second, since each changes
+     * many lights at once. */
+    public static final int GROUP_REQUEST_COST = 10;
+
+    //endregion
+
+
+    //region Fields
+
+    /** The requests waiting in each lane, indexed by {@link Lane#ordinal()}. */
+    private final List<ArrayDeque<Request>> lanes = new ArrayList<>();
+
+    /** The thread that sends requests once tokens become available. */
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable ->
+    {
+        Thread thread = new Thread(runnable, "BridgeRequestScheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** The number of requests that can currently be sent without waiting. */
+    private double tokens = BUCKET_CAPACITY;
+
+    /** The {@link System#nanoTime()} at which {@link #tokens} was last refilled. */
+    private long lastRefillTime = System.nanoTime();
+
+    /** Whether a dispatch has been posted to {@link #executor} to wait for the next token. */
+    private boolean dispatchScheduled;
+
+    //endregion
+
+
+    //region Constructors
+
+    /** Creates a new scheduler with empty lanes and a full bucket. */
+    public BridgeRequestScheduler()
+    {
+        for (int i = 0; i < Lane.values().length; i++)
+            lanes.add(new ArrayDeque<>());
+    }
+
+    //endregion
+
+
+    //region Scheduling
+
+    /** Schedules a light request to be sent to the bridge.
+     * @param lane The {@link Lane} the request waits in.  If the lane keeps only the latest request, any request already waiting in it is dropped.
+     * @param request Sends the request.  Must not block.
+     */
+    public void schedule(Lane lane, Runnable request)
+    {
+        schedule(lane, LIGHT_REQUEST_COST, request);
+    }
+
+    /** Schedules a request to be sent to the bridge.
+     * @param lane The {@link Lane} the request waits in.  If the lane keeps only the latest request, any request already waiting in it is dropped.
+     * @param cost The number of tokens the request costs, usually {@link #LIGHT_REQUEST_COST} or {@link #GROUP_REQUEST_COST}.  Costs above
+     *             {@link #BUCKET_CAPACITY} are treated as the capacity.
+     * @param request Sends the request.  Must not block.
+     */
+    public void schedule(Lane lane, int cost, Runnable request)
+    {
+        synchronized (lanes)
+        {
+            ArrayDeque<Request> queue = lanes.get(lane.ordinal());
+
+            if (lane.keepsLatestOnly)
+                queue.clear();
+
+            queue.add(new Request(Math.min(cost, BUCKET_CAPACITY), request));
+        }
+
+        dispatch();
+    }
+
+    /** Gets the number of requests waiting in a lane.
+     * @param lane The lane.
+     * @return The number of waiting requests.
+     */
+    public int getQueuedCount(Lane lane)
+    {
+        synchronized (lanes)
+        {
+            return lanes.get(lane.ordinal()).size();
+        }
+    }
+
+    /** Sends as many waiting requests as there are tokens for, highest priority lane first, and arranges to run again when there will be enough
+     * tokens for the next request if requests are still waiting.  A request that needs more tokens than are available holds back the requests
+     * behind it, so that a costly request is never starved by cheaper ones.  A request that throws is logged and does not stop the requests sent
+     * after it. */
+    private void dispatch()
+    {
+        List<Runnable> ready = new ArrayList<>();
+
+        synchronized (lanes)
+        {
+            refill();
+
+            Request next;
+
+            while ((next = peek()) != null && tokens >= next.cost)
+            {
+                poll();
+                tokens -= next.cost;
+                ready.add(next.runnable);
+            }
+
+            if (!dispatchScheduled && next != null)
+            {
+                long wait = (long)Math.ceil((next.cost - tokens) / REQUESTS_PER_SECOND * TimeUnit.SECONDS.toNanos(1));
+
+                dispatchScheduled = true;
+                executor.schedule(() ->
+                {
+                    synchronized (lanes)
+                    {
+                        dispatchScheduled = false;
+                    }
+
+                    dispatch();
+                }, wait, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        for (Runnable runnable : ready)
+        {
+            try
+            {
+                runnable.run();
+            }
+            catch (RuntimeException e)
+            {
+                Log.e(TAG, "A bridge request failed to send", e);
+            }
+        }
+    }
+
+    /** Adds the tokens earned since the last refill, up to the bucket's capacity.  Must be called while holding the lock on {@link #lanes}. */
+    private void refill()
+    {
+        long now = System.nanoTime();
+        double earned = (now - lastRefillTime) * REQUESTS_PER_SECOND / TimeUnit.SECONDS.toNanos(1);
+
+        tokens = Math.min(BUCKET_CAPACITY, tokens + earned);
+        lastRefillTime = now;
+    }
+
+    /** Gets the next request from the highest priority non-empty lane, without removing it.  Must be called while holding the lock on
+     * {@link #lanes}.
+     * @return The request, or <code>null</code> if every lane is empty.
+     */
+    private Request peek()
+    {
+        for (ArrayDeque<Request> queue : lanes)
+        {
+            if (!queue.isEmpty())
+                return queue.peek();
+        }
+
+        return null;
+    }
+
+    /** Removes the next request from the highest priority non-empty lane.  Must be called while holding the lock on {@link #lanes}. */
+    private void poll()
+    {
+        for (ArrayDeque<Request> queue : lanes)
+        {
+            if (!queue.isEmpty())
+            {
+                queue.poll();
+                return;
+            }
+        }
+    }
+
+    //endregion
+
+
+    //region Nested Types
+
+    /** A request waiting in a lane, along with the number of tokens it costs. */
+    private static class Request
+    {
+        final double cost;
+        final Runnable runnable;
+
+        Request(double cost, Runnable runnable)
+        {
+            this.cost = cost;
+            this.runnable = runnable;
+        }
+    }
+
+    /** The lanes requests wait in, in order of priority. */
+    public enum Lane
+    {
+        /** Commands that respond directly to the user, such as switching lights on or changing their brightness. */
+        INTERACTIVE(false),
+
+        /** Scene recalls. */
+        SCENE(false),
+
+        /** Pulls of the bridge's state.  Only the latest waiting refresh is kept, since an older one would return the same state. */
+        REFRESH(true);
+
+        /** Whether scheduling a request drops any request already waiting in the lane. */
+        final boolean keepsLatestOnly;
+
+        Lane(boolean keepsLatestOnly)
+        {
+            this.keepsLatestOnly = keepsLatestOnly;
+        }
+    }
+
+    //endregion
+}
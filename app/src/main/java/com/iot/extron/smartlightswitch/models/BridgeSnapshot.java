@@ -0,0 +1,289 @@
+/*
+ * This file is part of Hue SmartSwitch
+ *
+ * Hue SmartSwitch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package com.iot.extron.smartlightswitch.models;
+
+import com.philips.lighting.hue.sdk.wrapper.domain.BridgeState;
+import com.philips.lighting.hue.sdk.wrapper.domain.device.light.LightPoint;
+import com.philips.lighting.hue.sdk.wrapper.domain.resource.Group;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/** The last known lights and groups of a bridge, with the values the lightswitch displays for each, so that the lightswitch can be shown from it
+ * while the bridge connects.  Snapshots are stored in a compact binary form: a header of {@link #MAGIC}, {@link #VERSION} and the bridge's identity,
+ * followed by each light and group as its identifier, name, a flags byte, brightness, colors and, for groups, its light point identifiers. */
+public class BridgeSnapshot
+{
+    //region Constants
+
+    /** The first four bytes of every stored snapshot. */
+    static final int MAGIC = 0x48534E50;
+
+    /** The version of the stored form.  Snapshots stored in any other version are discarded. */
+    static final int VERSION = 1;
+
+    /** The flag set when a light is on. */
+    private static final int FLAG_ON = 1;
+
+    /** The flag set when a light supports colors. */
+    private static final int FLAG_SUPPORTS_COLORS = 1 << 1;
+
+    //endregion
+
+
+    //region Fields
+
+    /** The bridge's identifier. */
+    final String bridgeIdentifier;
+
+    /** The bridge's IP address. */
+    final String bridgeIp;
+
+    /** The bridge's light points, keyed by identifier, in the order the bridge reported them. */
+    final Map<String, CachedLight> lights;
+
+    /** The bridge's groups, keyed by identifier, in the order the bridge reported them. */
+    final Map<String, CachedLight> groups;
+
+    //endregion
+
+
+    //region Constructors
+
+    private BridgeSnapshot(String bridgeIdentifier, String bridgeIp, Map<String, CachedLight> lights, Map<String, CachedLight> groups)
+    {
+        this.bridgeIdentifier = bridgeIdentifier;
+        this.bridgeIp = bridgeIp;
+        this.lights = lights;
+        this.groups = groups;
+    }
+
+    /** Captures the lights and groups in a bridge's state.
+     * @param bridgeIdentifier The bridge's identifier.
+     * @param bridgeIp The bridge's IP address.
+     * @param bridgeState The {@link BridgeState} to capture.
+     * @return A new snapshot.
+     */
+    public static BridgeSnapshot capture(String bridgeIdentifier, String bridgeIp, BridgeState bridgeState)
+    {
+        IntHistogram scratch = new IntHistogram();
+        Map<String, CachedLight> lights = new LinkedHashMap<>();
+        Map<String, CachedLight> groups = new LinkedHashMap<>();
+
+        for (LightPoint lightPoint : bridgeState.getLights())
+        {
+            SingleLight light = new SingleLight(lightPoint);
+            lights.put(light.getIdentifier(), new CachedLight(LightSnapshot.capture(light, scratch), false, Collections.singletonList(light.getIdentifier())));
+        }
+
+        for (Group group : bridgeState.getGroups())
+        {
+            GroupLight light = new GroupLight(group, bridgeState);
+            groups.put(light.getIdentifier(), new CachedLight(LightSnapshot.capture(light, scratch), true, new ArrayList<>(group.getLightIds())));
+        }
+
+        return new BridgeSnapshot(bridgeIdentifier, bridgeIp, lights, groups);
+    }
+
+    //endregion
+
+
+    //region Getters
+
+    /** Gets the identifier of the bridge the snapshot was taken of.
+     * @return The bridge's identifier.
+     */
+    public String getBridgeIdentifier()
+    {
+        return bridgeIdentifier;
+    }
+
+    /** Gets the IP address of the bridge the snapshot was taken of.
+     * @return The bridge's IP address.
+     */
+    public String getBridgeIp()
+    {
+        return bridgeIp;
+    }
+
+    /** Gets a light point as it was when the snapshot was taken.
+     * @param identifier The light point's identifier.
+     * @return The light point, or <code>null</code> if the bridge did not have it.
+     */
+    public CachedLight getLight(String identifier)
+    {
+        return lights.get(identifier);
+    }
+
+    /** Gets a group as it was when the snapshot was taken.
+     * @param identifier The group's identifier.
+     * @return The group, or <code>null</code> if the bridge did not have it.
+     */
+    public CachedLight getGroup(String identifier)
+    {
+        return groups.get(identifier);
+    }
+
+    /** Gets the number of light points and groups in the snapshot.
+     * @return The number of lights.
+     */
+    public int size()
+    {
+        return lights.size() + groups.size();
+    }
+
+    //endregion
+
+
+    //region Serialization
+
+    /** Writes the snapshot in its stored form.
+     * @return The stored form of the snapshot.
+     */
+    public byte[] toBytes()
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + 48 * size());
+
+        try (DataOutputStream output = new DataOutputStream(bytes))
+        {
+            write(output);
+        }
+        catch (IOException e)
+        {
+            // Writing to memory cannot fail.
+            throw new IllegalStateException(e);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    /** Writes the snapshot in its stored form.
+     * @param output The {@link DataOutput} to write to.
+     * @throws IOException If the output could not be written.
+     */
+    public void write(DataOutput output) throws IOException
+    {
+        output.writeInt(MAGIC);
+        output.writeByte(VERSION);
+        output.writeUTF(bridgeIdentifier != null ? bridgeIdentifier : "");
+        output.writeUTF(bridgeIp != null ? bridgeIp : "");
+
+        output.writeShort(lights.size());
+
+        for (CachedLight light : lights.values())
+            writeLight(output, light);
+
+        output.writeShort(groups.size());
+
+        for (CachedLight group : groups.values())
+        {
+            writeLight(output, group);
+            output.writeShort(group.lightIds.size());
+
+            for (String lightId : group.lightIds)
+                output.writeUTF(lightId);
+        }
+    }
+
+    /** Reads a snapshot from its stored form.
+     * @param input The {@link DataInput} to read from.
+     * @return The snapshot.
+     * @throws IOException If the input could not be read, or does not hold a snapshot of the current {@link #VERSION}.
+     */
+    public static BridgeSnapshot read(DataInput input) throws IOException
+    {
+        if (input.readInt() != MAGIC)
+            throw new IOException("Not a bridge snapshot.");
+
+        int version = input.readUnsignedByte();
+
+        if (version != VERSION)
+            throw new IOException("Unsupported bridge snapshot version " + version + ".");
+
+        String bridgeIdentifier = input.readUTF();
+        String bridgeIp = input.readUTF();
+
+        int lightCount = input.readUnsignedShort();
+        Map<String, CachedLight> lights = new LinkedHashMap<>(lightCount * 2);
+
+        for (int i = 0; i < lightCount; i++)
+        {
+            LightSnapshot snapshot = readLight(input);
+            lights.put(snapshot.identifier, new CachedLight(snapshot, false, Collections.singletonList(snapshot.identifier)));
+        }
+
+        int groupCount = input.readUnsignedShort();
+        Map<String, CachedLight> groups = new LinkedHashMap<>(groupCount * 2);
+
+        for (int i = 0; i < groupCount; i++)
+        {
+            LightSnapshot snapshot = readLight(input);
+            int lightIdCount = input.readUnsignedShort();
+            List<String> lightIds = new ArrayList<>(lightIdCount);
+
+            for (int j = 0; j < lightIdCount; j++)
+                lightIds.add(input.readUTF());
+
+            groups.put(snapshot.identifier, new CachedLight(snapshot, true, lightIds));
+        }
+
+        return new BridgeSnapshot(bridgeIdentifier, bridgeIp, lights, groups);
+    }
+
+    /** Writes the values of a light that are common to light points and groups. */
+    private static void writeLight(DataOutput output, CachedLight light) throws IOException
+    {
+        LightSnapshot snapshot = light.snapshot;
+
+        output.writeUTF(snapshot.identifier);
+        output.writeUTF(snapshot.name != null ? snapshot.name : "");
+        output.writeByte((snapshot.on ? FLAG_ON : 0) | (snapshot.supportsColors ? FLAG_SUPPORTS_COLORS : 0));
+        output.writeShort(snapshot.brightness);
+        output.writeInt(snapshot.color);
+        output.writeShort(snapshot.colors.length);
+
+        for (int color : snapshot.colors)
+            output.writeInt(color);
+    }
+
+    /** Reads the values of a light that are common to light points and groups. */
+    private static LightSnapshot readLight(DataInput input) throws IOException
+    {
+        String identifier = input.readUTF();
+        String name = input.readUTF();
+        int flags = input.readUnsignedByte();
+        int brightness = input.readShort();
+        int color = input.readInt();
+        int[] colors = new int[input.readUnsignedShort()];
+
+        for (int i = 0; i < colors.length; i++)
+            colors[i] = input.readInt();
+
+        return new LightSnapshot(identifier, name, (flags & FLAG_ON) != 0, brightness, color, colors, (flags & FLAG_SUPPORTS_COLORS) != 0);
+    }
+
+    //endregion
+}
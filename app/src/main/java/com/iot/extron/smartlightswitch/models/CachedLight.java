@@ -0,0 +1,175 @@
+/*
+ * This file is part of Hue SmartSwitch
+ *
+ * Hue SmartSwitch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package com.iot.extron.smartlightswitch.models;
+
+import com.philips.lighting.hue.sdk.wrapper.connection.BridgeConnectionType;
+import com.philips.lighting.hue.sdk.wrapper.connection.BridgeResponseCallback;
+import com.philips.lighting.hue.sdk.wrapper.domain.ReturnCode;
+import com.philips.lighting.hue.sdk.wrapper.domain.device.light.LightState;
+import com.philips.lighting.hue.sdk.wrapper.domain.resource.Scene;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/** A light point or group as it was last seen on the bridge, restored from a {@link BridgeSnapshot}.  It can be displayed before the bridge has
+ * connected, but not controlled, since there is no bridge object to send commands through. */
+public class CachedLight implements Light
+{
+    //region Fields
+
+    /** The light's values when the snapshot was taken. */
+    final LightSnapshot snapshot;
+
+    /** Whether the light is a group. */
+    final boolean group;
+
+    /** The identifiers of the light points the light controls. */
+    final List<String> lightIds;
+
+    //endregion
+
+
+    //region Constructors
+
+    /** Creates a new {@link CachedLight}.
+     * @param snapshot The light's values when the snapshot was taken.
+     * @param group Whether the light is a group.
+     * @param lightIds The identifiers of the light points the light controls.
+     */
+    public CachedLight(LightSnapshot snapshot, boolean group, List<String> lightIds)
+    {
+        this.snapshot = snapshot;
+        this.group = group;
+        this.lightIds = Collections.unmodifiableList(lightIds);
+    }
+
+    //endregion
+
+
+    //region Light Interface Methods
+
+    @Override
+    public String getIdentifier()
+    {
+        return snapshot.identifier;
+    }
+
+    @Override
+    public boolean isGroup()
+    {
+        return group;
+    }
+
+    @Override
+    public String getName()
+    {
+        return snapshot.name;
+    }
+
+    @Override
+    public int getColor()
+    {
+        return snapshot.color;
+    }
+
+    @Override
+    public List<Integer> getColors()
+    {
+        List<Integer> colors = new ArrayList<>(snapshot.colors.length);
+
+        for (int color : snapshot.colors)
+            colors.add(color);
+
+        return colors;
+    }
+
+    @Override
+    public void getColors(IntHistogram colors)
+    {
+        for (int color : snapshot.colors)
+            colors.add(color);
+    }
+
+    @Override
+    public void getBrightnesses(IntHistogram brightnesses)
+    {
+        brightnesses.add(snapshot.brightness);
+    }
+
+    @Override
+    public int getBrightness()
+    {
+        return snapshot.brightness;
+    }
+
+    @Override
+    public boolean getOn()
+    {
+        return snapshot.on;
+    }
+
+    @Override
+    public boolean getSupportsColors()
+    {
+        return snapshot.supportsColors;
+    }
+
+    @Override
+    public boolean isSceneValid(Scene scene)
+    {
+        for (String id : lightIds)
+        {
+            if (scene.getLightIds().contains(id))
+                return true;
+        }
+
+        return false;
+    }
+
+    @Override
+    public void getLightIds(Collection<String> lightIds)
+    {
+        lightIds.addAll(this.lightIds);
+    }
+
+    /** A cached light cannot be controlled, since there is no bridge to send the state to.  The callback is answered straight away with
+     * {@link ReturnCode#BRIDGE_NOT_SET}, so that callers waiting on the result, such as a {@link LightCommandQueue}, are not left waiting. */
+    @Override
+    public void applyLightState(LightState state, BridgeConnectionType connectionType, BridgeResponseCallback callback)
+    {
+        if (callback != null)
+            callback.handleCallback(null, ReturnCode.BRIDGE_NOT_SET, Collections.emptyList(), Collections.emptyList());
+    }
+
+    //endregion
+
+
+    //region Getters
+
+    /** Gets the light's values when the snapshot was taken.
+     * @return The {@link LightSnapshot}.
+     */
+    public LightSnapshot getSnapshot()
+    {
+        return snapshot;
+    }
+
+    //endregion
+}
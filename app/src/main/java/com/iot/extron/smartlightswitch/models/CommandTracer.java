@@ -0,0 +1,432 @@
+/*
+ * This file is part of Hue SmartSwitch
+ *
+ * Hue SmartSwitch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package com.iot.extron.smartlightswitch.models;
+
+import com.philips.lighting.hue.sdk.wrapper.domain.device.light.LightState;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Measures how long light commands take to take effect.  Each command starts a {@link Trace} when the user acts, and every request the command
+ * makes to the bridge is timestamped as it goes through each {@link Phase}: when it is dispatched to the bridge, when the bridge acknowledges it, and
+ * when a refreshed bridge state containing it is observed.  Latencies from the user's action to each phase are recorded per command type and per
+ * target light or group in {@link LatencyHistogram}s.  Recording never blocks, so the tracer can be called from any thread. */
+public class CommandTracer
+{
+    //region Constants
+
+    /** How long an acknowledged request waits for a refreshed state before it is no longer counted, in nanoseconds. */
+    static final long OBSERVATION_TIMEOUT = TimeUnit.SECONDS.toNanos(30);
+
+    /** The percentiles reported for each phase. */
+    private static final double[] PERCENTILES = { 0.5, 0.95, 0.99 };
+
+    //endregion
+
+
+    //region Fields
+
+    /** The statistics of each {@link CommandType}. */
+    private final Map<CommandType, Stats> typeStats = new ConcurrentHashMap<>();
+
+    /** The statistics of each target, keyed by the same key as {@link LightCommandQueue} uses for the target. */
+    private final Map<String, Stats> targetStats = new ConcurrentHashMap<>();
+
+    /** Requests that have been acknowledged by the bridge but not yet observed in a refreshed state. */
+    private final ConcurrentLinkedQueue<Request> awaitingObservation = new ConcurrentLinkedQueue<>();
+
+    /** The time the most recent bridge state refresh was sent, in {@link System#nanoTime()}. */
+    private volatile long lastRefreshSent = Long.MIN_VALUE;
+
+    //endregion
+
+
+    //region Tracing
+
+    /** Starts tracing a command.  Should be called as soon as the user acts, before any work is done for the command.
+     * @param type The type of the command.
+     * @return A {@link Trace} to pass along with the command's requests.
+     */
+    public Trace begin(CommandType type)
+    {
+        return new Trace(type, System.nanoTime());
+    }
+
+    /** Starts tracing a command that applies a light state.
+     * @param state The {@link LightState} the command applies.
+     * @return A {@link Trace} to pass along with the command's requests.
+     */
+    public Trace begin(LightState state)
+    {
+        return begin(CommandType.of(state));
+    }
+
+    /** Notes that a bridge state refresh has been sent.  Requests acknowledged before this are reflected in the state the refresh returns. */
+    public void refreshSent()
+    {
+        lastRefreshSent = System.nanoTime();
+    }
+
+    /** Notes that a refreshed bridge state has been received, and records the {@link Phase#OBSERVED} latency of every request that was
+     * acknowledged before the refresh was sent.  Requests that have waited longer than {@link #OBSERVATION_TIMEOUT} are dropped. */
+    public void stateRefreshed()
+    {
+        long now = System.nanoTime();
+        long sent = lastRefreshSent;
+
+        for (Iterator<Request> iterator = awaitingObservation.iterator(); iterator.hasNext(); )
+        {
+            Request request = iterator.next();
+
+            if (request.acknowledged - sent <= 0)
+            {
+                iterator.remove();
+                request.record(Phase.OBSERVED, now);
+            }
+            else if (now - request.acknowledged > OBSERVATION_TIMEOUT)
+            {
+                iterator.remove();
+            }
+        }
+    }
+
+    /** Clears all recorded statistics. */
+    public void reset()
+    {
+        typeStats.clear();
+        targetStats.clear();
+        awaitingObservation.clear();
+    }
+
+    //endregion
+
+
+    //region Statistics
+
+    /** Gets the statistics of each command type that has been traced.
+     * @return A map of command types to their statistics, in {@link CommandType} order.
+     */
+    public Map<CommandType, Stats> getTypeStats()
+    {
+        return new TreeMap<>(typeStats);
+    }
+
+    /** Gets the statistics of each light and group that requests have been sent to.
+     * @return A map of target keys to their statistics, sorted by key.
+     */
+    public Map<String, Stats> getTargetStats()
+    {
+        return new TreeMap<>(targetStats);
+    }
+
+    /** Gets the number of commands that have been traced.
+     * @return The number of commands.
+     */
+    public long getCommandCount()
+    {
+        long count = 0;
+
+        for (Stats stats : typeStats.values())
+            count += stats.commands.get();
+
+        return count;
+    }
+
+    /** Formats the statistics as a plain text table, one line per command type and target, with the p50/p95/p99 latency of each phase.
+     * @return The formatted statistics.
+     */
+    public String formatReport()
+    {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format(Locale.US, "%-18s %6s %5s  %-14s  %-14s  %-14s%n", "ms (p50/p95/p99)", "n", "fail", "dispatch", "ack", "observed"));
+
+        for (Map.Entry<CommandType, Stats> entry : getTypeStats().entrySet())
+            appendReportLine(builder, entry.getKey().name().toLowerCase(Locale.US), entry.getValue());
+
+        builder.append(String.format(Locale.US, "%n"));
+
+        for (Map.Entry<String, Stats> entry : getTargetStats().entrySet())
+            appendReportLine(builder, entry.getValue().getName() != null ? entry.getValue().getName() : entry.getKey(), entry.getValue());
+
+        return builder.toString();
+    }
+
+    /** Writes the statistics as comma separated values, one row per command type and target, with the count, mean, percentiles and maximum of each phase.
+     * @param writer The {@link Writer} to write to.  It is not closed.
+     * @throws IOException If the writer fails.
+     */
+    public void writeCsv(Writer writer) throws IOException
+    {
+        writer.write("kind,key,name,requests,failures");
+
+        for (Phase phase : Phase.values())
+        {
+            String p = phase.name().toLowerCase(Locale.US);
+            writer.write("," + p + "_count," + p + "_mean_ms," + p + "_p50_ms," + p + "_p95_ms," + p + "_p99_ms," + p + "_max_ms");
+        }
+
+        writer.write("\n");
+
+        for (Map.Entry<CommandType, Stats> entry : getTypeStats().entrySet())
+            writeCsvRow(writer, "type", entry.getKey().name(), entry.getKey().name().toLowerCase(Locale.US), entry.getValue());
+
+        for (Map.Entry<String, Stats> entry : getTargetStats().entrySet())
+            writeCsvRow(writer, "target", entry.getKey(), entry.getValue().getName(), entry.getValue());
+    }
+
+    //endregion
+
+
+    //region Helpers
+
+    /** Gets the statistics of a command type, creating them if this is the first time the type is traced. */
+    private Stats getStats(CommandType type)
+    {
+        return typeStats.computeIfAbsent(type, key -> new Stats(null));
+    }
+
+    /** Gets the statistics of a target, creating them if this is the first time the target is traced. */
+    private Stats getStats(String targetKey, String name)
+    {
+        Stats stats = targetStats.computeIfAbsent(targetKey, key -> new Stats(name));
+        stats.name = name;
+        return stats;
+    }
+
+    private static void appendReportLine(StringBuilder builder, String label, Stats stats)
+    {
+        if (label.length() > 18)
+            label = label.substring(0, 18);
+
+        builder.append(String.format(Locale.US, "%-18s %6d %5d", label, stats.getRequestCount(), stats.getFailureCount()));
+
+        for (Phase phase : Phase.values())
+        {
+            LatencyHistogram histogram = stats.getHistogram(phase);
+            builder.append(String.format(Locale.US, "  %4.0f/%4.0f/%4.0f", histogram.getPercentile(PERCENTILES[0]), histogram.getPercentile(PERCENTILES[1]), histogram.getPercentile(PERCENTILES[2])));
+        }
+
+        builder.append(String.format(Locale.US, "%n"));
+    }
+
+    private static void writeCsvRow(Writer writer, String kind, String key, String name, Stats stats) throws IOException
+    {
+        StringBuilder builder = new StringBuilder();
+        builder.append(kind).append(',').append(escapeCsv(key)).append(',').append(escapeCsv(name)).append(',').append(stats.getRequestCount()).append(',').append(stats.getFailureCount());
+
+        for (Phase phase : Phase.values())
+        {
+            LatencyHistogram histogram = stats.getHistogram(phase);
+            builder.append(String.format(Locale.US, ",%d,%.1f,%.1f,%.1f,%.1f,%.1f", histogram.getCount(), histogram.getMean(),
+                    histogram.getPercentile(PERCENTILES[0]), histogram.getPercentile(PERCENTILES[1]), histogram.getPercentile(PERCENTILES[2]), histogram.getMax()));
+        }
+
+        writer.write(builder.append('\n').toString());
+    }
+
+    /** Quotes a CSV value if it contains characters that would break the row. */
+    private static String escapeCsv(String value)
+    {
+        if (value == null)
+            return "";
+
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0)
+            return value;
+
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    //endregion
+
+
+    //region Trace Types
+
+    /** The kinds of command that are traced separately, since they take different paths through the bridge. */
+    public enum CommandType
+    {
+        POWER,
+        BRIGHTNESS,
+        COLOR,
+        SCENE,
+        OTHER;
+
+        /** Gets the type of a command that applies a light state, by the field it changes.  A state that changes several fields takes the type of
+         * the first one in the order power, color, brightness.
+         * @param state The {@link LightState} the command applies.
+         * @return The command type.
+         */
+        public static CommandType of(LightState state)
+        {
+            if (state.isOn() != null)
+                return POWER;
+
+            if (state.getXY() != null || state.getCT() != null || state.getHue() != null || state.getSaturation() != null)
+                return COLOR;
+
+            if (state.getBrightness() != null || state.getBrightnessIncrement() != null)
+                return BRIGHTNESS;
+
+            return OTHER;
+        }
+    }
+
+    /** The points in a request's life that latencies are measured to, from the user's action. */
+    public enum Phase
+    {
+        /** The request has been handed to the bridge, after waiting for the request scheduler and for earlier requests to the same light. */
+        DISPATCH,
+
+        /** The bridge has acknowledged the request. */
+        ACK,
+
+        /** A refreshed bridge state that reflects the request has been received. */
+        OBSERVED
+    }
+
+    /** The latencies of one command type or target. */
+    public static class Stats
+    {
+        /** The target's display name, or <code>null</code> for command types. */
+        volatile String name;
+
+        final LatencyHistogram[] histograms = new LatencyHistogram[Phase.values().length];
+        final AtomicLong commands = new AtomicLong();
+        final AtomicLong requests = new AtomicLong();
+        final AtomicLong failures = new AtomicLong();
+
+        Stats(String name)
+        {
+            this.name = name;
+
+            for (int i = 0; i < histograms.length; i++)
+                histograms[i] = new LatencyHistogram();
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+
+        /** Gets the latencies from the user's action to a phase.
+         * @param phase The {@link Phase}.
+         * @return The {@link LatencyHistogram} of the phase.
+         */
+        public LatencyHistogram getHistogram(Phase phase)
+        {
+            return histograms[phase.ordinal()];
+        }
+
+        public long getRequestCount()
+        {
+            return requests.get();
+        }
+
+        public long getFailureCount()
+        {
+            return failures.get();
+        }
+    }
+
+    /** The trace of a single command, which is passed along with each request the command makes.  A command may send several requests, for example
+     * one per selected light, and each is timed separately against the moment the command began. */
+    public class Trace
+    {
+        final CommandType type;
+        final long started;
+
+        Trace(CommandType type, long started)
+        {
+            this.type = type;
+            this.started = started;
+            getStats(type).commands.incrementAndGet();
+        }
+
+        public CommandType getType()
+        {
+            return type;
+        }
+
+        /** Notes that a request of the command has been handed to the bridge.
+         * @param targetKey The key of the light or group the request is sent to.
+         * @param targetName The display name of the target.
+         */
+        public void dispatched(String targetKey, String targetName)
+        {
+            long now = System.nanoTime();
+            Stats target = getStats(targetKey, targetName);
+
+            target.requests.incrementAndGet();
+            getStats(type).requests.incrementAndGet();
+
+            target.getHistogram(Phase.DISPATCH).record(now - started);
+            getStats(type).getHistogram(Phase.DISPATCH).record(now - started);
+        }
+
+        /** Notes that the bridge has answered a request of the command.  Successful requests then wait for a refreshed state to be observed.
+         * @param targetKey The key of the light or group the request was sent to.
+         * @param targetName The display name of the target.
+         * @param success Whether the bridge accepted the request.
+         */
+        public void acknowledged(String targetKey, String targetName, boolean success)
+        {
+            Request request = new Request(this, getStats(targetKey, targetName), System.nanoTime());
+
+            if (!success)
+            {
+                request.target.failures.incrementAndGet();
+                getStats(type).failures.incrementAndGet();
+                return;
+            }
+
+            request.record(Phase.ACK, request.acknowledged);
+            awaitingObservation.add(request);
+        }
+    }
+
+    /** A request of a traced command that the bridge has acknowledged. */
+    private class Request
+    {
+        final Trace trace;
+        final Stats target;
+        final long acknowledged;
+
+        Request(Trace trace, Stats target, long acknowledged)
+        {
+            this.trace = trace;
+            this.target = target;
+            this.acknowledged = acknowledged;
+        }
+
+        /** Records the latency from the start of the request's command to a phase, for both the command type and the target. */
+        void record(Phase phase, long time)
+        {
+            target.getHistogram(phase).record(time - trace.started);
+            getStats(trace.type).getHistogram(phase).record(time - trace.started);
+        }
+    }
+
+    //endregion
+}
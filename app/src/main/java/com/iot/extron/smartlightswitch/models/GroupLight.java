@@ -17,8 +17,7 @@
 
 package com.iot.extron.smartlightswitch.models;
 
-import android.graphics.Color;
-
+import com.iot.extron.smartlightswitch.utilities.HueColorConverter;
 import com.philips.lighting.hue.sdk.wrapper.connection.BridgeConnectionType;
 import com.philips.lighting.hue.sdk.wrapper.connection.BridgeResponseCallback;
 import com.philips.lighting.hue.sdk.wrapper.domain.BridgeState;
@@ -27,9 +26,9 @@ import com.philips.lighting.hue.sdk.wrapper.domain.device.light.LightState;
 import com.philips.lighting.hue.sdk.wrapper.domain.device.light.LightType;
 import com.philips.lighting.hue.sdk.wrapper.domain.resource.Group;
 import com.philips.lighting.hue.sdk.wrapper.domain.resource.Scene;
-import com.philips.lighting.hue.sdk.wrapper.utilities.HueColor;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 /** Abstracts a {@link Group}. */
@@ -54,15 +53,17 @@ public class GroupLight implements Light
      */
     public GroupLight(Group group, BridgeState bridgeState)
     {
-        this.group = group;
-
-        for (String lightId : group.getLightIds())
-        {
-            LightPoint lightPoint = bridgeState.getLight(lightId);
+        setGroup(group, bridgeState);
+    }
 
-            if (lightPoint != null)
-                lights.add(lightPoint);
-        }
+    /** Creates a new {@link GroupLight} that wraps the specified {@link Group}, whose contained lights have already been looked up.
+     * @param group The {@link Group} to wrap.
+     * @param lights The {@link LightPoint}s contained in {@code group}.
+     */
+    public GroupLight(Group group, List<LightPoint> lights)
+    {
+        this.group = group;
+        this.lights.addAll(lights);
     }
 
     //endregion
@@ -76,55 +77,65 @@ public class GroupLight implements Light
         return group.getIdentifier();
     }
 
+    @Override
+    public boolean isGroup()
+    {
+        return true;
+    }
+
     @Override
     public String getName()
     {
         return group.getName();
     }
 
+    /** Gets the single color of the group's lights.  The colors are collected into a histogram local to the call, since groups are read on the
+     * Hue SDK's threads, such as by {@link LightSnapshot#capture}, and on the UI thread at the same time. */
     @Override
     public int getColor()
     {
-        List<Integer> uniqueColors = getColors();
+        IntHistogram colors = new IntHistogram();
+        getColors(colors);
 
-        if (uniqueColors.size() > 1)
-            return COLOR_MULTIPLE;
-        else
-            return uniqueColors.get(0);
+        // A group without any lights has no single color, so it is reported the same as one with several.
+        return colors.getSingleValue(COLOR_MULTIPLE);
     }
 
     @Override
     public List<Integer> getColors()
     {
-        List<Integer> uniqueColors = new ArrayList<>();
+        IntHistogram colors = new IntHistogram();
+        getColors(colors);
 
-        for (LightPoint light : lights)
-        {
-            HueColor.RGB rgb = light.getLightState().getColor().getRGB();
-            int color = Color.argb(255, rgb.r, rgb.g, rgb.b);
-            if (!uniqueColors.contains(color))
-                uniqueColors.add(color);
-        }
+        List<Integer> uniqueColors = new ArrayList<>(colors.size());
+
+        for (int color : colors.toSortedArray())
+            uniqueColors.add(color);
 
         return uniqueColors;
     }
 
+    @Override
+    public void getColors(IntHistogram colors)
+    {
+        for (LightPoint light : lights)
+            colors.add(HueColorConverter.getColor(light.getLightState(), HueColorConverter.getGamut(light)));
+    }
+
     @Override
     public int getBrightness()
     {
-        List<Integer> uniqueBrightnesses = new ArrayList<>();
+        IntHistogram brightnesses = new IntHistogram();
+        getBrightnesses(brightnesses);
 
-        for (LightPoint light : lights)
-        {
-            int brightness = light.getLightState().getBrightness();
-            if (!uniqueBrightnesses.contains(brightness))
-                uniqueBrightnesses.add(brightness);
-        }
+        return brightnesses.getSingleValue(BRIGHTNESS_MULTIPLE);
+    }
 
-        if (uniqueBrightnesses.size() > 1)
-            return BRIGHTNESS_MULTIPLE;
-        else
-            return uniqueBrightnesses.get(0);
+    @Override
+    public void getBrightnesses(IntHistogram brightnesses)
+    {
+        for (LightPoint light : lights)
+            brightnesses.add(light.getLightState().getBrightness());
     }
 
     @Override
@@ -165,6 +176,12 @@ public class GroupLight implements Light
         return false;
     }
 
+    @Override
+    public void getLightIds(Collection<String> lightIds)
+    {
+        lightIds.addAll(group.getLightIds());
+    }
+
     @Override
     public void applyLightState(LightState state, BridgeConnectionType connectionType, BridgeResponseCallback callback)
     {
@@ -184,5 +201,23 @@ public class GroupLight implements Light
         return group;
     }
 
+    /** Replaces the encapsulated {@link Group}, such as with a newer copy from a refreshed bridge state, and looks up its contained lights again.
+     * @param group The {@link Group} to wrap.
+     * @param bridgeState The {@link BridgeState} that contains the lights in {@code group}.
+     */
+    void setGroup(Group group, BridgeState bridgeState)
+    {
+        this.group = group;
+        lights.clear();
+
+        for (String lightId : group.getLightIds())
+        {
+            LightPoint lightPoint = bridgeState.getLight(lightId);
+
+            if (lightPoint != null)
+                lights.add(lightPoint);
+        }
+    }
+
     //endregion
 }
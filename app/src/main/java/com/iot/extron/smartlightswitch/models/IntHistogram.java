@@ -0,0 +1,267 @@
+/*
+ * This file is part of Hue SmartSwitch
+ *
+ * Hue SmartSwitch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package com.iot.extron.smartlightswitch.models;
+
+import java.util.Arrays;
+
+/** A counted set of primitive <code>int</code>s, such as colors or brightnesses.  Values are stored in an open addressing hash table, so adding,
+ * removing and looking up values never boxes them, and a histogram that is cleared and refilled does not allocate once it has grown to size.
+ * The histogram doubles as a plain set of values when only presence matters. */
+public class IntHistogram
+{
+    //region Static Fields
+
+    /** The number of slots a new histogram starts with.  Must be a power of two. */
+    private static final int DEFAULT_CAPACITY = 8;
+
+    //endregion
+
+
+    //region Fields
+
+    /** The values in the table, valid only where the matching count is non-zero. */
+    private int[] keys;
+
+    /** The count of each value in the table, where a count of zero marks an empty slot. */
+    private int[] counts;
+
+    /** The number of distinct values in the histogram. */
+    private int size;
+
+    //endregion
+
+
+    //region Constructors
+
+    /** Creates a new, empty histogram. */
+    public IntHistogram()
+    {
+        keys = new int[DEFAULT_CAPACITY];
+        counts = new int[DEFAULT_CAPACITY];
+    }
+
+    //endregion
+
+
+    //region Histogram Methods
+
+    /** Counts one occurrence of a value.
+     * @param value The value to add.
+     * @return Returns <code>true</code> if the value was not previously in the histogram.
+     */
+    public boolean add(int value)
+    {
+        int slot = findSlot(value);
+
+        if (counts[slot] > 0)
+        {
+            counts[slot]++;
+            return false;
+        }
+
+        keys[slot] = value;
+        counts[slot] = 1;
+        size++;
+
+        // Keep the table at most half full so that probe sequences stay short.
+        if (2 * size > keys.length)
+            resize(2 * keys.length);
+
+        return true;
+    }
+
+    /** Removes one occurrence of a value.
+     * @param value The value to remove.
+     * @return Returns <code>true</code> if this was the last occurrence and the value is no longer in the histogram.
+     */
+    public boolean remove(int value)
+    {
+        int slot = findSlot(value);
+
+        if (counts[slot] == 0)
+            return false;
+
+        if (--counts[slot] > 0)
+            return false;
+
+        size--;
+        closeGap(slot);
+        return true;
+    }
+
+    /** Gets the number of occurrences of a value.
+     * @param value The value to look up.
+     * @return The number of times the value has been added, or zero if it is not in the histogram.
+     */
+    public int count(int value)
+    {
+        return counts[findSlot(value)];
+    }
+
+    /** Gets whether the histogram contains a value.
+     * @param value The value to look up.
+     * @return Returns <code>true</code> if the value has been added at least once.
+     */
+    public boolean contains(int value)
+    {
+        return counts[findSlot(value)] > 0;
+    }
+
+    /** Gets the number of distinct values in the histogram.
+     * @return The number of distinct values.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /** Gets whether the histogram contains no values.
+     * @return Returns <code>true</code> if the histogram is empty.
+     */
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    /** Removes all values from the histogram, keeping its storage for reuse. */
+    public void clear()
+    {
+        if (size > 0)
+        {
+            Arrays.fill(counts, 0);
+            size = 0;
+        }
+    }
+
+    /** Gets the only distinct value in the histogram.
+     * @param defaultValue The value to return if the histogram is empty or contains more than one distinct value.
+     * @return The single value, or <code>defaultValue</code>.
+     */
+    public int getSingleValue(int defaultValue)
+    {
+        if (size != 1)
+            return defaultValue;
+
+        for (int i = 0; i < counts.length; i++)
+        {
+            if (counts[i] > 0)
+                return keys[i];
+        }
+
+        return defaultValue;
+    }
+
+    /** Copies the distinct values in the histogram into a buffer, in no particular order.
+     * @param buffer The buffer to copy into.  Must have room for at least {@link #size()} values.
+     * @return The number of values copied.
+     */
+    public int copyValues(int[] buffer)
+    {
+        int n = 0;
+
+        for (int i = 0; i < counts.length; i++)
+        {
+            if (counts[i] > 0)
+                buffer[n++] = keys[i];
+        }
+
+        return n;
+    }
+
+    /** Gets the distinct values in the histogram in ascending order.
+     * @return A new array of the distinct values.
+     */
+    public int[] toSortedArray()
+    {
+        int[] values = new int[size];
+        copyValues(values);
+        Arrays.sort(values);
+        return values;
+    }
+
+    //endregion
+
+
+    //region Hash Table Helpers
+
+    /** Spreads the bits of a value so that similar values, such as colors that differ only in their blue channel, land in different slots. */
+    private static int hash(int value)
+    {
+        int h = value * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /** Finds the slot holding a value, or the empty slot where it would be inserted. */
+    private int findSlot(int value)
+    {
+        int mask = keys.length - 1;
+        int slot = hash(value) & mask;
+
+        while (counts[slot] > 0 && keys[slot] != value)
+            slot = (slot + 1) & mask;
+
+        return slot;
+    }
+
+    /** Closes the gap left by an emptied slot by shifting back any later values in the same probe run, so lookups never stop early. */
+    private void closeGap(int gap)
+    {
+        int mask = keys.length - 1;
+        int slot = (gap + 1) & mask;
+
+        while (counts[slot] > 0)
+        {
+            int home = hash(keys[slot]) & mask;
+
+            // The value can fill the gap if its home slot does not lie cyclically within (gap, slot].
+            boolean canMove = (gap <= slot) ? (home <= gap || home > slot) : (home <= gap && home > slot);
+
+            if (canMove)
+            {
+                keys[gap] = keys[slot];
+                counts[gap] = counts[slot];
+                counts[slot] = 0;
+                gap = slot;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /** Rehashes every value into a table with the specified number of slots. */
+    private void resize(int capacity)
+    {
+        int[] oldKeys = keys;
+        int[] oldCounts = counts;
+
+        keys = new int[capacity];
+        counts = new int[capacity];
+
+        for (int i = 0; i < oldKeys.length; i++)
+        {
+            if (oldCounts[i] > 0)
+            {
+                int slot = findSlot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    //endregion
+}
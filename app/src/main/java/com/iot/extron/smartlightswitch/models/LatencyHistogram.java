@@ -0,0 +1,181 @@
+/*
+ * This file is part of Hue SmartSwitch
+ *
+ * Hue SmartSwitch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package com.iot.extron.smartlightswitch.models;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/** A histogram of latencies that can be recorded to from any thread without locking.  Latencies are counted in log-linear buckets of microseconds:
+ * every power of two is split into {@link #SUB_BUCKET_COUNT} equal buckets, so percentiles are accurate to within about 3% however long the
+ * latencies are, and the histogram never grows. */
+public class LatencyHistogram
+{
+    //region Constants
+
+    /** The number of bits of a latency that are kept exactly. */
+    private static final int SUB_BUCKET_BITS = 5;
+
+    /** The number of buckets each power of two is split into. */
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    /** The highest bit of the longest latency that can be told apart, about 18 minutes.  Longer latencies are counted in the last bucket. */
+    private static final int MAX_MAGNITUDE = 30;
+
+    /** The total number of buckets. */
+    private static final int BUCKET_COUNT = (MAX_MAGNITUDE - SUB_BUCKET_BITS + 2) * SUB_BUCKET_COUNT;
+
+    //endregion
+
+
+    //region Fields
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    //endregion
+
+
+    //region Recording
+
+    /** Records a latency.
+     * @param nanos The latency, in nanoseconds.  Negative latencies are recorded as zero.
+     */
+    public void record(long nanos)
+    {
+        long micros = Math.max(0, nanos / 1000);
+
+        buckets.incrementAndGet(getBucketIndex(micros));
+        count.incrementAndGet();
+        total.addAndGet(micros);
+
+        long current = max.get();
+
+        while (micros > current && !max.compareAndSet(current, micros))
+            current = max.get();
+    }
+
+    /** Clears all recorded latencies.  Latencies recorded while the histogram is being cleared may or may not be kept. */
+    public void reset()
+    {
+        for (int i = 0; i < BUCKET_COUNT; i++)
+            buckets.set(i, 0);
+
+        count.set(0);
+        total.set(0);
+        max.set(0);
+    }
+
+    //endregion
+
+
+    //region Statistics
+
+    /** Gets the number of latencies recorded.
+     * @return The number of latencies.
+     */
+    public long getCount()
+    {
+        return count.get();
+    }
+
+    /** Gets the mean of the recorded latencies.
+     * @return The mean latency, in milliseconds, or <code>0</code> if nothing has been recorded.
+     */
+    public double getMean()
+    {
+        long n = count.get();
+        return n == 0 ? 0 : total.get() / (double)n / 1000.0;
+    }
+
+    /** Gets the longest recorded latency.
+     * @return The longest latency, in milliseconds.
+     */
+    public double getMax()
+    {
+        return max.get() / 1000.0;
+    }
+
+    /** Gets the latency that a given fraction of the recorded latencies were at or below.
+     * @param fraction The fraction, between 0 and 1, for example <code>0.95</code> for the 95th percentile.
+     * @return The latency, in milliseconds, or <code>0</code> if nothing has been recorded.
+     */
+    public double getPercentile(double fraction)
+    {
+        // Take a copy first, so that latencies recorded part way through the walk cannot push the rank past the end.
+        long[] counts = new long[BUCKET_COUNT];
+        long n = 0;
+
+        for (int i = 0; i < BUCKET_COUNT; i++)
+        {
+            counts[i] = buckets.get(i);
+            n += counts[i];
+        }
+
+        if (n == 0)
+            return 0;
+
+        long rank = Math.max(1, (long)Math.ceil(fraction * n));
+        long seen = 0;
+
+        for (int i = 0; i < BUCKET_COUNT; i++)
+        {
+            seen += counts[i];
+
+            if (seen >= rank)
+                return Math.min(getBucketMidpoint(i), max.get()) / 1000.0;
+        }
+
+        return getMax();
+    }
+
+    //endregion
+
+
+    //region Helpers
+
+    /** Gets the bucket a latency is counted in.  Latencies below twice the sub-bucket count get a bucket each, and every power of two above that is
+     * split into {@link #SUB_BUCKET_COUNT} buckets. */
+    static int getBucketIndex(long micros)
+    {
+        if (micros < 2 * SUB_BUCKET_COUNT)
+            return (int)micros;
+
+        int magnitude = 63 - Long.numberOfLeadingZeros(micros);
+
+        if (magnitude > MAX_MAGNITUDE)
+            return BUCKET_COUNT - 1;
+
+        int shift = magnitude - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKET_COUNT + (int)((micros >> shift) - SUB_BUCKET_COUNT);
+    }
+
+    /** Gets the latency in the middle of a bucket, in microseconds. */
+    static long getBucketMidpoint(int index)
+    {
+        if (index < 2 * SUB_BUCKET_COUNT)
+            return index;
+
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        long lower = (long)(index % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT) << shift;
+        return lower + (1L << shift) / 2;
+    }
+
+    //endregion
+}
@@ -22,6 +22,7 @@ import com.philips.lighting.hue.sdk.wrapper.connection.BridgeResponseCallback;
 import com.philips.lighting.hue.sdk.wrapper.domain.device.light.LightState;
 import com.philips.lighting.hue.sdk.wrapper.domain.resource.Scene;
 
+import java.util.Collection;
 import java.util.List;
 
 /** An abstraction for {@link LightPoint} and {@link Group}. */
@@ -45,6 +46,11 @@ public interface Light
      */
     public String getIdentifier();
 
+    /** Gets whether the light is a group of light points.  Light points and groups have separate identifier spaces on the bridge.
+     * @return Returns <code>true</code> if the light is a group, otherwise <code>false</code>.
+     */
+    public boolean isGroup();
+
     /** Gets the name of the light.
      * @return The light's name.
      */
@@ -60,6 +66,16 @@ public interface Light
      */
     public List<Integer> getColors();
 
+    /** Counts the color of every light point in the light into a histogram, without allocating.
+     * @param colors The histogram to count the light's colors into.  It is not cleared first.
+     */
+    public void getColors(IntHistogram colors);
+
+    /** Counts the brightness of every light point in the light into a histogram, without allocating.
+     * @param brightnesses The histogram to count the light's brightnesses into.  It is not cleared first.
+     */
+    public void getBrightnesses(IntHistogram brightnesses);
+
     /** Gets the brightness of the light.
      * @return The light's brightness.  Will return <code>BRIGHTNESS_MULTIPLE</code> if the light has multiple brightnesses.
      */
@@ -81,6 +97,11 @@ public interface Light
      */
     public boolean isSceneValid(Scene scene);
 
+    /** Adds the identifiers of the light points this {@link Light} controls to a collection.
+     * @param lightIds The collection to add the light point identifiers to.
+     */
+    public void getLightIds(Collection<String> lightIds);
+
     /** Applies the specified {@link LightState} to the light
      * @param state The state to apply.
      * @param connectionType The {@link BridgeConnectionType} to the Hue bridge to apply the state over.
@@ -0,0 +1,359 @@
+/*
+ * This file is part of Hue SmartSwitch
+ *
+ * Hue SmartSwitch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package com.iot.extron.smartlightswitch.models;
+
+import com.philips.lighting.hue.sdk.wrapper.domain.BridgeState;
+import com.philips.lighting.hue.sdk.wrapper.domain.device.light.LightPoint;
+import com.philips.lighting.hue.sdk.wrapper.domain.resource.Group;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Plans the bridge commands needed to apply one light state to a set of {@link Light}s.  A selected group is always sent as one group command,
+ * so that its lights change together.  Rather than sending one command per individually selected light, the planner looks for bridge
+ * {@link Group}s made up entirely of those light points and sends a single group command for each, falling back to individual light commands for
+ * whatever is left.  The bridge budgets a group command at {@link BridgeRequestScheduler#GROUP_REQUEST_COST} light requests,
+ * so a group is only used where it replaces light commands that would cost more than that, which cuts bridge traffic and lets the lights in a
+ * large group change together. */
+public class LightCommandPlanner
+{
+    //region Static Fields
+
+    /** The fewest not yet covered light points a bridge group that was not selected must cover to be used instead of individual commands, which is the fewest light
+     * requests that cost more than one group request. */
+    static final int MIN_GROUP_COVERAGE = BridgeRequestScheduler.GROUP_REQUEST_COST / BridgeRequestScheduler.LIGHT_REQUEST_COST + 1;
+
+    //endregion
+
+
+    //region Planning
+
+    /** Plans the commands for a list of lights.
+     * @param lights The lights the state should be applied to.
+     * @param bridgeState The bridge state holding the bridge's groups and light points, or <code>null</code> to send one command per light.
+     * @return The plan.
+     */
+    public static Plan plan(List<Light> lights, BridgeState bridgeState)
+    {
+        return plan(lights, layoutOf(bridgeState));
+    }
+
+    /** Plans the commands for a list of lights.
+     * @param lights The lights the state should be applied to.
+     * @param layout The {@link BridgeLayout} holding the bridge's groups and light points, or <code>null</code> to send one command per light.
+     * @return The plan.
+     */
+    public static Plan plan(List<Light> lights, BridgeLayout layout)
+    {
+        Plan plan = new Plan(lights.size());
+
+        if (layout == null)
+        {
+            for (int i = 0; i < lights.size(); i++)
+                plan.cover(i, plan.addCommand(lights.get(i)));
+
+            return plan;
+        }
+
+        // Send every selected group as the single group command the user asked for, and number every individually selected light point, remembering
+        // which of the lights each one came from.
+        Map<String, Integer> pointIndices = new HashMap<>();
+        List<String> pointIds = new ArrayList<>();
+        List<List<Integer>> pointOwners = new ArrayList<>();
+        Map<String, SingleLight> singleLights = new HashMap<>();
+        Map<String, Integer> selectedGroupCommands = new HashMap<>();
+        Map<String, Integer> groupCommandsByPoint = new HashMap<>();
+
+        for (int i = 0; i < lights.size(); i++)
+        {
+            Light light = lights.get(i);
+
+            if (light instanceof SingleLight)
+            {
+                singleLights.put(light.getIdentifier(), (SingleLight)light);
+                addPoint(light.getIdentifier(), i, pointIndices, pointIds, pointOwners);
+                continue;
+            }
+
+            Integer command = light instanceof GroupLight ? selectedGroupCommands.get(light.getIdentifier()) : null;
+
+            if (command == null)
+            {
+                command = plan.addCommand(light);
+
+                if (light instanceof GroupLight)
+                {
+                    selectedGroupCommands.put(light.getIdentifier(), command);
+
+                    for (LightPoint lightPoint : ((GroupLight)light).lights)
+                        groupCommandsByPoint.put(lightPoint.getIdentifier(), command);
+                }
+            }
+
+            plan.cover(i, command);
+        }
+
+        // Light points that were also selected on their own are already reached by a selected group's command.
+        BitSet uncovered = new BitSet(pointIds.size());
+        uncovered.set(0, pointIds.size());
+
+        for (int p = 0; p < pointIds.size(); p++)
+        {
+            Integer command = groupCommandsByPoint.get(pointIds.get(p));
+
+            if (command == null)
+                continue;
+
+            for (int owner : pointOwners.get(p))
+                plan.cover(owner, command);
+
+            uncovered.clear(p);
+        }
+
+        // The candidate groups are the bridge groups that were not selected and whose light points are all individually selected.  A group member
+        // that is missing from the bridge cannot be changed by a group command, so it does not stop the group from being a candidate.
+        List<Group> candidates = new ArrayList<>();
+        List<BitSet> candidateMembers = new ArrayList<>();
+
+        for (Group group : layout.getGroups())
+        {
+            List<String> lightIds = group.getLightIds();
+
+            if (lightIds == null || lightIds.size() < MIN_GROUP_COVERAGE || selectedGroupCommands.containsKey(group.getIdentifier()))
+                continue;
+
+            BitSet members = new BitSet(pointIds.size());
+            boolean contained = true;
+
+            for (String lightId : lightIds)
+            {
+                Integer index = pointIndices.get(lightId);
+
+                if (index != null)
+                    members.set(index);
+                else if (layout.getLight(lightId) != null)
+                {
+                    contained = false;
+                    break;
+                }
+            }
+
+            if (contained && members.cardinality() >= MIN_GROUP_COVERAGE)
+            {
+                candidates.add(group);
+                candidateMembers.add(members);
+            }
+        }
+
+        // Greedily pick the group covering the most remaining light points until no group covers enough of them to be cheaper than commanding
+        // each one.
+        while (!uncovered.isEmpty())
+        {
+            int best = -1;
+            int bestCoverage = MIN_GROUP_COVERAGE - 1;
+
+            for (int c = 0; c < candidates.size(); c++)
+            {
+                BitSet coverage = (BitSet)candidateMembers.get(c).clone();
+                coverage.and(uncovered);
+
+                if (coverage.cardinality() > bestCoverage)
+                {
+                    best = c;
+                    bestCoverage = coverage.cardinality();
+                }
+            }
+
+            if (best < 0)
+                break;
+
+            BitSet members = candidateMembers.get(best);
+            int command = plan.addCommand(createGroupLight(candidates.get(best), layout));
+
+            for (int p = members.nextSetBit(0); p >= 0; p = members.nextSetBit(p + 1))
+            {
+                for (int owner : pointOwners.get(p))
+                    plan.cover(owner, command);
+            }
+
+            uncovered.andNot(members);
+            candidates.remove(best);
+            candidateMembers.remove(best);
+        }
+
+        // Whatever is left is sent to each light point individually.
+        for (int p = uncovered.nextSetBit(0); p >= 0; p = uncovered.nextSetBit(p + 1))
+        {
+            int command = plan.addCommand(singleLights.get(pointIds.get(p)));
+
+            for (int owner : pointOwners.get(p))
+                plan.cover(owner, command);
+        }
+
+        // Every light must hear back from at least one command, so anything the plan failed to reach is sent as selected.
+        for (int i = 0; i < lights.size(); i++)
+        {
+            if (plan.getCommandsForLight(i).isEmpty())
+                plan.cover(i, plan.addCommand(lights.get(i)));
+        }
+
+        return plan;
+    }
+
+    /** Wraps a group that was not selected in a {@link GroupLight}, with those of its light points that are on the bridge. */
+    private static GroupLight createGroupLight(Group group, BridgeLayout layout)
+    {
+        List<LightPoint> contained = new ArrayList<>();
+
+        for (String id : group.getLightIds())
+        {
+            LightPoint lightPoint = layout.getLight(id);
+
+            if (lightPoint != null)
+                contained.add(lightPoint);
+        }
+
+        return new GroupLight(group, contained);
+    }
+
+    /** Adapts a {@link BridgeState} to a {@link BridgeLayout}.
+     * @param bridgeState The bridge state, or <code>null</code>.
+     * @return The layout, or <code>null</code> if the bridge state is <code>null</code>.
+     */
+    public static BridgeLayout layoutOf(final BridgeState bridgeState)
+    {
+        if (bridgeState == null)
+            return null;
+
+        return new BridgeLayout()
+        {
+            @Override
+            public List<Group> getGroups()
+            {
+                return bridgeState.getGroups();
+            }
+
+            @Override
+            public LightPoint getLight(String identifier)
+            {
+                return bridgeState.getLight(identifier);
+            }
+        };
+    }
+
+    /** Numbers a targeted light point the first time it is seen, and records that a light contains it. */
+    private static void addPoint(String id, int owner, Map<String, Integer> pointIndices, List<String> pointIds, List<List<Integer>> pointOwners)
+    {
+        Integer index = pointIndices.get(id);
+
+        if (index == null)
+        {
+            index = pointIds.size();
+            pointIndices.put(id, index);
+            pointIds.add(id);
+            pointOwners.add(new ArrayList<>());
+        }
+
+        List<Integer> owners = pointOwners.get(index);
+
+        if (!owners.contains(owner))
+            owners.add(owner);
+    }
+
+    //endregion
+
+
+    //region Bridge Layout
+
+    /** The groups and light points of a bridge that commands are planned around.  Usually the SDK's {@link BridgeState}, through
+     * {@link #layoutOf(BridgeState)}. */
+    public interface BridgeLayout
+    {
+        /** Gets every group on the bridge.
+         * @return The groups.
+         */
+        public List<Group> getGroups();
+
+        /** Gets a light point on the bridge.
+         * @param identifier The light point's identifier.
+         * @return The light point, or <code>null</code> if the bridge does not have it.
+         */
+        public LightPoint getLight(String identifier);
+    }
+
+    //endregion
+
+
+    //region Plan
+
+    /** A planned set of commands, along with which commands each of the original lights depends on. */
+    public static class Plan
+    {
+        /** The lights that commands are sent to. */
+        final List<Light> commands = new ArrayList<>();
+
+        /** For each of the original lights, the indices of the commands that reach it. */
+        final List<List<Integer>> coverage;
+
+        private Plan(int lightCount)
+        {
+            coverage = new ArrayList<>(lightCount);
+
+            for (int i = 0; i < lightCount; i++)
+                coverage.add(new ArrayList<>());
+        }
+
+        /** Adds a command and returns its index. */
+        private int addCommand(Light target)
+        {
+            commands.add(target);
+            return commands.size() - 1;
+        }
+
+        /** Records that a command reaches one of the original lights. */
+        private void cover(int light, int command)
+        {
+            List<Integer> commandsForLight = coverage.get(light);
+
+            if (!commandsForLight.contains(command))
+                commandsForLight.add(command);
+        }
+
+        /** Gets the lights that commands should be sent to.
+         * @return The command targets.
+         */
+        public List<Light> getCommands()
+        {
+            return commands;
+        }
+
+        /** Gets the indices of the commands that reach one of the original lights.
+         * @param light The index of the light in the list the plan was made for.
+         * @return The indices into {@link #getCommands()}.
+         */
+        public List<Integer> getCommandsForLight(int light)
+        {
+            return coverage.get(light);
+        }
+    }
+
+    //endregion
+}
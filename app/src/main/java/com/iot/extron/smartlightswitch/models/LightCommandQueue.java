@@ -0,0 +1,361 @@
+/*
+ * This file is part of Hue SmartSwitch
+ *
+ * Hue SmartSwitch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package com.iot.extron.smartlightswitch.models;
+
+import com.philips.lighting.hue.sdk.wrapper.connection.BridgeConnectionType;
+import com.philips.lighting.hue.sdk.wrapper.connection.BridgeResponseCallback;
+import com.philips.lighting.hue.sdk.wrapper.domain.Bridge;
+import com.philips.lighting.hue.sdk.wrapper.domain.HueError;
+import com.philips.lighting.hue.sdk.wrapper.domain.ReturnCode;
+import com.philips.lighting.hue.sdk.wrapper.domain.clip.ClipResponse;
+import com.philips.lighting.hue.sdk.wrapper.domain.clip.DoublePair;
+import com.philips.lighting.hue.sdk.wrapper.domain.device.light.LightState;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/** Sits in front of {@link Light#applyLightState} and keeps at most one request in flight per light.  Light states submitted for a light while a
+ * request to it is in flight are merged into a single pending {@link LightState}, where the last submitted value of each field wins, and are sent
+ * together once the in flight request completes.  Every submitter still receives a callback, with the result of the request that carried its state.
+ * A request the bridge does not answer within {@link #REQUEST_TIMEOUT} is answered with {@link ReturnCode#REQUEST_TIMED_OUT}, so that a dropped
+ * connection cannot leave a light busy forever. */
+public class LightCommandQueue
+{
+    //region Static Fields
+
+    /** The time in milliseconds to wait for the bridge to answer a request before giving up on it. */
+    static final long REQUEST_TIMEOUT = 5000;
+
+    //endregion
+
+
+    //region Fields
+
+    /** The per-light command state, keyed by {@link #getTargetKey(Light)}.  Entries only exist while a request to the light is in flight. */
+    private final Map<String, Target> targets = new HashMap<>();
+
+    /** The scheduler that requests are sent to the bridge through. */
+    private final BridgeRequestScheduler scheduler;
+
+    /** The time in milliseconds to wait for the bridge to answer a request. */
+    private final long requestTimeout;
+
+    /** The thread that unanswered requests are timed out on. */
+    private final ScheduledExecutorService timeoutExecutor = Executors.newSingleThreadScheduledExecutor(runnable ->
+    {
+        Thread thread = new Thread(runnable, "LightCommandQueue");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    //endregion
+
+
+    //region Constructors
+
+    /** Creates a new command queue.
+     * @param scheduler The {@link BridgeRequestScheduler} that requests are sent to the bridge through, in its {@link BridgeRequestScheduler.Lane#INTERACTIVE} lane.
+     */
+    public LightCommandQueue(BridgeRequestScheduler scheduler)
+    {
+        this(scheduler, REQUEST_TIMEOUT);
+    }
+
+    /** Creates a new command queue that waits a given time for the bridge to answer each request.
+     * @param scheduler The {@link BridgeRequestScheduler} that requests are sent to the bridge through, in its {@link BridgeRequestScheduler.Lane#INTERACTIVE} lane.
+     * @param requestTimeout The time in milliseconds to wait for the bridge to answer a request before answering it with
+     *                       {@link ReturnCode#REQUEST_TIMED_OUT}.
+     */
+    public LightCommandQueue(BridgeRequestScheduler scheduler, long requestTimeout)
+    {
+        this.scheduler = scheduler;
+        this.requestTimeout = requestTimeout;
+    }
+
+    //endregion
+
+
+    //region Queue Methods
+
+    /** Submits a new light state for a light.  The state is sent immediately if nothing is in flight for the light, otherwise it is merged with any
+     * other pending states for the light and sent when the in flight request completes.
+     * @param light The light to apply the state to.
+     * @param state The state to apply.  The queue does not modify it.
+     * @param connectionType The {@link BridgeConnectionType} to the Hue bridge to apply the state over.
+     * @param callback A {@link BridgeResponseCallback} to receive the response of the request that carries the state.
+     */
+    public void submit(Light light, LightState state, BridgeConnectionType connectionType, BridgeResponseCallback callback)
+    {
+        submit(light, state, connectionType, null, callback);
+    }
+
+    /** Submits a new light state for a light, and traces the request that carries it.
+     * @param light The light to apply the state to.
+     * @param state The state to apply.  The queue does not modify it.
+     * @param connectionType The {@link BridgeConnectionType} to the Hue bridge to apply the state over.
+     * @param trace The {@link CommandTracer.Trace} of the command the state belongs to, or <code>null</code> to not trace it.
+     * @param callback A {@link BridgeResponseCallback} to receive the response of the request that carries the state.
+     */
+    public void submit(Light light, LightState state, BridgeConnectionType connectionType, CommandTracer.Trace trace, BridgeResponseCallback callback)
+    {
+        String key = getTargetKey(light);
+        Target target;
+        Command command;
+
+        synchronized (targets)
+        {
+            target = targets.get(key);
+
+            if (target == null)
+            {
+                target = new Target(key);
+                targets.put(key, target);
+
+                command = new Command(light, state, connectionType);
+                command.add(callback, trace);
+            }
+            else
+            {
+                // A request is already in flight, so fold the state into whatever is waiting behind it.
+                if (target.pending == null)
+                    target.pending = new Command(light, state.clone(), connectionType);
+                else
+                    target.pending.merge(light, state, connectionType);
+
+                target.pending.add(callback, trace);
+                return;
+            }
+        }
+
+        send(target, command);
+    }
+
+    /** Gets the number of lights that currently have a request in flight.
+     * @return The number of busy lights.
+     */
+    public int getBusyCount()
+    {
+        synchronized (targets)
+        {
+            return targets.size();
+        }
+    }
+
+    /** Sends a command to its light, and when it completes, sends the next pending command for the light if there is one.  If the light throws
+     * instead of answering, the command is answered with {@link ReturnCode#ERROR}, and if the bridge does not answer in time, with
+     * {@link ReturnCode#REQUEST_TIMED_OUT}, so that the light does not stay busy forever.  Only the first answer completes the command, so a late
+     * answer from the bridge is ignored. */
+    private void send(final Target target, final Command command)
+    {
+        int cost = command.light.isGroup() ? BridgeRequestScheduler.GROUP_REQUEST_COST : BridgeRequestScheduler.LIGHT_REQUEST_COST;
+
+        scheduler.schedule(BridgeRequestScheduler.Lane.INTERACTIVE, cost, () ->
+        {
+            for (CommandTracer.Trace trace : command.traces)
+                trace.dispatched(target.key, command.light.getName());
+
+            BridgeResponseCallback completion = new BridgeResponseCallback()
+            {
+                /** Set once the command has been answered, so that a light that both answers and throws, or answers after timing out, only
+                 * completes it once. */
+                private final AtomicBoolean answered = new AtomicBoolean();
+
+                /** Answers the command if the bridge has not answered it in time. */
+                private final ScheduledFuture<?> timeout = timeoutExecutor.schedule(() ->
+                        handleCallback(null, ReturnCode.REQUEST_TIMED_OUT, Collections.emptyList(), Collections.emptyList()),
+                        requestTimeout, TimeUnit.MILLISECONDS);
+
+                @Override
+                public void handleCallback(Bridge bridge, ReturnCode returnCode, List<ClipResponse> responses, List<HueError> errors)
+                {
+                    if (!answered.compareAndSet(false, true))
+                        return;
+
+                    timeout.cancel(false);
+
+                    for (CommandTracer.Trace trace : command.traces)
+                        trace.acknowledged(target.key, command.light.getName(), returnCode == ReturnCode.SUCCESS);
+
+                    Command next;
+
+                    synchronized (targets)
+                    {
+                        next = target.pending;
+                        target.pending = null;
+
+                        if (next == null)
+                            targets.remove(target.key);
+                    }
+
+                    if (next != null)
+                        send(target, next);
+
+                    for (BridgeResponseCallback callback : command.callbacks)
+                        callback.handleCallback(bridge, returnCode, responses, errors);
+                }
+            };
+
+            try
+            {
+                command.light.applyLightState(command.state, command.connectionType, completion);
+            }
+            catch (RuntimeException e)
+            {
+                completion.handleCallback(null, ReturnCode.ERROR, Collections.emptyList(), Collections.emptyList());
+            }
+        });
+    }
+
+    //endregion
+
+
+    //region Helpers
+
+    /** Gets the key a light's commands are queued under.  Light points and groups have separate identifier spaces on the bridge, so the key includes the type. */
+    private static String getTargetKey(Light light)
+    {
+        return (light.isGroup() ? "group/" : "light/") + light.getIdentifier();
+    }
+
+    /** Merges the fields that are set in one light state into another, so that the newer value of each field wins.
+     * @param older The state to merge into.
+     * @param newer The state whose set fields take precedence.
+     */
+    public static void mergeLightState(LightState older, LightState newer)
+    {
+        if (newer.isOn() != null)
+            older.setOn(newer.isOn());
+
+        if (newer.getBrightness() != null)
+            older.setBrightness(newer.getBrightness());
+
+        if (newer.getTransitionTime() != null)
+            older.setTransitionTime(newer.getTransitionTime());
+
+        if (newer.getAlert() != null)
+            older.setAlert(newer.getAlert());
+
+        if (newer.getEffect() != null)
+            older.setEffect(newer.getEffect());
+
+        // The bridge gives xy precedence over color temperature, and color temperature over hue and saturation, so a newer color of any kind
+        // must replace every older color field, otherwise an older xy could override a newer color temperature.
+        if (newer.getXY() != null || newer.getCT() != null || newer.getHue() != null || newer.getSaturation() != null)
+        {
+            older.setXY(newer.getXY());
+            older.setCT(newer.getCT());
+            older.setHue(newer.getHue());
+            older.setSaturation(newer.getSaturation());
+        }
+
+        // Increments are relative, so they accumulate rather than replace.
+        older.setBrightnessIncrement(sum(older.getBrightnessIncrement(), newer.getBrightnessIncrement()));
+        older.setHueIncrement(sum(older.getHueIncrement(), newer.getHueIncrement()));
+        older.setSaturationIncrement(sum(older.getSaturationIncrement(), newer.getSaturationIncrement()));
+        older.setCTIncrement(sum(older.getCTIncrement(), newer.getCTIncrement()));
+
+        DoublePair olderXY = older.getXYIncrement();
+        DoublePair newerXY = newer.getXYIncrement();
+
+        if (newerXY != null)
+        {
+            if (olderXY == null)
+                older.setXYIncrement(newerXY.getValue1(), newerXY.getValue2());
+            else
+                older.setXYIncrement(olderXY.getValue1() + newerXY.getValue1(), olderXY.getValue2() + newerXY.getValue2());
+        }
+    }
+
+    /** Adds two optional increments, where <code>null</code> means no increment. */
+    private static Integer sum(Integer a, Integer b)
+    {
+        if (a == null)
+            return b;
+
+        if (b == null)
+            return a;
+
+        return a + b;
+    }
+
+    //endregion
+
+
+    //region Queue Entries
+
+    /** The command state of a single light. */
+    private static class Target
+    {
+        /** The key the target is stored under. */
+        final String key;
+
+        /** The merged command waiting for the in flight request to complete, or <code>null</code> if there is none. */
+        Command pending;
+
+        Target(String key)
+        {
+            this.key = key;
+        }
+    }
+
+    /** A light state to send to a light, along with everyone waiting on its result. */
+    private static class Command
+    {
+        Light light;
+        LightState state;
+        BridgeConnectionType connectionType;
+        List<BridgeResponseCallback> callbacks = new ArrayList<>();
+
+        /** The traces of the commands whose states were merged into this one.  Each is timed when this command is sent and answered. */
+        List<CommandTracer.Trace> traces = new ArrayList<>(1);
+
+        Command(Light light, LightState state, BridgeConnectionType connectionType)
+        {
+            this.light = light;
+            this.state = state;
+            this.connectionType = connectionType;
+        }
+
+        /** Adds a submitter waiting on the result of this command. */
+        void add(BridgeResponseCallback callback, CommandTracer.Trace trace)
+        {
+            callbacks.add(callback);
+
+            if (trace != null)
+                traces.add(trace);
+        }
+
+        /** Merges a newer submission into this command.  The newer light wrapper and connection type are used, since they are the most current. */
+        void merge(Light light, LightState state, BridgeConnectionType connectionType)
+        {
+            this.light = light;
+            this.connectionType = connectionType;
+            mergeLightState(this.state, state);
+        }
+    }
+
+    //endregion
+}
@@ -0,0 +1,220 @@
+/*
+ * This file is part of Hue SmartSwitch
+ *
+ * Hue SmartSwitch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package com.iot.extron.smartlightswitch.models;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/** An immutable capture of the values a {@link Light} contributes to an {@link AggregateLight} at a single point in time. */
+public class LightSnapshot
+{
+    //region Fields
+
+    /** The identifier of the captured light. */
+    final String identifier;
+
+    /** The name of the captured light. */
+    final String name;
+
+    /** Whether the captured light was on. */
+    final boolean on;
+
+    /** The brightness of the captured light, or {@link Light#BRIGHTNESS_MULTIPLE}. */
+    final int brightness;
+
+    /** The color of the captured light, or {@link Light#COLOR_MULTIPLE}. */
+    final int color;
+
+    /** All unique colors of the captured light. */
+    final int[] colors;
+
+    /** Whether the captured light supports colors. */
+    final boolean supportsColors;
+
+    //endregion
+
+
+    //region Constructors
+
+    /** Creates a snapshot from already computed values, such as ones read back from a {@link BridgeSnapshot}. */
+    LightSnapshot(String identifier, String name, boolean on, int brightness, int color, int[] colors, boolean supportsColors)
+    {
+        this.identifier = identifier;
+        this.name = name;
+        this.on = on;
+        this.brightness = brightness;
+        this.color = color;
+        this.colors = colors;
+        this.supportsColors = supportsColors;
+    }
+
+    /** Captures the current values of the specified {@link Light}.
+     * @param light The {@link Light} to capture.
+     * @param scratch A histogram the light's colors can be collected into.  Its contents are replaced.
+     * @return A new snapshot of the light.
+     */
+    public static LightSnapshot capture(Light light, IntHistogram scratch)
+    {
+        return capture(light, null, scratch);
+    }
+
+    /** Captures the current values of the specified {@link Light}, reusing a previous snapshot if none of the values have changed.
+     * @param light The {@link Light} to capture.
+     * @param previous A previous snapshot of the same light, or <code>null</code> if there is none.
+     * @param scratch A histogram the light's colors can be collected into.  Its contents are replaced.
+     * @return <code>previous</code> if the light is unchanged, otherwise a new snapshot of the light.
+     */
+    public static LightSnapshot capture(Light light, LightSnapshot previous, IntHistogram scratch)
+    {
+        String identifier = light.getIdentifier();
+        String name = light.getName();
+        boolean on = light.getOn();
+        int brightness = light.getBrightness();
+        boolean supportsColors = light.getSupportsColors();
+
+        // The single color is derived from the collected colors rather than queried separately, since each query is a round trip into the Hue SDK.
+        scratch.clear();
+        light.getColors(scratch);
+        int color = scratch.getSingleValue(Light.COLOR_MULTIPLE);
+
+        if (previous != null
+                && previous.on == on
+                && previous.brightness == brightness
+                && previous.color == color
+                && previous.supportsColors == supportsColors
+                && previous.identifier.equals(identifier)
+                && Objects.equals(previous.name, name)
+                && previous.hasColors(scratch))
+            return previous;
+
+        return new LightSnapshot(identifier, name, on, brightness, color, scratch.toSortedArray(), supportsColors);
+    }
+
+    //endregion
+
+
+    //region Helpers
+
+    /** Determines whether this snapshot's colors are exactly the distinct values of a histogram. */
+    private boolean hasColors(IntHistogram histogram)
+    {
+        if (colors.length != histogram.size())
+            return false;
+
+        for (int c : colors)
+        {
+            if (!histogram.contains(c))
+                return false;
+        }
+
+        return true;
+    }
+
+    //endregion
+
+
+    //region Getters
+
+    /** Gets the identifier of the captured light.
+     * @return The light's identifier.
+     */
+    public String getIdentifier()
+    {
+        return identifier;
+    }
+
+    /** Gets the name of the captured light.
+     * @return The light's name.
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /** Gets whether the captured light was on.
+     * @return Returns <code>true</code> if the light was on, otherwise <code>false</code>.
+     */
+    public boolean getOn()
+    {
+        return on;
+    }
+
+    /** Gets the brightness of the captured light.
+     * @return The light's brightness, or {@link Light#BRIGHTNESS_MULTIPLE} if it had multiple brightnesses.
+     */
+    public int getBrightness()
+    {
+        return brightness;
+    }
+
+    /** Gets the color of the captured light.
+     * @return The light's color, or {@link Light#COLOR_MULTIPLE} if it had multiple colors.
+     */
+    public int getColor()
+    {
+        return color;
+    }
+
+    /** Gets whether the captured light supports colors.
+     * @return Returns <code>true</code> if the light supports colors, otherwise <code>false</code>.
+     */
+    public boolean getSupportsColors()
+    {
+        return supportsColors;
+    }
+
+    //endregion
+
+
+    //region Object Methods
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o)
+            return true;
+
+        if (!(o instanceof LightSnapshot))
+            return false;
+
+        LightSnapshot other = (LightSnapshot)o;
+
+        return on == other.on
+                && brightness == other.brightness
+                && color == other.color
+                && supportsColors == other.supportsColors
+                && identifier.equals(other.identifier)
+                && Objects.equals(name, other.name)
+                && Arrays.equals(colors, other.colors);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        int result = identifier.hashCode();
+        result = 31 * result + Objects.hashCode(name);
+        result = 31 * result + (on ? 1 : 0);
+        result = 31 * result + brightness;
+        result = 31 * result + color;
+        result = 31 * result + Arrays.hashCode(colors);
+        result = 31 * result + (supportsColors ? 1 : 0);
+        return result;
+    }
+
+    //endregion
+}
@@ -0,0 +1,122 @@
+/*
+ * This file is part of Hue SmartSwitch
+ *
+ * Hue SmartSwitch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package com.iot.extron.smartlightswitch.models;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/** Describes what changed in an {@link AggregateLight} when it was updated from the bridge, so that only the affected parts of the UI need to be
+ * refreshed.  Returned by {@link AggregateLight#updateLightState}. */
+public class LightStateDelta
+{
+    //region Fields
+
+    /** Whether the aggregate's on state changed. */
+    boolean onChanged;
+
+    /** Whether the aggregate's brightness changed. */
+    boolean brightnessChanged;
+
+    /** Whether the aggregate's colors changed. */
+    boolean colorsChanged;
+
+    /** Whether the aggregate's support for colors changed. */
+    boolean supportsColorsChanged;
+
+    /** Whether the aggregate's name changed. */
+    boolean nameChanged;
+
+    /** Whether any contained lights were removed, which shifts the positions of the remaining lights. */
+    boolean lightsRemoved;
+
+    /** The positions of the contained lights whose values changed, in ascending order. */
+    final List<Integer> changedLights = new ArrayList<>();
+
+    //endregion
+
+
+    //region Getters
+
+    /** Gets whether nothing changed.
+     * @return Returns <code>true</code> if the update changed nothing, otherwise <code>false</code>.
+     */
+    public boolean isEmpty()
+    {
+        return !onChanged && !brightnessChanged && !colorsChanged && !supportsColorsChanged && !nameChanged && !lightsRemoved && changedLights.isEmpty();
+    }
+
+    /** Gets whether the aggregate's on state changed.
+     * @return Returns <code>true</code> if {@link AggregateLight#getOn()} changed, otherwise <code>false</code>.
+     */
+    public boolean getOnChanged()
+    {
+        return onChanged;
+    }
+
+    /** Gets whether the aggregate's brightness changed.
+     * @return Returns <code>true</code> if {@link AggregateLight#getBrightness()} changed, otherwise <code>false</code>.
+     */
+    public boolean getBrightnessChanged()
+    {
+        return brightnessChanged;
+    }
+
+    /** Gets whether the aggregate's colors changed.
+     * @return Returns <code>true</code> if {@link AggregateLight#getColor()} or {@link AggregateLight#getColors()} changed, otherwise <code>false</code>.
+     */
+    public boolean getColorsChanged()
+    {
+        return colorsChanged;
+    }
+
+    /** Gets whether the aggregate's support for colors changed.
+     * @return Returns <code>true</code> if {@link AggregateLight#getSupportsColors()} changed, otherwise <code>false</code>.
+     */
+    public boolean getSupportsColorsChanged()
+    {
+        return supportsColorsChanged;
+    }
+
+    /** Gets whether the aggregate's name changed.
+     * @return Returns <code>true</code> if {@link AggregateLight#getName()} changed, otherwise <code>false</code>.
+     */
+    public boolean getNameChanged()
+    {
+        return nameChanged;
+    }
+
+    /** Gets whether any contained lights were removed because they no longer exist on the bridge.  When lights were removed, the positions in
+     * {@link #getChangedLights()} refer to the list after the removal, and any list displaying the lights should be rebuilt.
+     * @return Returns <code>true</code> if lights were removed, otherwise <code>false</code>.
+     */
+    public boolean getLightsRemoved()
+    {
+        return lightsRemoved;
+    }
+
+    /** Gets the positions of the contained lights whose values changed.
+     * @return The positions in {@link AggregateLight#getLights()}, in ascending order.
+     */
+    public List<Integer> getChangedLights()
+    {
+        return Collections.unmodifiableList(changedLights);
+    }
+
+    //endregion
+}
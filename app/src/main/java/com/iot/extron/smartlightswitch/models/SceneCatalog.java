@@ -0,0 +1,205 @@
+/*
+ * This file is part of Hue SmartSwitch
+ *
+ * Hue SmartSwitch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package com.iot.extron.smartlightswitch.models;
+
+import com.philips.lighting.hue.sdk.wrapper.domain.resource.Scene;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/** Keeps the bridge's scenes ready for the scene picker.  Scenes are indexed by light and grouped by name, sorted, whenever the bridge's scenes
+ * change, and the {@link SceneGroup}s valid for each selection of lights are cached, so that opening the picker does no work beyond a lookup.
+ * Updates and prefetches run on a background thread; lookups may be made from any thread.  Each update builds a new {@link Catalog} and publishes
+ * it whole, so a lookup reads the current catalog without waiting for an update in progress. */
+public class SceneCatalog
+{
+    //region Constants
+
+    public static final String TAG = "SceneCatalog";
+
+    /** The number of selections whose scene groups are cached. */
+    static final int SELECTION_CACHE_SIZE = 16;
+
+    //endregion
+
+
+    //region Fields
+
+    /** The catalog of the bridge's current scenes.  Only ever replaced, never modified, apart from its cache of selections. */
+    private volatile Catalog catalog = new Catalog(Collections.<Scene>emptyList());
+
+    /** The thread that scenes are indexed and grouped on. */
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable ->
+    {
+        Thread thread = new Thread(runnable, TAG);
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    //endregion
+
+
+    //region Catalog Methods
+
+    /** Brings the catalog up to date with the bridge's scenes on the background thread.  Cached selections are dropped once the update is done.
+     * @param scenes The bridge's current scenes.  The list is copied before this returns.
+     */
+    public void update(List<Scene> scenes)
+    {
+        final List<Scene> copy = new ArrayList<>(scenes);
+        executor.execute(() -> updateNow(copy));
+    }
+
+    /** Brings the catalog up to date with the bridge's scenes on the calling thread.  Lookups made meanwhile are answered from the previous catalog.
+     * @param scenes The bridge's current scenes.
+     */
+    public void updateNow(List<Scene> scenes)
+    {
+        catalog = new Catalog(scenes);
+    }
+
+    /** Works out the scene groups valid for a selection on the background thread, so that a later {@link #getSceneGroups} for it is a lookup.
+     * @param lightIds The light point identifiers of the selection.
+     */
+    public void prefetch(Set<String> lightIds)
+    {
+        final Set<String> key = new HashSet<>(lightIds);
+        executor.execute(() -> getSceneGroups(key));
+    }
+
+    /** Gets the scene groups valid for a selection of lights.  A scene is valid if it contains any of the selected light points.
+     * @param lightIds The light point identifiers of the selection.
+     * @return The valid scene groups, sorted by name.  The list must not be modified.
+     */
+    public List<SceneGroup> getSceneGroups(Set<String> lightIds)
+    {
+        return catalog.getSceneGroups(lightIds);
+    }
+
+    /** Gets the number of scenes in the catalog.
+     * @return The number of scenes.
+     */
+    public int size()
+    {
+        return catalog.index.size();
+    }
+
+    //endregion
+
+
+    //region Nested Types
+
+    /** The bridge's scenes at one moment, indexed and grouped.  Apart from its cache of selections, a catalog is not modified once built, so it can
+     * be read from any thread without locking. */
+    private static class Catalog
+    {
+        /** The scenes, indexed by the lights they contain. */
+        final SceneIndex index;
+
+        /** The scenes grouped by name, sorted by name. */
+        final List<List<Scene>> nameGroups;
+
+        /** The scene groups valid for each selection, keyed by the selection's light point identifiers, least recently used first.  Only used
+         * while holding its lock, which is never held while scene groups are worked out. */
+        final Map<Set<String>, List<SceneGroup>> selections = new LinkedHashMap<Set<String>, List<SceneGroup>>(SELECTION_CACHE_SIZE, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Set<String>, List<SceneGroup>> eldest)
+            {
+                return size() > SELECTION_CACHE_SIZE;
+            }
+        };
+
+        Catalog(List<Scene> scenes)
+        {
+            index = new SceneIndex(scenes);
+
+            Map<String, List<Scene>> groups = new TreeMap<>();
+
+            for (Scene scene : index.getScenes())
+            {
+                List<Scene> group = groups.get(scene.getName());
+
+                if (group == null)
+                {
+                    group = new ArrayList<>();
+                    groups.put(scene.getName(), group);
+                }
+
+                group.add(scene);
+            }
+
+            nameGroups = new ArrayList<>(groups.values());
+        }
+
+        /** Gets the scene groups valid for a selection of lights, from the cache if they have been worked out before. */
+        List<SceneGroup> getSceneGroups(Set<String> lightIds)
+        {
+            List<SceneGroup> sceneGroups;
+
+            synchronized (selections)
+            {
+                sceneGroups = selections.get(lightIds);
+            }
+
+            if (sceneGroups != null)
+                return sceneGroups;
+
+            Set<String> validIds = index.getValidSceneIds(lightIds);
+            sceneGroups = new ArrayList<>();
+
+            for (List<Scene> nameGroup : nameGroups)
+            {
+                List<Scene> validScenes = null;
+
+                for (Scene scene : nameGroup)
+                {
+                    if (!validIds.contains(scene.getIdentifier()))
+                        continue;
+
+                    if (validScenes == null)
+                        validScenes = new ArrayList<>(nameGroup.size());
+
+                    validScenes.add(scene);
+                }
+
+                if (validScenes != null)
+                    sceneGroups.add(new SceneGroup(validScenes));
+            }
+
+            sceneGroups = Collections.unmodifiableList(sceneGroups);
+
+            synchronized (selections)
+            {
+                selections.put(new HashSet<>(lightIds), sceneGroups);
+            }
+
+            return sceneGroups;
+        }
+    }
+
+    //endregion
+}
@@ -73,9 +73,21 @@ public class SceneGroup
 
     /** Recalls all scenes within the group.
      * @param connectionType The type of the connection to the bridge.
+     * @param scheduler The {@link BridgeRequestScheduler} to send the recalls through.
      * @param callback A callback which is invoked when all scenes have responded to the recall.
      */
-    public void recallScenes(BridgeConnectionType connectionType, final SceneGroupRecallCallback callback)
+    public void recallScenes(BridgeConnectionType connectionType, BridgeRequestScheduler scheduler, final SceneGroupRecallCallback callback)
+    {
+        recallScenes(connectionType, scheduler, null, callback);
+    }
+
+    /** Recalls all scenes within the group, and traces each recall.
+     * @param connectionType The type of the connection to the bridge.
+     * @param scheduler The {@link BridgeRequestScheduler} to send the recalls through.
+     * @param trace The {@link CommandTracer.Trace} to time each recall with, or <code>null</code> to not trace the recalls.
+     * @param callback A callback which is invoked when all scenes have responded to the recall.
+     */
+    public void recallScenes(BridgeConnectionType connectionType, BridgeRequestScheduler scheduler, final CommandTracer.Trace trace, final SceneGroupRecallCallback callback)
     {
         final AtomicInteger latch = new AtomicInteger(scenes.size());
         final SceneGroupRecallResult[] results = new SceneGroupRecallResult[scenes.size()];
@@ -85,18 +97,29 @@ public class SceneGroup
             final Scene scene = scenes.get(i);
             final int index = i;
 
-            scene.recall(connectionType, new BridgeResponseCallback()
+            final String targetKey = "scene/" + scene.getIdentifier();
+
+            scheduler.schedule(BridgeRequestScheduler.Lane.SCENE, BridgeRequestScheduler.GROUP_REQUEST_COST, () ->
             {
-                @Override
-                public void handleCallback(Bridge bridge, ReturnCode returnCode, List<ClipResponse> responses, List<HueError> errors)
+                if (trace != null)
+                    trace.dispatched(targetKey, scene.getName());
+
+                scene.recall(connectionType, new BridgeResponseCallback()
                 {
-                    results[index] = new SceneGroupRecallResult(scene, returnCode, errors);
+                    @Override
+                    public void handleCallback(Bridge bridge, ReturnCode returnCode, List<ClipResponse> responses, List<HueError> errors)
+                    {
+                        if (trace != null)
+                            trace.acknowledged(targetKey, scene.getName(), returnCode == ReturnCode.SUCCESS);
+
+                        results[index] = new SceneGroupRecallResult(scene, returnCode, errors);
 
-                    int current = latch.decrementAndGet();
+                        int current = latch.decrementAndGet();
 
-                    if (current == 0)
-                        callback.onRecallCompleted(Arrays.asList(results));
-                }
+                        if (current == 0)
+                            callback.onRecallCompleted(Arrays.asList(results));
+                    }
+                });
             });
         }
     }
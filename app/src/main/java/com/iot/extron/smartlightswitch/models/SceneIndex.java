@@ -0,0 +1,215 @@
+/*
+ * This file is part of Hue SmartSwitch
+ *
+ * Hue SmartSwitch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package com.iot.extron.smartlightswitch.models;
+
+import com.philips.lighting.hue.sdk.wrapper.domain.resource.Scene;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/** An index from light point identifiers to the scenes that contain them, so that the scenes valid for a selection of lights can be found without
+ * checking every scene against every light.  The index is updated incrementally as the bridge's scenes change, and is safe to use from any thread. */
+public class SceneIndex
+{
+    //region Fields
+
+    /** The indexed scenes, keyed by scene identifier, in the order the bridge first reported them. */
+    private final Map<String, Scene> scenes = new LinkedHashMap<>();
+
+    /** The light point identifiers each scene is indexed under, keyed by scene identifier, so that a changed scene can be removed from the index. */
+    private final Map<String, List<String>> indexedLightIds = new HashMap<>();
+
+    /** The identifiers of the scenes containing each light point, keyed by light point identifier. */
+    private final Map<String, Set<String>> scenesByLight = new HashMap<>();
+
+    //endregion
+
+
+    //region Constructors
+
+    /** Creates a new, empty index. */
+    public SceneIndex()
+    {
+    }
+
+    /** Creates a new index of a list of scenes.
+     * @param scenes The scenes to index.
+     */
+    public SceneIndex(List<Scene> scenes)
+    {
+        update(scenes);
+    }
+
+    //endregion
+
+
+    //region Index Methods
+
+    /** Brings the index up to date with the bridge's current scenes.  Scenes that are no longer present are removed, and only scenes whose lights
+     * have changed are re-indexed.
+     * @param newScenes The bridge's current scenes.
+     */
+    public synchronized void update(List<Scene> newScenes)
+    {
+        Set<String> newIds = new HashSet<>(newScenes.size());
+
+        for (Scene scene : newScenes)
+            newIds.add(scene.getIdentifier());
+
+        for (Iterator<Map.Entry<String, Scene>> iterator = scenes.entrySet().iterator(); iterator.hasNext(); )
+        {
+            String id = iterator.next().getKey();
+
+            if (!newIds.contains(id))
+            {
+                unindex(id);
+                iterator.remove();
+            }
+        }
+
+        for (Scene scene : newScenes)
+        {
+            String id = scene.getIdentifier();
+            List<String> lightIds = scene.getLightIds() != null ? scene.getLightIds() : Collections.<String>emptyList();
+            List<String> oldLightIds = indexedLightIds.get(id);
+
+            // Always keep the newest copy of the scene, even when its lights have not changed, since its name may have.
+            scenes.put(id, scene);
+
+            if (oldLightIds != null && oldLightIds.equals(lightIds))
+                continue;
+
+            if (oldLightIds != null)
+                unindex(id);
+
+            index(id, lightIds);
+        }
+    }
+
+    /** Gets the scenes that contain any of a set of light points.
+     * @param lightIds The light point identifiers.
+     * @return The scenes containing at least one of the light points, in the order the bridge reported them.
+     */
+    public synchronized List<Scene> getValidScenes(Collection<String> lightIds)
+    {
+        Set<String> sceneIds = getValidSceneIds(lightIds);
+        List<Scene> validScenes = new ArrayList<>(sceneIds.size());
+
+        if (sceneIds.isEmpty())
+            return validScenes;
+
+        for (Map.Entry<String, Scene> entry : scenes.entrySet())
+        {
+            if (sceneIds.contains(entry.getKey()))
+                validScenes.add(entry.getValue());
+        }
+
+        return validScenes;
+    }
+
+    /** Gets the identifiers of the scenes that contain any of a set of light points.
+     * @param lightIds The light point identifiers.
+     * @return A new set of the identifiers of the scenes containing at least one of the light points.
+     */
+    public synchronized Set<String> getValidSceneIds(Collection<String> lightIds)
+    {
+        Set<String> sceneIds = new HashSet<>();
+
+        for (String lightId : lightIds)
+        {
+            Set<String> scenesForLight = scenesByLight.get(lightId);
+
+            if (scenesForLight != null)
+                sceneIds.addAll(scenesForLight);
+        }
+
+        return sceneIds;
+    }
+
+    /** Gets the indexed scenes.
+     * @return A copy of the list of scenes, in the order the bridge first reported them.
+     */
+    public synchronized List<Scene> getScenes()
+    {
+        return new ArrayList<>(scenes.values());
+    }
+
+    /** Gets the number of indexed scenes.
+     * @return The number of scenes.
+     */
+    public synchronized int size()
+    {
+        return scenes.size();
+    }
+
+    //endregion
+
+
+    //region Helpers
+
+    /** Adds a scene under each of its light points. */
+    private void index(String sceneId, List<String> lightIds)
+    {
+        indexedLightIds.put(sceneId, new ArrayList<>(lightIds));
+
+        for (String lightId : lightIds)
+        {
+            Set<String> scenesForLight = scenesByLight.get(lightId);
+
+            if (scenesForLight == null)
+            {
+                scenesForLight = new HashSet<>();
+                scenesByLight.put(lightId, scenesForLight);
+            }
+
+            scenesForLight.add(sceneId);
+        }
+    }
+
+    /** Removes a scene from under each of the light points it was indexed under. */
+    private void unindex(String sceneId)
+    {
+        List<String> lightIds = indexedLightIds.remove(sceneId);
+
+        if (lightIds == null)
+            return;
+
+        for (String lightId : lightIds)
+        {
+            Set<String> scenesForLight = scenesByLight.get(lightId);
+
+            if (scenesForLight == null)
+                continue;
+
+            scenesForLight.remove(sceneId);
+
+            if (scenesForLight.isEmpty())
+                scenesByLight.remove(lightId);
+        }
+    }
+
+    //endregion
+}
@@ -17,17 +17,16 @@
 
 package com.iot.extron.smartlightswitch.models;
 
-import android.graphics.Color;
-
+import com.iot.extron.smartlightswitch.utilities.HueColorConverter;
 import com.philips.lighting.hue.sdk.wrapper.connection.BridgeConnectionType;
 import com.philips.lighting.hue.sdk.wrapper.connection.BridgeResponseCallback;
 import com.philips.lighting.hue.sdk.wrapper.domain.device.light.LightPoint;
 import com.philips.lighting.hue.sdk.wrapper.domain.device.light.LightState;
 import com.philips.lighting.hue.sdk.wrapper.domain.device.light.LightType;
 import com.philips.lighting.hue.sdk.wrapper.domain.resource.Scene;
-import com.philips.lighting.hue.sdk.wrapper.utilities.HueColor;
 
-import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 /** Abstracts a single {@link LightPoint}. */
@@ -61,6 +60,12 @@ public class SingleLight implements Light
         return lightPoint.getIdentifier();
     }
 
+    @Override
+    public boolean isGroup()
+    {
+        return false;
+    }
+
     @Override
     public String getName()
     {
@@ -70,16 +75,25 @@ public class SingleLight implements Light
     @Override
     public int getColor()
     {
-        HueColor.RGB rgb = lightPoint.getLightState().getColor().getRGB();
-        return Color.argb(255, rgb.r, rgb.g, rgb.b);
+        return HueColorConverter.getColor(lightPoint.getLightState(), HueColorConverter.getGamut(lightPoint));
     }
 
     @Override
     public List<Integer> getColors()
     {
-        List<Integer> colors = new ArrayList<>();
+        return Collections.singletonList(getColor());
+    }
+
+    @Override
+    public void getColors(IntHistogram colors)
+    {
         colors.add(getColor());
-        return colors;
+    }
+
+    @Override
+    public void getBrightnesses(IntHistogram brightnesses)
+    {
+        brightnesses.add(getBrightness());
     }
 
     @Override
@@ -107,6 +121,12 @@ public class SingleLight implements Light
         return scene.getLightIds().contains(lightPoint.getIdentifier());
     }
 
+    @Override
+    public void getLightIds(Collection<String> lightIds)
+    {
+        lightIds.add(lightPoint.getIdentifier());
+    }
+
     @Override
     public void applyLightState(LightState state, BridgeConnectionType connectionType, BridgeResponseCallback callback)
     {
@@ -126,5 +146,13 @@ public class SingleLight implements Light
         return lightPoint;
     }
 
+    /** Replaces the encapsulated {@link LightPoint}, such as with a newer copy from a refreshed bridge state.
+     * @param lightPoint The {@link LightPoint} to wrap.
+     */
+    void setLightPoint(LightPoint lightPoint)
+    {
+        this.lightPoint = lightPoint;
+    }
+
     //endregion
 }
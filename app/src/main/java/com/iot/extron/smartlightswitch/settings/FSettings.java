@@ -22,21 +22,36 @@ import android.app.AlertDialog;
 import android.content.Context;
 import android.content.DialogInterface;
 import android.content.SharedPreferences;
+import android.graphics.Typeface;
+import android.os.AsyncTask;
 import android.os.Bundle;
 import android.app.Fragment;
 import android.support.annotation.Nullable;
+import android.support.design.widget.Snackbar;
 import android.support.v7.widget.Toolbar;
 import android.util.Log;
 import android.view.Display;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.HorizontalScrollView;
+import android.widget.ScrollView;
+import android.widget.Switch;
 import android.widget.TextView;
 
 import com.google.android.things.device.ScreenManager;
 import com.iot.extron.smartlightswitch.FBase;
 import com.iot.extron.smartlightswitch.R;
 import com.iot.extron.smartlightswitch.SLSApplication;
+import com.iot.extron.smartlightswitch.models.CommandTracer;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
 
 /**
  * A {@link Fragment} that displays the app settings.
@@ -63,6 +78,10 @@ public class FSettings extends FBase
     Toolbar toolbar;
     ViewGroup screenOrientationLayout;
     TextView screenOrientationTextView;
+    ViewGroup liveColorPreviewLayout;
+    Switch liveColorPreviewSwitch;
+    ViewGroup commandLatencyLayout;
+    TextView commandLatencyTextView;
 
     //endregion
 
@@ -134,6 +153,26 @@ public class FSettings extends FBase
         });
 
         screenOrientationTextView = view.findViewById(R.id.screenOrientationTextView);
+
+        liveColorPreviewLayout = view.findViewById(R.id.liveColorPreviewLayout);
+        liveColorPreviewLayout.setOnClickListener(v ->
+        {
+            SharedPreferences preferences = getApplication().getSettingsPreferences();
+            boolean livePreview = preferences.getBoolean(SLSApplication.SETTINGS_LIVE_COLOR_PREVIEW, true);
+
+            SharedPreferences.Editor editor = preferences.edit();
+            editor.putBoolean(SLSApplication.SETTINGS_LIVE_COLOR_PREVIEW, !livePreview);
+            editor.commit();
+
+            configureUI();
+        });
+
+        liveColorPreviewSwitch = view.findViewById(R.id.liveColorPreviewSwitch);
+
+        commandLatencyLayout = view.findViewById(R.id.commandLatencyLayout);
+        commandLatencyLayout.setOnClickListener(v -> showCommandLatency());
+
+        commandLatencyTextView = view.findViewById(R.id.commandLatencyTextView);
     }
 
     @Override
@@ -159,6 +198,73 @@ public class FSettings extends FBase
 
         int orientation = preferences.getInt(SLSApplication.SETTINGS_SCREEN_ORIENTATION, 1);
         screenOrientationTextView.setText(getResources().getStringArray(R.array.screen_orientations)[orientation]);
+
+        liveColorPreviewSwitch.setChecked(preferences.getBoolean(SLSApplication.SETTINGS_LIVE_COLOR_PREVIEW, true));
+
+        commandLatencyTextView.setText(getResources().getString(R.string.commands_traced).replace("{0}", String.valueOf(getCommandTracer().getCommandCount())));
+    }
+
+    /** Shows the latencies recorded by the app's {@link CommandTracer} in a dialog, from which they can be exported or reset. */
+    private void showCommandLatency()
+    {
+        final CommandTracer tracer = getCommandTracer();
+
+        int padding = getResources().getDimensionPixelSize(R.dimen.screenEdgeMarginHorizontal);
+
+        // The report is a fixed width table, so it needs a monospaced font and to scroll sideways on narrow screens.
+        TextView reportTextView = new TextView(getContext());
+        reportTextView.setTypeface(Typeface.MONOSPACE);
+        reportTextView.setTextAppearance(android.R.style.TextAppearance_Small);
+        reportTextView.setPadding(padding, padding, padding, padding);
+        reportTextView.setText(tracer.formatReport());
+
+        HorizontalScrollView horizontalScrollView = new HorizontalScrollView(getContext());
+        horizontalScrollView.addView(reportTextView);
+
+        ScrollView scrollView = new ScrollView(getContext());
+        scrollView.addView(horizontalScrollView);
+
+        new AlertDialog.Builder(getContext())
+            .setTitle(R.string.command_latency)
+            .setView(scrollView)
+            .setPositiveButton(R.string.export, (dialog, which) -> exportCommandLatency(tracer))
+            .setNeutralButton(R.string.reset, (dialog, which) ->
+            {
+                tracer.reset();
+                configureUI();
+            })
+            .setNegativeButton(R.string.close, null)
+            .show();
+    }
+
+    /** Writes the latencies recorded by a {@link CommandTracer} to a CSV file in the app's external files directory, off the UI thread.
+     * @param tracer The {@link CommandTracer} to export.
+     */
+    private void exportCommandLatency(final CommandTracer tracer)
+    {
+        final View snackbarLayout = getMainActivity().getLayoutForSnackbar();
+        final String failedMessage = getResources().getString(R.string.command_latency_export_failed);
+        final String exportedMessage = getResources().getString(R.string.command_latency_exported);
+        final File file = new File(getContext().getExternalFilesDir(null), "command_latency_" + new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US).format(new Date()) + ".csv");
+
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(() ->
+        {
+            String message;
+
+            try (Writer writer = new FileWriter(file))
+            {
+                tracer.writeCsv(writer);
+                message = exportedMessage.replace("{0}", file.getAbsolutePath());
+            }
+            catch (IOException e)
+            {
+                Log.e(TAG, "Could not export command latency: " + e.getMessage());
+                message = failedMessage;
+            }
+
+            final String result = message;
+            snackbarLayout.post(() -> Snackbar.make(snackbarLayout, result, Snackbar.LENGTH_LONG).show());
+        });
     }
 
     //endregion
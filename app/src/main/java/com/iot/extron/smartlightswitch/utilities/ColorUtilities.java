@@ -19,6 +19,7 @@ package com.iot.extron.smartlightswitch.utilities;
 
 import android.graphics.Color;
 
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -60,4 +61,71 @@ public class ColorUtilities
 
         return Color.valueOf(r, g, b);
     }
+
+    /** Sorts colors by hue, then saturation, then value, in the approximate order described by {@link #getHSVSortKey}.
+     * @param colors The ARGB colors to sort in place.
+     * @param length The number of colors at the start of the array to sort.
+     */
+    public static void sortByHSV(int[] colors, int length)
+    {
+        long[] keys = new long[length];
+
+        for (int i = 0; i < length; i++)
+            keys[i] = getHSVSortKey(colors[i]);
+
+        Arrays.sort(keys);
+
+        for (int i = 0; i < length; i++)
+            colors[i] = (int)keys[i];
+    }
+
+    /** Gets a key that orders colors by hue, then saturation, then value.  The quantized HSV components are packed into the upper 32 bits and the
+     * color itself into the lower 32 bits, so sorting keys as plain <code>long</code>s sorts the colors, and each color can be recovered from its key.
+     *  The order is approximate: hue is quantized to 12 bits and saturation and value to 10 bits each, so colors whose hues fall in the same
+     * 1/4096th of the color wheel are ordered by saturation and value as if their hues were equal, and colors that match in all three quantized
+     * components are ordered by their ARGB value.  Colors whose hues differ by more than one step are always in hue order.
+     *  The key is cheap enough to compute that it is not cached.
+     * @param color The ARGB color to get the key for.
+     * @return The sort key.
+     */
+    public static long getHSVSortKey(int color)
+    {
+        // This follows the same conversion as Color.colorToHSV, without allocating an array for the result.
+        int r = (color >> 16) & 0xFF;
+        int g = (color >> 8) & 0xFF;
+        int b = color & 0xFF;
+
+        int max = Math.max(r, Math.max(g, b));
+        int min = Math.min(r, Math.min(g, b));
+        int delta = max - min;
+
+        float hue = 0f;
+
+        if (delta != 0)
+        {
+            if (r == max)
+                hue = (float)(g - b) / delta;
+            else if (g == max)
+                hue = 2f + (float)(b - r) / delta;
+            else
+                hue = 4f + (float)(r - g) / delta;
+
+            hue *= 60f;
+
+            if (hue < 0f)
+                hue += 360f;
+        }
+
+        float saturation = max == 0 ? 0f : (float)delta / max;
+        float value = max / 255f;
+
+        long hueBits = Math.min(4095, (long)(hue / 360f * 4096f));
+        long saturationBits = Math.round(saturation * 1023f);
+        long valueBits = Math.round(value * 1023f);
+
+        long hsv = (hueBits << 20) | (saturationBits << 10) | valueBits;
+
+        // Flipping the sign bit makes signed comparison of keys match the unsigned order of the packed components.
+        return ((hsv << 32) | (color & 0xFFFFFFFFL)) ^ Long.MIN_VALUE;
+    }
 }
@@ -0,0 +1,521 @@
+/*
+ * This file is part of Hue SmartSwitch
+ *
+ * Hue SmartSwitch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package com.iot.extron.smartlightswitch.utilities;
+
+import android.graphics.Color;
+
+import com.philips.lighting.hue.sdk.wrapper.domain.clip.ColorMode;
+import com.philips.lighting.hue.sdk.wrapper.domain.clip.DoublePair;
+import com.philips.lighting.hue.sdk.wrapper.domain.device.light.LightConfiguration;
+import com.philips.lighting.hue.sdk.wrapper.domain.device.light.LightPoint;
+import com.philips.lighting.hue.sdk.wrapper.domain.device.light.LightState;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Converts between RGB colors and the CIE xy, color temperature and hue/saturation values that Hue lights report, in Java rather than through the
+ * SDK's native {@link com.philips.lighting.hue.sdk.wrapper.utilities.HueColor}.  Lights only ever show a handful of distinct colors, so every
+ * conversion is kept in a small cache, keyed by the gamut of the light's model as well as the value being converted.  The caches are direct
+ * mapped arrays that are read and written without locking or boxing: each key has a single slot, and a conversion whose slot is taken by another
+ * key simply replaces it.
+ */
+public class HueColorConverter
+{
+    //region Static Fields
+
+    /** The number of slots in each cache.  Must be a power of two. */
+    private static final int CACHE_SIZE = 1024;
+
+    /** The number of steps that each xy coordinate is quantized to in cache keys, which is finer than the bridge reports them. */
+    private static final int XY_STEPS = 8192;
+
+    /** The white that colors with no usable value are shown as. */
+    private static final int DEFAULT_COLOR = Color.WHITE;
+
+    /** The xy coordinates of the D65 white point, which black is given since it has no chromaticity. */
+    private static final double WHITE_X = 0.3127, WHITE_Y = 0.3290;
+
+    /** The kinds of cache key, stored in the top bits of a key. */
+    private static final int KEY_XY = 0, KEY_CT = 1, KEY_HS = 2;
+
+    /** The gamut of every known light model, by model identifier. */
+    private static final Map<String, Gamut> modelGamuts = new HashMap<>();
+
+    /** A cache of ARGB colors, keyed by {@link #getXYKey}, {@link #getCTKey} or {@link #getHSKey}.  Each slot holds its key in the upper 32 bits
+     * and the color in the lower 32 bits, so a slot is always read and written whole.  Every cached color is opaque, so a slot whose lower 32
+     * bits are zero is empty. */
+    private static final AtomicLongArray colorCache = new AtomicLongArray(CACHE_SIZE);
+
+    /** A cache of xy coordinates, keyed by gamut and RGB color.  A key and its coordinates do not fit in one <code>long</code>, so each slot holds
+     * an immutable {@link XYEntry}, which a racing reader sees either whole or not at all. */
+    private static final XYEntry[] xyCache = new XYEntry[CACHE_SIZE];
+
+    static
+    {
+        for (String model : new String[] { "LST001", "LLC005", "LLC006", "LLC007", "LLC010", "LLC011", "LLC012", "LLC013", "LLC014" })
+            modelGamuts.put(model, Gamut.A);
+
+        for (String model : new String[] { "LCT001", "LCT002", "LCT003", "LCT007", "LLM001" })
+            modelGamuts.put(model, Gamut.B);
+
+        for (String model : new String[] { "LCT010", "LCT011", "LCT012", "LCT014", "LCT015", "LCT016", "LLC020", "LST002" })
+            modelGamuts.put(model, Gamut.C);
+    }
+
+    //endregion
+
+
+    //region Gamut Methods
+
+    /** Gets the gamut of a light model.
+     * @param modelIdentifier The model identifier of the light, or <code>null</code>.
+     * @return The model's {@link Gamut}, or {@link Gamut#NONE} if the model is not known.
+     */
+    public static Gamut getGamut(String modelIdentifier)
+    {
+        Gamut gamut = modelIdentifier == null ? null : modelGamuts.get(modelIdentifier);
+        return gamut == null ? Gamut.NONE : gamut;
+    }
+
+    /** Gets the gamut of a light.
+     * @param light The light.
+     * @return The light's {@link Gamut}, or {@link Gamut#NONE} if its model is not known.
+     */
+    public static Gamut getGamut(LightPoint light)
+    {
+        LightConfiguration configuration = light.getLightConfiguration();
+        return getGamut(configuration == null ? null : configuration.getModelIdentifier());
+    }
+
+    //endregion
+
+
+    //region Conversion Methods
+
+    /** Gets the color a light state shows, at full brightness, using whichever of its values its color mode says is current.
+     * @param state The light state.
+     * @param gamut The gamut of the light the state belongs to.
+     * @return The opaque ARGB color.
+     */
+    public static int getColor(LightState state, Gamut gamut)
+    {
+        ColorMode mode = state.getColormode();
+        DoublePair xy = state.getXY();
+        Integer ct = state.getCT();
+        Integer hue = state.getHue();
+        Integer saturation = state.getSaturation();
+
+        if (mode == ColorMode.COLOR_TEMPERATURE && ct != null)
+            return ctToColor(ct);
+        else if (mode == ColorMode.HUE_SATURATION && hue != null && saturation != null)
+            return hsToColor(hue, saturation);
+        else if (xy != null)
+            return xyToColor(xy.getValue1(), xy.getValue2(), gamut);
+        else if (ct != null)
+            return ctToColor(ct);
+        else
+            return DEFAULT_COLOR;
+    }
+
+    /** Converts CIE xy coordinates to the color they show at full brightness.
+     * @param x The x coordinate.
+     * @param y The y coordinate.
+     * @param gamut The gamut of the light showing the color.  Coordinates outside of it are moved to the nearest color the light can show.
+     * @return The opaque ARGB color.
+     */
+    public static int xyToColor(double x, double y, Gamut gamut)
+    {
+        int key = getXYKey(x, y, gamut);
+        int color = getCachedColor(key);
+
+        if (color == 0)
+        {
+            color = computeXYColor(x, y, gamut);
+            putCachedColor(key, color);
+        }
+
+        return color;
+    }
+
+    /** Converts a color temperature to the color it shows at full brightness.
+     * @param mired The color temperature, in mireds.
+     * @return The opaque ARGB color.
+     */
+    public static int ctToColor(int mired)
+    {
+        int key = getCTKey(mired);
+        int color = getCachedColor(key);
+
+        if (color == 0)
+        {
+            color = computeCTColor(mired);
+            putCachedColor(key, color);
+        }
+
+        return color;
+    }
+
+    /** Converts a Hue hue and saturation to the color they show at full brightness.
+     * @param hue The hue, between 0 and 65535.
+     * @param saturation The saturation, between 0 and 254.
+     * @return The opaque ARGB color.
+     */
+    public static int hsToColor(int hue, int saturation)
+    {
+        int key = getHSKey(hue, saturation);
+        int color = getCachedColor(key);
+
+        if (color == 0)
+        {
+            float[] hsv = { (hue & 0xFFFF) * 360f / 65536f, Math.max(0, Math.min(254, saturation)) / 254f, 1f };
+            color = Color.HSVToColor(hsv);
+            putCachedColor(key, color);
+        }
+
+        return color;
+    }
+
+    /** Sets a light state to show an RGB color, converted to CIE xy coordinates.
+     * @param state The light state to set.
+     * @param color The ARGB color.  Alpha is ignored.
+     * @param gamut The gamut of the light the state will be sent to, or {@link Gamut#NONE} to leave fitting the color to each light's gamut to the
+     *              bridge, such as when the state is sent to several different lights.
+     */
+    public static void setXY(LightState state, int color, Gamut gamut)
+    {
+        long xy = getXY(color, gamut);
+        state.setXY(unpackX(xy), unpackY(xy));
+    }
+
+    /** Converts an RGB color to CIE xy coordinates.
+     * @param color The ARGB color.  Alpha is ignored.
+     * @param gamut The gamut of the light that will show the color.
+     * @return The coordinates, packed by {@link #packXY}.  Use {@link #unpackX} and {@link #unpackY} to read them.
+     */
+    public static long getXY(int color, Gamut gamut)
+    {
+        int key = (gamut.ordinal() << 24) | (color & 0xFFFFFF);
+        int slot = getCacheSlot(key);
+        XYEntry entry = xyCache[slot];
+
+        if (entry != null && entry.key == key)
+            return entry.xy;
+
+        long xy = computeXY(color, gamut);
+        xyCache[slot] = new XYEntry(key, xy);
+        return xy;
+    }
+
+    /** Gets the x coordinate from coordinates packed by {@link #packXY}.
+     * @param xy The packed coordinates.
+     * @return The x coordinate.
+     */
+    public static double unpackX(long xy)
+    {
+        return Float.intBitsToFloat((int)(xy >>> 32));
+    }
+
+    /** Gets the y coordinate from coordinates packed by {@link #packXY}.
+     * @param xy The packed coordinates.
+     * @return The y coordinate.
+     */
+    public static double unpackY(long xy)
+    {
+        return Float.intBitsToFloat((int)xy);
+    }
+
+    //endregion
+
+
+    //region Caches
+
+    /** Gets the slot of the caches that a key is stored in.  The key's bits are spread first, so that similar keys, such as colors that differ only
+     * in their blue channel, land in different slots. */
+    private static int getCacheSlot(int key)
+    {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (CACHE_SIZE - 1);
+    }
+
+    /** Gets a color from {@link #colorCache}.
+     * @return The color, or <code>0</code> if it is not cached.
+     */
+    private static int getCachedColor(int key)
+    {
+        long entry = colorCache.get(getCacheSlot(key));
+        return (int)(entry >>> 32) == key ? (int)entry : 0;
+    }
+
+    /** Stores an opaque color in {@link #colorCache}, replacing whatever its slot held. */
+    private static void putCachedColor(int key, int color)
+    {
+        colorCache.set(getCacheSlot(key), ((long)key << 32) | (color & 0xFFFFFFFFL));
+    }
+
+    /** A cached conversion of a color to xy coordinates. */
+    private static final class XYEntry
+    {
+        final int key;
+        final long xy;
+
+        XYEntry(int key, long xy)
+        {
+            this.key = key;
+            this.xy = xy;
+        }
+    }
+
+    //endregion
+
+
+    //region Cache Keys
+
+    /** Packs xy coordinates into a <code>long</code>, so that they can be cached and returned without allocating. */
+    private static long packXY(double x, double y)
+    {
+        return ((long)Float.floatToIntBits((float)x) << 32) | (Float.floatToIntBits((float)y) & 0xFFFFFFFFL);
+    }
+
+    /** Gets the cache key of xy coordinates shown by a light with the specified gamut. */
+    private static int getXYKey(double x, double y, Gamut gamut)
+    {
+        int qx = (int)Math.round(Math.max(0, Math.min(1, x)) * (XY_STEPS - 1));
+        int qy = (int)Math.round(Math.max(0, Math.min(1, y)) * (XY_STEPS - 1));
+
+        return (KEY_XY << 30) | (gamut.ordinal() << 26) | (qx << 13) | qy;
+    }
+
+    /** Gets the cache key of a color temperature, which does not depend on the gamut since every color temperature is inside every gamut. */
+    private static int getCTKey(int mired)
+    {
+        return (KEY_CT << 30) | (mired & 0xFFFF);
+    }
+
+    /** Gets the cache key of a hue and saturation. */
+    private static int getHSKey(int hue, int saturation)
+    {
+        return (KEY_HS << 30) | ((saturation & 0xFF) << 16) | (hue & 0xFFFF);
+    }
+
+    //endregion
+
+
+    //region Color Math
+
+    /** Converts an RGB color to xy coordinates inside a gamut, using the wide gamut conversion recommended for Hue lights. */
+    private static long computeXY(int color, Gamut gamut)
+    {
+        double r = toLinear(((color >> 16) & 0xFF) / 255.0);
+        double g = toLinear(((color >> 8) & 0xFF) / 255.0);
+        double b = toLinear((color & 0xFF) / 255.0);
+
+        double X = r * 0.664511 + g * 0.154324 + b * 0.162028;
+        double Y = r * 0.283881 + g * 0.668433 + b * 0.047685;
+        double Z = r * 0.000088 + g * 0.072310 + b * 0.986039;
+        double sum = X + Y + Z;
+
+        if (sum == 0)
+            return packXY(WHITE_X, WHITE_Y);
+
+        double x = X / sum;
+        double y = Y / sum;
+
+        if (gamut.hasBounds() && !gamut.contains(x, y))
+            return gamut.closestPoint(x, y);
+
+        return packXY(x, y);
+    }
+
+    /** Converts xy coordinates inside a gamut to an RGB color at full brightness. */
+    private static int computeXYColor(double x, double y, Gamut gamut)
+    {
+        if (gamut.hasBounds() && !gamut.contains(x, y))
+        {
+            long closest = gamut.closestPoint(x, y);
+            x = unpackX(closest);
+            y = unpackY(closest);
+        }
+
+        if (y <= 0)
+            return DEFAULT_COLOR;
+
+        double Y = 1.0;
+        double X = (Y / y) * x;
+        double Z = (Y / y) * (1.0 - x - y);
+
+        double r = X * 1.656492 - Y * 0.354851 - Z * 0.255038;
+        double g = -X * 0.707196 + Y * 1.655397 + Z * 0.036152;
+        double b = X * 0.051713 - Y * 0.121364 + Z * 1.011530;
+
+        return toColor(r, g, b);
+    }
+
+    /** Converts a color temperature to an RGB color at full brightness, by finding its xy coordinates on the Planckian locus. */
+    private static int computeCTColor(int mired)
+    {
+        double kelvin = 1000000.0 / Math.max(1, mired);
+        double t = Math.max(1667, Math.min(25000, kelvin));
+
+        // Cubic spline approximation of the Planckian locus by Kim et al.
+        double x;
+
+        if (t <= 4000)
+            x = -0.2661239e9 / (t * t * t) - 0.2343589e6 / (t * t) + 0.8776956e3 / t + 0.179910;
+        else
+            x = -3.0258469e9 / (t * t * t) + 2.1070379e6 / (t * t) + 0.2226347e3 / t + 0.240390;
+
+        double y;
+
+        if (t <= 2222)
+            y = -1.1063814 * x * x * x - 1.34811020 * x * x + 2.18555832 * x - 0.20219683;
+        else if (t <= 4000)
+            y = -0.9549476 * x * x * x - 1.37418593 * x * x + 2.09137015 * x - 0.16748867;
+        else
+            y = 3.0817580 * x * x * x - 5.87338670 * x * x + 3.75112997 * x - 0.37001483;
+
+        return computeXYColor(x, y, Gamut.NONE);
+    }
+
+    /** Converts linear RGB components to an opaque ARGB color, scaled so that the brightest component is at full brightness. */
+    private static int toColor(double r, double g, double b)
+    {
+        r = Math.max(0, r);
+        g = Math.max(0, g);
+        b = Math.max(0, b);
+
+        double max = Math.max(r, Math.max(g, b));
+
+        if (max <= 0)
+            return DEFAULT_COLOR;
+
+        r = fromLinear(r / max);
+        g = fromLinear(g / max);
+        b = fromLinear(b / max);
+
+        max = Math.max(r, Math.max(g, b));
+
+        return Color.argb(255, (int)Math.round(r / max * 255), (int)Math.round(g / max * 255), (int)Math.round(b / max * 255));
+    }
+
+    /** Removes the sRGB gamma from a component between 0 and 1. */
+    private static double toLinear(double value)
+    {
+        return value > 0.04045 ? Math.pow((value + 0.055) / 1.055, 2.4) : value / 12.92;
+    }
+
+    /** Applies the sRGB gamma to a component between 0 and 1. */
+    private static double fromLinear(double value)
+    {
+        return value <= 0.0031308 ? 12.92 * value : 1.055 * Math.pow(value, 1.0 / 2.4) - 0.055;
+    }
+
+    //endregion
+
+
+    //region Gamut
+
+    /** The triangles of CIE xy coordinates that the different Hue light models can show. */
+    public enum Gamut
+    {
+        /** The gamut of LivingColors and the first Hue lightstrips. */
+        A(0.704, 0.296, 0.2151, 0.7106, 0.138, 0.08),
+
+        /** The gamut of the first generations of Hue bulbs. */
+        B(0.675, 0.322, 0.409, 0.518, 0.167, 0.04),
+
+        /** The gamut of current Hue bulbs and lightstrips. */
+        C(0.692, 0.308, 0.17, 0.7, 0.153, 0.048),
+
+        /** No known gamut.  Coordinates are used as they are. */
+        NONE(Double.NaN, Double.NaN, Double.NaN, Double.NaN, Double.NaN, Double.NaN);
+
+        final double redX, redY, greenX, greenY, blueX, blueY;
+
+        Gamut(double redX, double redY, double greenX, double greenY, double blueX, double blueY)
+        {
+            this.redX = redX;
+            this.redY = redY;
+            this.greenX = greenX;
+            this.greenY = greenY;
+            this.blueX = blueX;
+            this.blueY = blueY;
+        }
+
+        /** Gets whether the gamut limits the coordinates that can be shown. */
+        boolean hasBounds()
+        {
+            return this != NONE;
+        }
+
+        /** Gets whether coordinates are inside the gamut's triangle. */
+        boolean contains(double x, double y)
+        {
+            double d1 = cross(x, y, redX, redY, greenX, greenY);
+            double d2 = cross(x, y, greenX, greenY, blueX, blueY);
+            double d3 = cross(x, y, blueX, blueY, redX, redY);
+
+            boolean hasNegative = d1 < 0 || d2 < 0 || d3 < 0;
+            boolean hasPositive = d1 > 0 || d2 > 0 || d3 > 0;
+
+            return !(hasNegative && hasPositive);
+        }
+
+        /** Gets the point on the edge of the gamut's triangle that is closest to coordinates outside of it, packed by {@link #packXY}. */
+        long closestPoint(double x, double y)
+        {
+            long best = closestOnEdge(x, y, redX, redY, greenX, greenY);
+            long candidate = closestOnEdge(x, y, greenX, greenY, blueX, blueY);
+
+            if (distanceSquared(x, y, candidate) < distanceSquared(x, y, best))
+                best = candidate;
+
+            candidate = closestOnEdge(x, y, blueX, blueY, redX, redY);
+
+            if (distanceSquared(x, y, candidate) < distanceSquared(x, y, best))
+                best = candidate;
+
+            return best;
+        }
+
+        private static double cross(double x, double y, double ax, double ay, double bx, double by)
+        {
+            return (x - bx) * (ay - by) - (ax - bx) * (y - by);
+        }
+
+        private static long closestOnEdge(double x, double y, double ax, double ay, double bx, double by)
+        {
+            double dx = bx - ax;
+            double dy = by - ay;
+            double t = ((x - ax) * dx + (y - ay) * dy) / (dx * dx + dy * dy);
+            t = Math.max(0, Math.min(1, t));
+
+            return packXY(ax + t * dx, ay + t * dy);
+        }
+
+        private static double distanceSquared(double x, double y, long point)
+        {
+            double dx = x - unpackX(point);
+            double dy = y - unpackY(point);
+            return dx * dx + dy * dy;
+        }
+    }
+
+    //endregion
+}
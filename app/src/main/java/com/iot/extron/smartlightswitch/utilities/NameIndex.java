@@ -0,0 +1,268 @@
+/*
+ * This file is part of Hue SmartSwitch
+ *
+ * Hue SmartSwitch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package com.iot.extron.smartlightswitch.utilities;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/** A search index over a list of names, such as light and group names.  A name matches a query if every word of the query either starts a word
+ * of the name or, for words of at least {@link #NGRAM_LENGTH} characters, appears anywhere in the name, so "kit" finds "Kitchen" and "chen" finds it
+ * too.  Matching is case insensitive.  Word starts are found by binary search of the sorted words of every name, and substrings by intersecting
+ * the names containing each of the word's trigrams, so a search never scans every name. */
+public class NameIndex
+{
+    //region Constants
+
+    /** The length of the n-grams that substrings are looked up by. */
+    static final int NGRAM_LENGTH = 3;
+
+    //endregion
+
+
+    //region Fields
+
+    /** The lower case names, in their original order. */
+    private final String[] names;
+
+    /** Every word of every name, lower case and sorted, so that the words starting with a prefix are a contiguous range. */
+    private final String[] words;
+
+    /** The index of the name each entry of {@link #words} came from. */
+    private final int[] wordNames;
+
+    /** The names containing each n-gram. */
+    private final Map<String, BitSet> ngrams = new HashMap<>();
+
+    //endregion
+
+
+    //region Constructors
+
+    /** Creates a new index over a list of names.
+     * @param names The names to index.  Results refer to names by their index in this list.
+     */
+    public NameIndex(List<String> names)
+    {
+        this.names = new String[names.size()];
+
+        List<WordEntry> entries = new ArrayList<>();
+
+        for (int i = 0; i < names.size(); i++)
+        {
+            String name = normalize(names.get(i));
+            this.names[i] = name;
+
+            for (String word : splitWords(name))
+                entries.add(new WordEntry(word, i));
+
+            for (int j = 0; j + NGRAM_LENGTH <= name.length(); j++)
+            {
+                String ngram = name.substring(j, j + NGRAM_LENGTH);
+                BitSet containing = ngrams.get(ngram);
+
+                if (containing == null)
+                {
+                    containing = new BitSet(names.size());
+                    ngrams.put(ngram, containing);
+                }
+
+                containing.set(i);
+            }
+        }
+
+        entries.sort((e1, e2) -> e1.word.compareTo(e2.word));
+
+        words = new String[entries.size()];
+        wordNames = new int[entries.size()];
+
+        for (int i = 0; i < entries.size(); i++)
+        {
+            words[i] = entries.get(i).word;
+            wordNames[i] = entries.get(i).name;
+        }
+    }
+
+    //endregion
+
+
+    //region Search
+
+    /** Gets the number of names in the index.
+     * @return The number of names.
+     */
+    public int size()
+    {
+        return names.length;
+    }
+
+    /** Finds the names that match a query.
+     * @param query The text to search for.  A blank query matches every name.
+     * @return A new set of the indices of the matching names.
+     */
+    public BitSet search(String query)
+    {
+        BitSet matches = new BitSet(names.length);
+        matches.set(0, names.length);
+        return search(query, matches);
+    }
+
+    /** Finds the names among a set of candidates that match a query.  When the user types more of a query, the matches of the shorter query can be
+     * passed as the candidates if {@link #isNarrowing} says the longer query cannot match any name the shorter one did not.
+     * @param query The text to search for.  A blank query matches every candidate.
+     * @param candidates The indices of the names to search among.  The set is not modified.
+     * @return A new set of the indices of the matching names.
+     */
+    public BitSet search(String query, BitSet candidates)
+    {
+        BitSet matches = (BitSet)candidates.clone();
+
+        for (String word : splitWords(normalize(query)))
+        {
+            BitSet wordMatches = findWordStarts(word);
+
+            if (word.length() >= NGRAM_LENGTH)
+                wordMatches.or(findSubstrings(word, matches));
+
+            matches.and(wordMatches);
+
+            if (matches.isEmpty())
+                break;
+        }
+
+        return matches;
+    }
+
+    /** Gets whether a query can only match names that a previous query matched, so that only the previous matches need searching.  Typing more of
+     * a query usually narrows it, but not when it makes a word {@link #NGRAM_LENGTH} characters long: a shorter word only matches word starts,
+     * while a longer one also matches substrings, so "ch" does not match "Kitchen" but "che" does.
+     * @param previousQuery The previous query.
+     * @param query The new query.
+     * @return <code>true</code> if the matches of {@code previousQuery} can be passed to {@link #search(String, BitSet)} as the candidates for
+     *         {@code query}, otherwise <code>false</code>.
+     */
+    public static boolean isNarrowing(String previousQuery, String query)
+    {
+        String previous = normalize(previousQuery);
+        String current = normalize(query);
+
+        if (!current.startsWith(previous))
+            return false;
+
+        List<String> previousWords = splitWords(previous);
+
+        // Every word of the previous query is kept, and the last can only grow, so the previous matches are a superset as long as the last word
+        // already matched substrings.
+        return !previousWords.isEmpty() && previousWords.get(previousWords.size() - 1).length() >= NGRAM_LENGTH;
+    }
+
+    //endregion
+
+
+    //region Helpers
+
+    /** Finds the names with a word that starts with a prefix. */
+    private BitSet findWordStarts(String prefix)
+    {
+        BitSet matches = new BitSet(names.length);
+        int start = Arrays.binarySearch(words, prefix);
+
+        // A miss gives the insertion point, which is where the words starting with the prefix begin.
+        if (start < 0)
+            start = -start - 1;
+
+        for (int i = start; i < words.length && words[i].startsWith(prefix); i++)
+            matches.set(wordNames[i]);
+
+        return matches;
+    }
+
+    /** Finds the names among a set of candidates that contain a substring at least {@link #NGRAM_LENGTH} characters long.  Names that contain every
+     * n-gram of the substring are only candidates, since the n-grams may be in a different order, so each is checked. */
+    private BitSet findSubstrings(String substring, BitSet candidates)
+    {
+        BitSet matches = (BitSet)candidates.clone();
+
+        for (int j = 0; j + NGRAM_LENGTH <= substring.length() && !matches.isEmpty(); j++)
+        {
+            BitSet containing = ngrams.get(substring.substring(j, j + NGRAM_LENGTH));
+
+            if (containing == null)
+                return new BitSet();
+
+            matches.and(containing);
+        }
+
+        for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1))
+        {
+            if (!names[i].contains(substring))
+                matches.clear(i);
+        }
+
+        return matches;
+    }
+
+    /** Lower cases a name, treating a missing name as empty. */
+    private static String normalize(String name)
+    {
+        return name == null ? "" : name.toLowerCase(Locale.getDefault());
+    }
+
+    /** Splits lower case text into words at anything that is not a letter or digit. */
+    private static List<String> splitWords(String text)
+    {
+        List<String> words = new ArrayList<>();
+        int start = -1;
+
+        for (int i = 0; i <= text.length(); i++)
+        {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+
+            if (wordChar && start < 0)
+            {
+                start = i;
+            }
+            else if (!wordChar && start >= 0)
+            {
+                words.add(text.substring(start, i));
+                start = -1;
+            }
+        }
+
+        return words;
+    }
+
+    /** A word of a name, before the words are sorted into {@link #words}. */
+    private static class WordEntry
+    {
+        final String word;
+        final int name;
+
+        WordEntry(String word, int name)
+        {
+            this.word = word;
+            this.name = name;
+        }
+    }
+
+    //endregion
+}
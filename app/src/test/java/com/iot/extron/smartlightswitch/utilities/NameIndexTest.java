@@ -0,0 +1,104 @@
+/*
+ * This file is part of Hue SmartSwitch
+ *
+ * Hue SmartSwitch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package com.iot.extron.smartlightswitch.utilities;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class NameIndexTest
+{
+    @Test
+    public void wordsMatchWordStartsAndLongerWordsMatchSubstrings()
+    {
+        NameIndex index = new NameIndex(Arrays.asList("Kitchen", "Chair lamp"));
+
+        assertEquals(bits(1), index.search("ch"));
+        assertEquals(bits(0), index.search("che"));
+        assertEquals(bits(1), index.search("CH"));
+        assertEquals(bits(1), index.search("lamp chair"));
+        assertEquals(bits(0, 1), index.search("  "));
+    }
+
+    @Test
+    public void typingAWordUpToTheNgramLengthDoesNotNarrow()
+    {
+        NameIndex index = new NameIndex(Arrays.asList("Kitchen", "Chair lamp"));
+
+        // "ch" only matches word starts, but "che" also matches inside "Kitchen", so the matches of "ch" are not a superset.
+        assertFalse(NameIndex.isNarrowing("ch", "che"));
+        assertEquals(index.search("che"), filter(index, "c", "ch", "che"));
+    }
+
+    @Test
+    public void typingMoreOfALongWordNarrows()
+    {
+        assertTrue(NameIndex.isNarrowing("che", "chen"));
+        assertTrue(NameIndex.isNarrowing("kitchen", "kitchen l"));
+        assertFalse(NameIndex.isNarrowing("", "kit"));
+        assertFalse(NameIndex.isNarrowing("kitchen l", "kitchen la"));
+        assertFalse(NameIndex.isNarrowing("kitchen", "kitche"));
+    }
+
+    @Test
+    public void filteringAsTypedMatchesAFreshSearch()
+    {
+        NameIndex index = new NameIndex(Arrays.asList("Kitchen", "Chair lamp", "Living room", "Dining room lamp", "Porch", "Bedroom 2"));
+        String[] queries = { "ch", "roo", "la", "lamp", "r", "om", "room la", "in", "2" };
+
+        for (String query : queries)
+        {
+            String[] typed = new String[query.length()];
+
+            for (int i = 0; i < typed.length; i++)
+                typed[i] = query.substring(0, i + 1);
+
+            assertEquals(query, index.search(query), filter(index, typed));
+        }
+    }
+
+    /** Filters as the light picker does while a query is typed, reusing the previous matches where the index allows. */
+    private static BitSet filter(NameIndex index, String... typed)
+    {
+        String previous = "";
+        BitSet matches = index.search(previous);
+
+        for (String query : typed)
+        {
+            matches = NameIndex.isNarrowing(previous, query) ? index.search(query, matches) : index.search(query);
+            previous = query;
+        }
+
+        return matches;
+    }
+
+    private static BitSet bits(int... indices)
+    {
+        BitSet bits = new BitSet();
+
+        for (int index : indices)
+            bits.set(index);
+
+        return bits;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * This file is part of Hue SmartSwitch
+ *
+ * Hue SmartSwitch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package com.iot.extron.smartlightswitch.benchmarks;
+
+import com.iot.extron.smartlightswitch.models.AggregateLight;
+import com.iot.extron.smartlightswitch.models.Light;
+import com.iot.extron.smartlightswitch.simulator.SimulatedBridge;
+import com.iot.extron.smartlightswitch.simulator.SimulatorSettings;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Measures building an {@link AggregateLight} from a selection and reading its aggregated values, as the lightswitch screen does whenever the
+ * selection changes. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AggregateLightBenchmark
+{
+    @Param({ "10", "100", "500" })
+    int lightCount;
+
+    @Param({ "1", "10", "50" })
+    int groupCount;
+
+    List<Light> lights;
+
+    @Setup
+    public void setUp()
+    {
+        lights = SimulatedBridge.generate(lightCount, groupCount, 0, new SimulatorSettings()).createLights();
+    }
+
+    @Benchmark
+    public void aggregate(Blackhole blackhole)
+    {
+        AggregateLight aggregateLight = new AggregateLight();
+
+        for (Light light : lights)
+            aggregateLight.addLight(light);
+
+        blackhole.consume(aggregateLight.getName());
+        blackhole.consume(aggregateLight.getOn());
+        blackhole.consume(aggregateLight.getBrightness());
+        blackhole.consume(aggregateLight.getColor());
+        blackhole.consume(aggregateLight.getColors());
+        blackhole.consume(aggregateLight.getSupportsColors());
+    }
+}
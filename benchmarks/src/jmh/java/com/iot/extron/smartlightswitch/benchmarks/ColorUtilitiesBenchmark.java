@@ -0,0 +1,64 @@
+/*
+ * This file is part of Hue SmartSwitch
+ *
+ * Hue SmartSwitch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package com.iot.extron.smartlightswitch.benchmarks;
+
+import android.graphics.Color;
+
+import com.iot.extron.smartlightswitch.utilities.ColorUtilities;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/** Measures {@link ColorUtilities#averageColors}, which the lightswitch screen uses to pick its text colors. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ColorUtilitiesBenchmark
+{
+    @Param({ "1", "10", "100", "500" })
+    int colorCount;
+
+    List<Color> colors;
+
+    @Setup
+    public void setUp()
+    {
+        Random random = new Random(1L);
+        colors = new ArrayList<>(colorCount);
+
+        for (int i = 0; i < colorCount; i++)
+            colors.add(Color.valueOf(0xFF000000 | random.nextInt(0x1000000)));
+    }
+
+    @Benchmark
+    public Color averageColors()
+    {
+        return ColorUtilities.averageColors(colors);
+    }
+}
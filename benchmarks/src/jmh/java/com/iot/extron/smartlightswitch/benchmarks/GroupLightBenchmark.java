@@ -0,0 +1,66 @@
+/*
+ * This file is part of Hue SmartSwitch
+ *
+ * Hue SmartSwitch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package com.iot.extron.smartlightswitch.benchmarks;
+
+import com.iot.extron.smartlightswitch.models.GroupLight;
+import com.iot.extron.smartlightswitch.simulator.SimulatedBridge;
+import com.iot.extron.smartlightswitch.simulator.SimulatorSettings;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Measures reading the colors and brightness of a {@link GroupLight}, which happens for every selected group on every heartbeat. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GroupLightBenchmark
+{
+    @Param({ "10", "100", "500" })
+    int lightCount;
+
+    GroupLight groupLight;
+
+    @Setup
+    public void setUp()
+    {
+        // A single group that contains a quarter of the lights, the same as the groups of any fleet.
+        SimulatedBridge fleet = SimulatedBridge.generate(lightCount, 1, 0, new SimulatorSettings());
+        groupLight = fleet.createGroupLight(fleet.getGroups().get(0));
+    }
+
+    @Benchmark
+    public List<Integer> getColors()
+    {
+        return groupLight.getColors();
+    }
+
+    @Benchmark
+    public int getBrightness()
+    {
+        return groupLight.getBrightness();
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * This file is part of Hue SmartSwitch
+ *
+ * Hue SmartSwitch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package com.iot.extron.smartlightswitch.benchmarks;
+
+import com.iot.extron.smartlightswitch.models.AggregateLight;
+import com.iot.extron.smartlightswitch.models.Light;
+import com.iot.extron.smartlightswitch.models.SceneCatalog;
+import com.iot.extron.smartlightswitch.models.SceneGroup;
+import com.iot.extron.smartlightswitch.models.SceneIndex;
+import com.iot.extron.smartlightswitch.simulator.SimulatedBridge;
+import com.iot.extron.smartlightswitch.simulator.SimulatorSettings;
+import com.philips.lighting.hue.sdk.wrapper.domain.resource.Scene;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/** Measures finding the scenes for the scene picker: {@link AggregateLight#filterValidScenes} from a plain list of scenes and from a
+ * {@link SceneIndex}, and a {@link SceneCatalog} lookup of a cached selection, along with the cost of keeping the index and catalog up to date. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SceneFilterBenchmark
+{
+    @Param({ "10", "100", "500" })
+    int lightCount;
+
+    @Param({ "1", "10", "50" })
+    int groupCount;
+
+    @Param({ "10", "50", "200" })
+    int sceneCount;
+
+    AggregateLight aggregateLight;
+    List<Scene> scenes;
+    SceneIndex sceneIndex;
+    SceneCatalog sceneCatalog;
+    Set<String> lightIds;
+
+    @Setup
+    public void setUp()
+    {
+        SimulatedBridge fleet = SimulatedBridge.generate(lightCount, groupCount, sceneCount, new SimulatorSettings());
+
+        aggregateLight = new AggregateLight();
+
+        for (Light light : fleet.createLights())
+            aggregateLight.addLight(light);
+
+        scenes = fleet.getScenes();
+        sceneIndex = new SceneIndex(scenes);
+
+        sceneCatalog = new SceneCatalog();
+        sceneCatalog.updateNow(scenes);
+        lightIds = aggregateLight.getLightIds();
+    }
+
+    @Benchmark
+    public List<SceneGroup> filterValidScenes()
+    {
+        return aggregateLight.filterValidScenes(scenes);
+    }
+
+    @Benchmark
+    public List<SceneGroup> filterIndexedScenes()
+    {
+        return aggregateLight.filterValidScenes(sceneIndex);
+    }
+
+    @Benchmark
+    public List<SceneGroup> catalogLookup()
+    {
+        return sceneCatalog.getSceneGroups(lightIds);
+    }
+
+    @Benchmark
+    public SceneCatalog updateCatalog()
+    {
+        sceneCatalog.updateNow(scenes);
+        return sceneCatalog;
+    }
+
+    @Benchmark
+    public SceneIndex updateUnchangedIndex()
+    {
+        sceneIndex.update(scenes);
+        return sceneIndex;
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * This file is part of Hue SmartSwitch
+ *
+ * Hue SmartSwitch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package android.graphics;
+
+/**
+ * A JVM stand-in for the parts of Android's <code>Color</code> that the app's models use, so that they can run without a device.  The
+ * conversions behave the same as the framework's for opaque sRGB colors.
+ */
+public class Color
+{
+    //region Static Fields
+
+    public static final int BLACK = 0xFF000000;
+    public static final int WHITE = 0xFFFFFFFF;
+    public static final int LTGRAY = 0xFFCCCCCC;
+    public static final int TRANSPARENT = 0;
+
+    //endregion
+
+
+    //region Fields
+
+    private final float red, green, blue, alpha;
+
+    //endregion
+
+
+    //region Constructors
+
+    private Color(float red, float green, float blue, float alpha)
+    {
+        this.red = red;
+        this.green = green;
+        this.blue = blue;
+        this.alpha = alpha;
+    }
+
+    public static Color valueOf(int color)
+    {
+        return new Color(red(color) / 255f, green(color) / 255f, blue(color) / 255f, alpha(color) / 255f);
+    }
+
+    public static Color valueOf(float red, float green, float blue)
+    {
+        return new Color(red, green, blue, 1f);
+    }
+
+    //endregion
+
+
+    //region Instance Methods
+
+    public float red()
+    {
+        return red;
+    }
+
+    public float green()
+    {
+        return green;
+    }
+
+    public float blue()
+    {
+        return blue;
+    }
+
+    public float alpha()
+    {
+        return alpha;
+    }
+
+    public int toArgb()
+    {
+        return argb(Math.round(alpha * 255f), Math.round(red * 255f), Math.round(green * 255f), Math.round(blue * 255f));
+    }
+
+    //endregion
+
+
+    //region Static Methods
+
+    public static int alpha(int color)
+    {
+        return color >>> 24;
+    }
+
+    public static int red(int color)
+    {
+        return (color >> 16) & 0xFF;
+    }
+
+    public static int green(int color)
+    {
+        return (color >> 8) & 0xFF;
+    }
+
+    public static int blue(int color)
+    {
+        return color & 0xFF;
+    }
+
+    public static int rgb(int red, int green, int blue)
+    {
+        return argb(255, red, green, blue);
+    }
+
+    public static int argb(int alpha, int red, int green, int blue)
+    {
+        return (alpha << 24) | (red << 16) | (green << 8) | blue;
+    }
+
+    public static int HSVToColor(float[] hsv)
+    {
+        return HSVToColor(255, hsv);
+    }
+
+    public static int HSVToColor(int alpha, float[] hsv)
+    {
+        float hue = hsv[0] < 0 || hsv[0] >= 360f ? 0 : hsv[0];
+        float sat = Math.max(0, Math.min(1, hsv[1]));
+        float value = Math.max(0, Math.min(1, hsv[2]));
+
+        float hx = hue / 60f;
+        int sector = (int)hx;
+        float f = hx - sector;
+
+        int v = Math.round(value * 255f);
+        int p = Math.round(value * (1f - sat) * 255f);
+        int q = Math.round(value * (1f - sat * f) * 255f);
+        int t = Math.round(value * (1f - sat * (1f - f)) * 255f);
+
+        switch (sector)
+        {
+            case 0:  return argb(alpha, v, t, p);
+            case 1:  return argb(alpha, q, v, p);
+            case 2:  return argb(alpha, p, v, t);
+            case 3:  return argb(alpha, p, q, v);
+            case 4:  return argb(alpha, t, p, v);
+            default: return argb(alpha, v, p, q);
+        }
+    }
+
+    public static void colorToHSV(int color, float[] hsv)
+    {
+        int r = red(color);
+        int g = green(color);
+        int b = blue(color);
+
+        int max = Math.max(r, Math.max(g, b));
+        int min = Math.min(r, Math.min(g, b));
+        int delta = max - min;
+
+        float hue = 0f;
+
+        if (delta != 0)
+        {
+            if (r == max)
+                hue = (float)(g - b) / delta;
+            else if (g == max)
+                hue = 2f + (float)(b - r) / delta;
+            else
+                hue = 4f + (float)(r - g) / delta;
+
+            hue *= 60f;
+
+            if (hue < 0f)
+                hue += 360f;
+        }
+
+        hsv[0] = hue;
+        hsv[1] = max == 0 ? 0f : (float)delta / max;
+        hsv[2] = max / 255f;
+    }
+
+    //endregion
+}
@@ -0,0 +1,67 @@
+/*
+ * This file is part of Hue SmartSwitch
+ *
+ * Hue SmartSwitch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package android.util;
+
+/**
+ * A JVM stand-in for the parts of Android's <code>Log</code> that the app's models use.  Messages are written to standard error.
+ */
+public final class Log
+{
+    //region Constructors
+
+    private Log()
+    {
+    }
+
+    //endregion
+
+
+    //region Logging
+
+    public static int w(String tag, String message)
+    {
+        return w(tag, message, null);
+    }
+
+    public static int w(String tag, String message, Throwable throwable)
+    {
+        return print("W", tag, message, throwable);
+    }
+
+    public static int e(String tag, String message)
+    {
+        return e(tag, message, null);
+    }
+
+    public static int e(String tag, String message, Throwable throwable)
+    {
+        return print("E", tag, message, throwable);
+    }
+
+    private static int print(String level, String tag, String message, Throwable throwable)
+    {
+        System.err.println(level + "/" + tag + ": " + message);
+
+        if (throwable != null)
+            throwable.printStackTrace();
+
+        return 0;
+    }
+
+    //endregion
+}
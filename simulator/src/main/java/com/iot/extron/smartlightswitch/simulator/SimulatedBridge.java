@@ -0,0 +1,499 @@
+/*
+ * This file is part of Hue SmartSwitch
+ *
+ * Hue SmartSwitch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package com.iot.extron.smartlightswitch.simulator;
+
+import com.iot.extron.smartlightswitch.models.GroupLight;
+import com.iot.extron.smartlightswitch.models.Light;
+import com.iot.extron.smartlightswitch.models.LightCommandPlanner;
+import com.iot.extron.smartlightswitch.models.SingleLight;
+import com.philips.lighting.hue.sdk.wrapper.connection.BridgeResponseCallback;
+import com.philips.lighting.hue.sdk.wrapper.domain.ReturnCode;
+import com.philips.lighting.hue.sdk.wrapper.domain.clip.DoublePair;
+import com.philips.lighting.hue.sdk.wrapper.domain.device.light.LightPoint;
+import com.philips.lighting.hue.sdk.wrapper.domain.device.light.LightState;
+import com.philips.lighting.hue.sdk.wrapper.domain.device.light.LightType;
+import com.philips.lighting.hue.sdk.wrapper.domain.resource.Group;
+import com.philips.lighting.hue.sdk.wrapper.domain.resource.Scene;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An in-process stand-in for a Hue bridge, for running the app's models against large fleets and unreliable connections without a physical
+ * bridge.  Its lights, groups and scenes are subclasses of the SDK's own classes, so they can be wrapped in {@link SingleLight}s and
+ * {@link GroupLight}s and sent commands exactly as the app does, and the bridge itself is the {@link LightCommandPlanner.BridgeLayout} those
+ * commands are planned around.  Requests are answered on a single bridge thread after a configurable latency, are throttled to the bridge's
+ * request rate, and can be made to fail or time out, as described by the {@link SimulatorSettings}.
+ * <p>
+ * Like the SDK, the bridge keeps two copies of each light's state: the state on the bridge, which requests change, and the state the app last
+ * saw, which {@link LightPoint#getLightState()} returns and which is only brought up to date by {@link #refresh}.
+ */
+public class SimulatedBridge implements LightCommandPlanner.BridgeLayout
+{
+    //region Static Fields
+
+    /** The colors that generated lights are given.  Real fleets only show a handful of distinct colors at a time. */
+    private static final double[][] PALETTE_XY = { { 0.4573, 0.41 }, { 0.3227, 0.329 }, { 0.675, 0.322 }, { 0.167, 0.04 }, { 0.409, 0.518 }, { 0.5267, 0.4133 } };
+
+    /** The color temperatures that generated lights are given, in mireds. */
+    private static final int[] PALETTE_CT = { 153, 233, 366, 447 };
+
+    /** The number of distinct generated scene names, so that scenes with the same name on different lights are grouped together. */
+    private static final int SCENE_NAMES = 20;
+
+    //endregion
+
+
+    //region Fields
+
+    final SimulatorSettings settings;
+
+    final Map<String, SimulatedLightPoint> lights = new LinkedHashMap<>();
+    final Map<String, SimulatedGroup> groups = new LinkedHashMap<>();
+    final Map<String, SimulatedScene> scenes = new LinkedHashMap<>();
+
+    /** The source of random latencies and failures.  Only used while holding the bridge's lock. */
+    private final Random random;
+
+    /** The bridge thread, which processes every request in order, so the bridge's state never needs locking. */
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable ->
+    {
+        Thread thread = new Thread(runnable, "SimulatedBridge");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** The time the bridge is next free to process a request, in {@link System#nanoTime()} units.  Guarded by the bridge's lock. */
+    private long nextFreeTime;
+
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong busyCount = new AtomicLong();
+    private final AtomicLong errorCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+
+    //endregion
+
+
+    //region Constructors
+
+    /** Creates an empty bridge.
+     * @param settings The behavior of the bridge.
+     */
+    public SimulatedBridge(SimulatorSettings settings)
+    {
+        this.settings = settings;
+        this.random = new Random(settings.seed);
+    }
+
+    /** Creates a bridge with a generated fleet.  The same counts and seed always generate the same fleet, so runs are comparable.
+     * @param lightCount The number of lights.
+     * @param groupCount The number of groups.  Each group contains a random selection of the lights.
+     * @param sceneCount The number of scenes.  Each scene sets a random selection of the lights.
+     * @param settings The behavior of the bridge.
+     * @return The bridge.
+     */
+    public static SimulatedBridge generate(int lightCount, int groupCount, int sceneCount, SimulatorSettings settings)
+    {
+        SimulatedBridge bridge = new SimulatedBridge(settings);
+        Random random = new Random(settings.seed);
+        List<String> lightIds = new ArrayList<>(lightCount);
+
+        for (int i = 0; i < lightCount; i++)
+        {
+            String id = Integer.toString(i + 1);
+            lightIds.add(id);
+            bridge.addLight(id, "Light " + id, randomLightType(random), randomLightState(random));
+        }
+
+        for (int i = 0; i < groupCount; i++)
+            bridge.addGroup(Integer.toString(i + 1), "Group " + (i + 1), pick(lightIds, 2, Math.max(2, lightCount / 4), random));
+
+        for (int i = 0; i < sceneCount; i++)
+        {
+            Map<String, LightState> lightStates = new LinkedHashMap<>();
+
+            for (String id : pick(lightIds, 1, Math.max(1, lightCount / 10), random))
+                lightStates.put(id, randomLightState(random));
+
+            bridge.addScene("scene" + (i + 1), "Scene " + (i % SCENE_NAMES), lightStates);
+        }
+
+        return bridge;
+    }
+
+    //endregion
+
+
+    //region Fleet Methods
+
+    /** Adds a light to the bridge.
+     * @param identifier The light's identifier.
+     * @param name The light's name.
+     * @param type The light's type.
+     * @param state The light's initial state.
+     * @return The light.
+     */
+    public SimulatedLightPoint addLight(String identifier, String name, LightType type, LightState state)
+    {
+        SimulatedLightPoint light = new SimulatedLightPoint(this, identifier, name, type, state);
+        lights.put(identifier, light);
+        return light;
+    }
+
+    /** Adds a group to the bridge.
+     * @param identifier The group's identifier.
+     * @param name The group's name.
+     * @param lightIds The identifiers of the lights in the group.
+     * @return The group.
+     */
+    public SimulatedGroup addGroup(String identifier, String name, List<String> lightIds)
+    {
+        SimulatedGroup group = new SimulatedGroup(this, identifier, name, lightIds);
+        groups.put(identifier, group);
+        return group;
+    }
+
+    /** Adds a scene to the bridge.
+     * @param identifier The scene's identifier.
+     * @param name The scene's name.
+     * @param lightStates The state the scene sets each of its lights to, by light identifier.
+     * @return The scene.
+     */
+    public SimulatedScene addScene(String identifier, String name, Map<String, LightState> lightStates)
+    {
+        SimulatedScene scene = new SimulatedScene(this, identifier, name, lightStates);
+        scenes.put(identifier, scene);
+        return scene;
+    }
+
+    public List<LightPoint> getLightPoints()
+    {
+        return new ArrayList<>(lights.values());
+    }
+
+    @Override
+    public List<Group> getGroups()
+    {
+        return new ArrayList<>(groups.values());
+    }
+
+    public List<Scene> getScenes()
+    {
+        return new ArrayList<>(scenes.values());
+    }
+
+    /** Gets a light.
+     * @param identifier The light's identifier.
+     * @return The light, or <code>null</code> if there is none with the identifier.
+     */
+    @Override
+    public SimulatedLightPoint getLight(String identifier)
+    {
+        return lights.get(identifier);
+    }
+
+    /** Gets a group.
+     * @param identifier The group's identifier.
+     * @return The group, or <code>null</code> if there is none with the identifier.
+     */
+    public SimulatedGroup getGroup(String identifier)
+    {
+        return groups.get(identifier);
+    }
+
+    /** Wraps every light in a {@link SingleLight} and every group in a {@link GroupLight}, in the same way as lights are selected in the app.
+     * @return The wrapped lights, followed by the wrapped groups.
+     */
+    public List<Light> createLights()
+    {
+        List<Light> wrapped = new ArrayList<>(lights.size() + groups.size());
+
+        for (LightPoint light : lights.values())
+            wrapped.add(new SingleLight(light));
+
+        for (Group group : groups.values())
+            wrapped.add(createGroupLight(group));
+
+        return wrapped;
+    }
+
+    /** Wraps a group in a {@link GroupLight}, looking up its lights on this bridge.
+     * @param group The group.
+     * @return The wrapped group.
+     */
+    public GroupLight createGroupLight(Group group)
+    {
+        List<LightPoint> contained = new ArrayList<>();
+
+        for (String id : group.getLightIds())
+        {
+            LightPoint light = lights.get(id);
+
+            if (light != null)
+                contained.add(light);
+        }
+
+        return new GroupLight(group, contained);
+    }
+
+    //endregion
+
+
+    //region Bridge Methods
+
+    /** Brings the state the app sees of every light up to date with the bridge, in the same way as refreshing the SDK's bridge state.
+     * @param callback Receives the result once the refresh completes.
+     */
+    public void refresh(BridgeResponseCallback callback)
+    {
+        submit(1, () ->
+        {
+            for (SimulatedLightPoint light : lights.values())
+                light.observedState = light.bridgeState.clone();
+        }, callback);
+    }
+
+    /** Gets the number of requests the bridge has received. */
+    public long getRequestCount()
+    {
+        return requestCount.get();
+    }
+
+    /** Gets the number of requests that were rejected because the bridge was too busy. */
+    public long getBusyCount()
+    {
+        return busyCount.get();
+    }
+
+    /** Gets the number of requests that failed with an error. */
+    public long getErrorCount()
+    {
+        return errorCount.get();
+    }
+
+    /** Gets the number of requests that timed out. */
+    public long getTimeoutCount()
+    {
+        return timeoutCount.get();
+    }
+
+    /** Stops the bridge thread.  Requests that have not been answered yet are never answered. */
+    public void shutdown()
+    {
+        executor.shutdownNow();
+    }
+
+    //endregion
+
+
+    //region Request Handling
+
+    /** Accepts a request, then processes and answers it on the bridge thread once its turn comes and the latency has passed.
+     * @param cost The number of light requests the request counts as towards the request rate.
+     * @param onProcessed Changes the bridge's state.  Only run if the request succeeds.
+     * @param callback Receives the result of the request.
+     */
+    void submit(int cost, final Runnable onProcessed, final BridgeResponseCallback callback)
+    {
+        requestCount.incrementAndGet();
+
+        long now = System.nanoTime();
+        long wait = 0;
+        boolean busy = false;
+        double roll;
+        long latency;
+
+        synchronized (this)
+        {
+            if (settings.requestsPerSecond > 0)
+            {
+                long start = Math.max(now, nextFreeTime);
+                wait = start - now;
+
+                if (wait > TimeUnit.MILLISECONDS.toNanos(settings.maxQueueDelay))
+                    busy = true;
+                else
+                    nextFreeTime = start + cost * TimeUnit.SECONDS.toNanos(1) / settings.requestsPerSecond;
+            }
+
+            roll = random.nextDouble();
+            latency = settings.latency + (settings.latencyJitter > 0 ? (long)((random.nextDouble() * 2 - 1) * settings.latencyJitter) : 0);
+        }
+
+        long delay = wait + TimeUnit.MILLISECONDS.toNanos(Math.max(0, latency));
+
+        if (busy)
+        {
+            busyCount.incrementAndGet();
+            executor.schedule(() -> respond(callback, ReturnCode.BUSY), TimeUnit.MILLISECONDS.toNanos(Math.max(0, latency)), TimeUnit.NANOSECONDS);
+        }
+        else if (roll < settings.timeoutRate)
+        {
+            // The request is lost on its way to the bridge, so it is never processed.
+            timeoutCount.incrementAndGet();
+            executor.schedule(() -> respond(callback, ReturnCode.REQUEST_TIMED_OUT), settings.timeout, TimeUnit.MILLISECONDS);
+        }
+        else if (roll < settings.timeoutRate + settings.errorRate)
+        {
+            errorCount.incrementAndGet();
+            executor.schedule(() -> respond(callback, ReturnCode.ERROR), delay, TimeUnit.NANOSECONDS);
+        }
+        else
+        {
+            executor.schedule(() ->
+            {
+                onProcessed.run();
+                respond(callback, ReturnCode.SUCCESS);
+            }, delay, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /** Answers a request. */
+    private static void respond(BridgeResponseCallback callback, ReturnCode returnCode)
+    {
+        if (callback != null)
+            callback.handleCallback(null, returnCode, Collections.emptyList(), Collections.emptyList());
+    }
+
+    /** Applies a state to a light on the bridge.  Only called on the bridge thread. */
+    void applyToLight(String identifier, LightState changes)
+    {
+        SimulatedLightPoint light = lights.get(identifier);
+
+        if (light != null)
+            light.bridgeState = merge(light.bridgeState, changes);
+    }
+
+    /** Applies a state to every light in a group on the bridge.  Only called on the bridge thread. */
+    void applyToGroup(String identifier, LightState changes)
+    {
+        SimulatedGroup group = groups.get(identifier);
+
+        if (group != null)
+        {
+            for (String lightId : group.lightIds)
+                applyToLight(lightId, changes);
+        }
+    }
+
+    /** Sets every light in a scene to the scene's state for it.  Only called on the bridge thread. */
+    void recallScene(String identifier)
+    {
+        SimulatedScene scene = scenes.get(identifier);
+
+        if (scene != null)
+        {
+            for (Map.Entry<String, LightState> entry : scene.lightStates.entrySet())
+                applyToLight(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /** Applies the fields that are set in a state to another, in the same way as the bridge.  Setting any color field replaces the current color,
+     * and brightness increments are added and clamped to the brightness range.
+     * @param current The current state, which is not modified.
+     * @param changes The fields to change.
+     * @return The new state.
+     */
+    static LightState merge(LightState current, LightState changes)
+    {
+        LightState merged = new LightState();
+
+        merged.setOn(changes.isOn() != null ? changes.isOn() : current.isOn());
+
+        Integer brightness = changes.getBrightness() != null ? changes.getBrightness() : current.getBrightness();
+
+        if (brightness != null && changes.getBrightnessIncrement() != null)
+            brightness = Math.max(1, Math.min(254, brightness + changes.getBrightnessIncrement()));
+
+        merged.setBrightness(brightness);
+
+        LightState color = changes.getXY() != null || changes.getCT() != null || changes.getHue() != null || changes.getSaturation() != null ? changes : current;
+        DoublePair xy = color.getXY();
+
+        if (xy != null)
+            merged.setXY(xy.getValue1(), xy.getValue2());
+        else if (color.getCT() != null)
+            merged.setCT(color.getCT());
+        else
+        {
+            merged.setHue(color.getHue());
+            merged.setSaturation(color.getSaturation());
+        }
+
+        return merged;
+    }
+
+    //endregion
+
+
+    //region Generation
+
+    private static LightType randomLightType(Random random)
+    {
+        int roll = random.nextInt(10);
+
+        if (roll < 6)
+            return LightType.EXTENDED_COLOR;
+        else if (roll < 8)
+            return LightType.COLOR_TEMPERATURE;
+        else
+            return LightType.DIMMABLE;
+    }
+
+    private static LightState randomLightState(Random random)
+    {
+        LightState state = new LightState();
+        state.setOn(random.nextInt(4) != 0);
+        state.setBrightness(1 + random.nextInt(254));
+
+        if (random.nextBoolean())
+        {
+            double[] xy = PALETTE_XY[random.nextInt(PALETTE_XY.length)];
+            state.setXY(xy[0], xy[1]);
+        }
+        else
+        {
+            state.setCT(PALETTE_CT[random.nextInt(PALETTE_CT.length)]);
+        }
+
+        return state;
+    }
+
+    /** Picks a random selection of IDs, in their original order. */
+    private static List<String> pick(List<String> ids, int min, int max, Random random)
+    {
+        int count = Math.min(ids.size(), min + random.nextInt(Math.max(1, max - min + 1)));
+
+        List<String> shuffled = new ArrayList<>(ids);
+        Collections.shuffle(shuffled, random);
+
+        List<String> picked = new ArrayList<>(shuffled.subList(0, count));
+        picked.sort((a, b) -> Integer.compare(Integer.parseInt(a), Integer.parseInt(b)));
+        return picked;
+    }
+
+    //endregion
+}
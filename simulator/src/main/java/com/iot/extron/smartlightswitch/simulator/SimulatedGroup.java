@@ -0,0 +1,123 @@
+/*
+ * This file is part of Hue SmartSwitch
+ *
+ * Hue SmartSwitch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package com.iot.extron.smartlightswitch.simulator;
+
+import com.philips.lighting.hue.sdk.wrapper.connection.BridgeConnectionType;
+import com.philips.lighting.hue.sdk.wrapper.connection.BridgeResponseCallback;
+import com.philips.lighting.hue.sdk.wrapper.domain.device.light.LightState;
+import com.philips.lighting.hue.sdk.wrapper.domain.resource.Action;
+import com.philips.lighting.hue.sdk.wrapper.domain.resource.Group;
+import com.philips.lighting.hue.sdk.wrapper.domain.resource.GroupState;
+
+import java.util.Collections;
+import java.util.List;
+
+/** A {@link Group} on a {@link SimulatedBridge}.  Its values are kept in Java rather than in the SDK's native library, and actions are sent to the
+ * simulated bridge, where they count as several light requests. */
+public class SimulatedGroup extends Group
+{
+    //region Fields
+
+    final SimulatedBridge bridge;
+    final String identifier;
+    final String name;
+    final List<String> lightIds;
+
+    /** The group's state, computed from the states of its lights as the app last saw them. */
+    final GroupState groupState = new GroupState()
+    {
+        @Override
+        public Boolean isAnyOn()
+        {
+            for (String id : lightIds)
+            {
+                SimulatedLightPoint light = bridge.getLight(id);
+
+                if (light != null && Boolean.TRUE.equals(light.getLightState().isOn()))
+                    return true;
+            }
+
+            return false;
+        }
+
+        @Override
+        public Boolean isAllOn()
+        {
+            for (String id : lightIds)
+            {
+                SimulatedLightPoint light = bridge.getLight(id);
+
+                if (light != null && !Boolean.TRUE.equals(light.getLightState().isOn()))
+                    return false;
+            }
+
+            return true;
+        }
+    };
+
+    //endregion
+
+
+    //region Constructors
+
+    SimulatedGroup(SimulatedBridge bridge, String identifier, String name, List<String> lightIds)
+    {
+        this.bridge = bridge;
+        this.identifier = identifier;
+        this.name = name;
+        this.lightIds = Collections.unmodifiableList(lightIds);
+    }
+
+    //endregion
+
+
+    //region Group Methods
+
+    @Override
+    public String getIdentifier()
+    {
+        return identifier;
+    }
+
+    @Override
+    public String getName()
+    {
+        return name;
+    }
+
+    @Override
+    public List<String> getLightIds()
+    {
+        return lightIds;
+    }
+
+    @Override
+    public GroupState getGroupState()
+    {
+        return groupState;
+    }
+
+    @Override
+    public void apply(Action action, BridgeConnectionType connectionType, BridgeResponseCallback callback)
+    {
+        final LightState changes = ((LightState)action).clone();
+        bridge.submit(bridge.settings.groupRequestCost, () -> bridge.applyToGroup(identifier, changes), callback);
+    }
+
+    //endregion
+}
@@ -0,0 +1,102 @@
+/*
+ * This file is part of Hue SmartSwitch
+ *
+ * Hue SmartSwitch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package com.iot.extron.smartlightswitch.simulator;
+
+import com.philips.lighting.hue.sdk.wrapper.connection.BridgeConnectionType;
+import com.philips.lighting.hue.sdk.wrapper.connection.BridgeResponseCallback;
+import com.philips.lighting.hue.sdk.wrapper.domain.device.DeviceState;
+import com.philips.lighting.hue.sdk.wrapper.domain.device.light.LightPoint;
+import com.philips.lighting.hue.sdk.wrapper.domain.device.light.LightState;
+import com.philips.lighting.hue.sdk.wrapper.domain.device.light.LightType;
+
+/** A {@link LightPoint} on a {@link SimulatedBridge}.  Its values are kept in Java rather than in the SDK's native library, and state updates are
+ * sent to the simulated bridge. */
+public class SimulatedLightPoint extends LightPoint
+{
+    //region Fields
+
+    final SimulatedBridge bridge;
+    final String name;
+    final LightType type;
+
+    /** The light's state on the bridge.  Only changed on the bridge thread. */
+    volatile LightState bridgeState;
+
+    /** The light's state as the app last saw it, which is brought up to date by {@link SimulatedBridge#refresh}. */
+    volatile LightState observedState;
+
+    //endregion
+
+
+    //region Constructors
+
+    SimulatedLightPoint(SimulatedBridge bridge, String identifier, String name, LightType type, LightState state)
+    {
+        super(0L, identifier, state);
+        this.bridge = bridge;
+        this.name = name;
+        this.type = type;
+        this.bridgeState = state.clone();
+        this.observedState = state.clone();
+    }
+
+    //endregion
+
+
+    //region LightPoint Methods
+
+    @Override
+    public String getName()
+    {
+        return name;
+    }
+
+    @Override
+    public LightType getLightType()
+    {
+        return type;
+    }
+
+    @Override
+    public LightState getLightState()
+    {
+        return observedState;
+    }
+
+    @Override
+    public void updateState(DeviceState state, BridgeConnectionType connectionType, BridgeResponseCallback callback)
+    {
+        final LightState changes = ((LightState)state).clone();
+        bridge.submit(1, () -> bridge.applyToLight(getIdentifier(), changes), callback);
+    }
+
+    //endregion
+
+
+    //region Getters
+
+    /** Gets the light's current state on the bridge, which the app only sees after a refresh.
+     * @return The state on the bridge.
+     */
+    public LightState getBridgeState()
+    {
+        return bridgeState;
+    }
+
+    //endregion
+}
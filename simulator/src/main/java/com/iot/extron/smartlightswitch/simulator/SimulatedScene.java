@@ -0,0 +1,89 @@
+/*
+ * This file is part of Hue SmartSwitch
+ *
+ * Hue SmartSwitch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package com.iot.extron.smartlightswitch.simulator;
+
+import com.philips.lighting.hue.sdk.wrapper.connection.BridgeConnectionType;
+import com.philips.lighting.hue.sdk.wrapper.connection.BridgeResponseCallback;
+import com.philips.lighting.hue.sdk.wrapper.domain.device.light.LightState;
+import com.philips.lighting.hue.sdk.wrapper.domain.resource.Scene;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/** A {@link Scene} on a {@link SimulatedBridge}.  Its values are kept in Java rather than in the SDK's native library, and recalls are sent to the
+ * simulated bridge, where they count as several light requests. */
+public class SimulatedScene extends Scene
+{
+    //region Fields
+
+    final SimulatedBridge bridge;
+    final String identifier;
+    final String name;
+
+    /** The state the scene sets each of its lights to, by light identifier. */
+    final Map<String, LightState> lightStates;
+
+    final List<String> lightIds;
+
+    //endregion
+
+
+    //region Constructors
+
+    SimulatedScene(SimulatedBridge bridge, String identifier, String name, Map<String, LightState> lightStates)
+    {
+        this.bridge = bridge;
+        this.identifier = identifier;
+        this.name = name;
+        this.lightStates = Collections.unmodifiableMap(lightStates);
+        this.lightIds = Collections.unmodifiableList(new ArrayList<>(lightStates.keySet()));
+    }
+
+    //endregion
+
+
+    //region Scene Methods
+
+    @Override
+    public String getIdentifier()
+    {
+        return identifier;
+    }
+
+    @Override
+    public String getName()
+    {
+        return name;
+    }
+
+    @Override
+    public List<String> getLightIds()
+    {
+        return lightIds;
+    }
+
+    @Override
+    public void recall(BridgeConnectionType connectionType, BridgeResponseCallback callback)
+    {
+        bridge.submit(bridge.settings.groupRequestCost, () -> bridge.recallScene(identifier), callback);
+    }
+
+    //endregion
+}
@@ -0,0 +1,367 @@
+/*
+ * This file is part of Hue SmartSwitch
+ *
+ * Hue SmartSwitch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package com.iot.extron.smartlightswitch.simulator;
+
+import com.iot.extron.smartlightswitch.models.AggregateLight;
+import com.iot.extron.smartlightswitch.models.BridgeRequestScheduler;
+import com.iot.extron.smartlightswitch.models.GroupLight;
+import com.iot.extron.smartlightswitch.models.Light;
+import com.iot.extron.smartlightswitch.models.LightCommandPlanner;
+import com.iot.extron.smartlightswitch.models.LightCommandQueue;
+import com.iot.extron.smartlightswitch.models.SceneGroup;
+import com.iot.extron.smartlightswitch.models.SingleLight;
+import com.philips.lighting.hue.sdk.wrapper.connection.BridgeConnectionType;
+import com.philips.lighting.hue.sdk.wrapper.connection.BridgeResponseCallback;
+import com.philips.lighting.hue.sdk.wrapper.domain.Bridge;
+import com.philips.lighting.hue.sdk.wrapper.domain.HueError;
+import com.philips.lighting.hue.sdk.wrapper.domain.ReturnCode;
+import com.philips.lighting.hue.sdk.wrapper.domain.clip.ClipResponse;
+import com.philips.lighting.hue.sdk.wrapper.domain.device.light.LightPoint;
+import com.philips.lighting.hue.sdk.wrapper.domain.device.light.LightState;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drives the app's command path against a {@link SimulatedBridge} and reports how it performs.  A selection of lights and groups is put in an
+ * {@link AggregateLight}, which is sent a stream of brightness changes through a {@link LightCommandQueue} and {@link BridgeRequestScheduler} as
+ * if a slider were being dragged, with the commands planned around the bridge's groups by the {@link LightCommandPlanner}.  The bridge is then refreshed to check that the lights ended at the last brightness sent, and finally every
+ * {@link SceneGroup} of the selection is recalled.
+ * <p>
+ * Options are passed as <code>--name=value</code>.  Run with <code>--help</code> to list them.
+ * <p>
+ * The harness exits with status 1 if the bridge rejected any request as busy, since that means the app sent requests faster than the bridge's
+ * request rate allows.
+ */
+public class SimulatorHarness
+{
+    //region Static Fields
+
+    /** The options and their default values, in the order they are listed by <code>--help</code>. */
+    private static final String[][] OPTIONS =
+    {
+        { "lights", "200", "The number of lights on the bridge." },
+        { "groups", "20", "The number of groups on the bridge." },
+        { "scenes", "100", "The number of scenes on the bridge." },
+        { "selection", "40", "The number of lights and groups to control." },
+        { "commands", "100", "The number of brightness changes to send." },
+        { "interval", "50", "The time between brightness changes, in milliseconds." },
+        { "latency", "40", "The bridge's response time, in milliseconds." },
+        { "jitter", "20", "The most the response time varies by, in milliseconds." },
+        { "rps", "10", "The light requests the bridge processes per second, or 0 for no limit." },
+        { "groupcost", "10", "The light requests that each group or scene request counts as." },
+        { "maxqueue", "2000", "The longest a request waits its turn before the bridge is busy, in milliseconds." },
+        { "errors", "0", "The fraction of requests that fail." },
+        { "timeouts", "0", "The fraction of requests that time out." },
+        { "timeout", "5000", "The time after which requests time out, in milliseconds." },
+        { "seed", "1", "The seed of the generated fleet and of the bridge's random behavior." },
+    };
+
+    //endregion
+
+
+    //region Main
+
+    public static void main(String[] args) throws InterruptedException
+    {
+        Map<String, String> options = parseOptions(args);
+
+        if (options == null)
+        {
+            printUsage();
+            System.exit(2);
+            return;
+        }
+
+        SimulatorSettings settings = new SimulatorSettings()
+            .setLatency(Long.parseLong(options.get("latency")))
+            .setLatencyJitter(Long.parseLong(options.get("jitter")))
+            .setRequestsPerSecond(Integer.parseInt(options.get("rps")))
+            .setGroupRequestCost(Integer.parseInt(options.get("groupcost")))
+            .setMaxQueueDelay(Long.parseLong(options.get("maxqueue")))
+            .setErrorRate(Double.parseDouble(options.get("errors")))
+            .setTimeoutRate(Double.parseDouble(options.get("timeouts")))
+            .setTimeout(Long.parseLong(options.get("timeout")))
+            .setSeed(Long.parseLong(options.get("seed")));
+
+        SimulatedBridge bridge = SimulatedBridge.generate(Integer.parseInt(options.get("lights")), Integer.parseInt(options.get("groups")), Integer.parseInt(options.get("scenes")), settings);
+
+        List<Light> lights = bridge.createLights();
+        Collections.shuffle(lights, new Random(settings.seed));
+
+        AggregateLight aggregateLight = new AggregateLight();
+
+        for (Light light : lights.subList(0, Math.min(lights.size(), Integer.parseInt(options.get("selection")))))
+            aggregateLight.addLight(light);
+
+        BridgeRequestScheduler scheduler = new BridgeRequestScheduler();
+        LightCommandQueue commandQueue = new LightCommandQueue(scheduler);
+        long waitLimit = settings.timeout * 4 + 10000;
+
+        System.out.println("Fleet: " + bridge.getLightPoints().size() + " lights, " + bridge.getGroups().size() + " groups, " + bridge.getScenes().size() + " scenes; controlling " + aggregateLight.getLights().size());
+
+        printPlan(bridge, aggregateLight);
+
+        int lastBrightness = runCommands(bridge, aggregateLight, commandQueue, Integer.parseInt(options.get("commands")), Long.parseLong(options.get("interval")), waitLimit);
+        runRefresh(bridge, aggregateLight, lastBrightness, waitLimit);
+        runScenes(bridge, aggregateLight, scheduler, waitLimit);
+
+        System.out.println(String.format("Bridge: %d requests, %d busy, %d errors, %d timeouts", bridge.getRequestCount(), bridge.getBusyCount(), bridge.getErrorCount(), bridge.getTimeoutCount()));
+
+        long busy = bridge.getBusyCount();
+        bridge.shutdown();
+
+        if (busy > 0)
+        {
+            System.out.println("Rate limited: the bridge rejected " + busy + " requests as busy");
+            System.exit(1);
+        }
+    }
+
+    //endregion
+
+
+    //region Scenarios
+
+    /** Reports how many group and light commands each change to the aggregate light is planned as, and what they cost against the request rate. */
+    private static void printPlan(SimulatedBridge bridge, AggregateLight aggregateLight)
+    {
+        List<Light> commands = LightCommandPlanner.plan(aggregateLight.getLights(), bridge).getCommands();
+        int groupCommands = 0;
+
+        for (Light command : commands)
+        {
+            if (command.isGroup())
+                groupCommands++;
+        }
+
+        int lightCommands = commands.size() - groupCommands;
+        int cost = groupCommands * BridgeRequestScheduler.GROUP_REQUEST_COST + lightCommands * BridgeRequestScheduler.LIGHT_REQUEST_COST;
+
+        System.out.println(String.format("Plan: %d group commands and %d light commands per change, costing %d light requests", groupCommands, lightCommands, cost));
+    }
+
+    /** Sends a stream of brightness changes to the aggregate light, and reports how long each took to be answered by every light.
+     * @return The last brightness sent.
+     */
+    private static int runCommands(SimulatedBridge bridge, AggregateLight aggregateLight, LightCommandQueue commandQueue, int commands, long interval, long waitLimit) throws InterruptedException
+    {
+        final LatencyRecorder latencies = new LatencyRecorder();
+        final AtomicInteger failures = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(commands);
+        int brightness = 1;
+
+        for (int i = 0; i < commands; i++)
+        {
+            brightness = 1 + (int)((long)i * 253 / Math.max(1, commands - 1));
+
+            LightState state = new LightState();
+            state.setBrightness(brightness);
+
+            final long start = System.nanoTime();
+
+            aggregateLight.applyLightState(state, BridgeConnectionType.LOCAL, bridge, commandQueue, null, results ->
+            {
+                latencies.record(System.nanoTime() - start);
+
+                if (results.stream().anyMatch(result -> result.getReturnCode() != ReturnCode.SUCCESS))
+                    failures.incrementAndGet();
+
+                latch.countDown();
+            });
+
+            Thread.sleep(interval);
+        }
+
+        boolean completed = latch.await(waitLimit, TimeUnit.MILLISECONDS);
+
+        System.out.println("Commands: " + latencies.summarize() + ", " + failures.get() + " with failures" + (completed ? "" : ", " + latch.getCount() + " never answered"));
+
+        return brightness;
+    }
+
+    /** Refreshes the bridge state, and reports how long it took and how many controlled lights did not end at the last brightness sent. */
+    private static void runRefresh(SimulatedBridge bridge, AggregateLight aggregateLight, int expectedBrightness, long waitLimit) throws InterruptedException
+    {
+        final LatencyRecorder latencies = new LatencyRecorder();
+        final CountDownLatch latch = new CountDownLatch(1);
+        final long start = System.nanoTime();
+
+        bridge.refresh(new BridgeResponseCallback()
+        {
+            @Override
+            public void handleCallback(Bridge bridge, ReturnCode returnCode, List<ClipResponse> responses, List<HueError> errors)
+            {
+                latencies.record(System.nanoTime() - start);
+                latch.countDown();
+            }
+        });
+
+        if (!latch.await(waitLimit, TimeUnit.MILLISECONDS))
+        {
+            System.out.println("Refresh: never answered");
+            return;
+        }
+
+        int total = 0;
+        int stale = 0;
+
+        for (Light light : aggregateLight.getLights())
+        {
+            List<LightPoint> lightPoints = new ArrayList<>();
+
+            if (light instanceof SingleLight)
+                lightPoints.add(((SingleLight)light).getLightPoint());
+            else if (light instanceof GroupLight)
+            {
+                for (String id : ((GroupLight)light).getGroup().getLightIds())
+                    lightPoints.add(bridge.getLight(id));
+            }
+
+            for (LightPoint lightPoint : lightPoints)
+            {
+                total++;
+
+                Integer brightness = lightPoint.getLightState().getBrightness();
+
+                if (brightness == null || brightness != expectedBrightness)
+                    stale++;
+            }
+        }
+
+        System.out.println("Refresh: " + latencies.summarize() + ", " + stale + " of " + total + " lights not at the last brightness sent");
+    }
+
+    /** Recalls every scene group that applies to the aggregate light, one at a time, and reports how long each took. */
+    private static void runScenes(SimulatedBridge bridge, AggregateLight aggregateLight, BridgeRequestScheduler scheduler, long waitLimit) throws InterruptedException
+    {
+        long filterStart = System.nanoTime();
+        List<SceneGroup> sceneGroups = aggregateLight.filterValidScenes(bridge.getScenes());
+        long filterTime = System.nanoTime() - filterStart;
+
+        final LatencyRecorder latencies = new LatencyRecorder();
+        final AtomicInteger failures = new AtomicInteger();
+
+        for (SceneGroup sceneGroup : sceneGroups)
+        {
+            final CountDownLatch latch = new CountDownLatch(1);
+            final long start = System.nanoTime();
+
+            sceneGroup.recallScenes(BridgeConnectionType.LOCAL, scheduler, results ->
+            {
+                latencies.record(System.nanoTime() - start);
+
+                if (results.stream().anyMatch(result -> result.getReturnCode() != ReturnCode.SUCCESS))
+                    failures.incrementAndGet();
+
+                latch.countDown();
+            });
+
+            if (!latch.await(waitLimit, TimeUnit.MILLISECONDS))
+                failures.incrementAndGet();
+        }
+
+        System.out.println(String.format("Scenes: filtered %d scene groups in %.2f ms; recalls %s, %d with failures", sceneGroups.size(), filterTime / 1e6, latencies.summarize(), failures.get()));
+    }
+
+    //endregion
+
+
+    //region Options
+
+    /** Parses <code>--name=value</code> options over the defaults.
+     * @return The options by name, or <code>null</code> if an option is not known or help was asked for.
+     */
+    private static Map<String, String> parseOptions(String[] args)
+    {
+        Map<String, String> options = new LinkedHashMap<>();
+
+        for (String[] option : OPTIONS)
+            options.put(option[0], option[1]);
+
+        for (String arg : args)
+        {
+            if (arg.isEmpty())
+                continue;
+
+            int equals = arg.indexOf('=');
+
+            if (!arg.startsWith("--") || equals < 0)
+                return null;
+
+            String name = arg.substring(2, equals);
+
+            if (!options.containsKey(name))
+                return null;
+
+            options.put(name, arg.substring(equals + 1));
+        }
+
+        return options;
+    }
+
+    private static void printUsage()
+    {
+        System.out.println("Usage: SimulatorHarness [--name=value ...]");
+
+        for (String[] option : OPTIONS)
+            System.out.println(String.format("  --%-10s %s (default %s)", option[0], option[2], option[1]));
+    }
+
+    //endregion
+
+
+    //region Latency Recording
+
+    /** Collects latencies from any thread and summarizes them. */
+    private static class LatencyRecorder
+    {
+        private final List<Long> latencies = new ArrayList<>();
+
+        synchronized void record(long nanos)
+        {
+            latencies.add(nanos);
+        }
+
+        synchronized String summarize()
+        {
+            if (latencies.isEmpty())
+                return "none answered";
+
+            long[] sorted = latencies.stream().mapToLong(Long::longValue).toArray();
+            Arrays.sort(sorted);
+
+            return String.format("%d answered, p50 %.1f ms, p95 %.1f ms, p99 %.1f ms, max %.1f ms", sorted.length, percentile(sorted, 0.5), percentile(sorted, 0.95), percentile(sorted, 0.99), sorted[sorted.length - 1] / 1e6);
+        }
+
+        private static double percentile(long[] sorted, double fraction)
+        {
+            return sorted[Math.min(sorted.length - 1, (int)Math.ceil(fraction * sorted.length) - 1)] / 1e6;
+        }
+    }
+
+    //endregion
+}
@@ -0,0 +1,162 @@
+/*
+ * This file is part of Hue SmartSwitch
+ *
+ * Hue SmartSwitch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package com.iot.extron.smartlightswitch.simulator;
+
+/** The behavior of a {@link SimulatedBridge}: how long it takes to respond, how many requests it accepts, and how often requests fail.  The
+ * defaults match a real bridge on a quiet local network.  Setters return the settings so that they can be chained. */
+public class SimulatorSettings
+{
+    //region Fields
+
+    /** The time a request takes to be answered once the bridge starts processing it, in milliseconds. */
+    long latency = 40;
+
+    /** The most that {@link #latency} randomly varies by, in milliseconds. */
+    long latencyJitter = 20;
+
+    /** The number of light requests the bridge processes per second.  Requests beyond this wait their turn. */
+    int requestsPerSecond = 10;
+
+    /** The number of light requests that one group or scene request counts as, since the bridge processes those far more slowly. */
+    int groupRequestCost = 10;
+
+    /** The longest a request may wait its turn, in milliseconds.  Requests that would wait longer are answered with {@link com.philips.lighting.hue.sdk.wrapper.domain.ReturnCode#BUSY}. */
+    long maxQueueDelay = 2000;
+
+    /** The fraction of requests, between 0 and 1, that fail with {@link com.philips.lighting.hue.sdk.wrapper.domain.ReturnCode#ERROR}. */
+    double errorRate = 0;
+
+    /** The fraction of requests, between 0 and 1, that are never answered by the bridge and time out. */
+    double timeoutRate = 0;
+
+    /** The time after which an unanswered request times out, in milliseconds. */
+    long timeout = 5000;
+
+    /** The seed of the random latencies, failures and generated fleets, so that runs can be repeated. */
+    long seed = 1;
+
+    //endregion
+
+
+    //region Getters/Setters
+
+    public long getLatency()
+    {
+        return latency;
+    }
+
+    public SimulatorSettings setLatency(long latency)
+    {
+        this.latency = latency;
+        return this;
+    }
+
+    public long getLatencyJitter()
+    {
+        return latencyJitter;
+    }
+
+    public SimulatorSettings setLatencyJitter(long latencyJitter)
+    {
+        this.latencyJitter = latencyJitter;
+        return this;
+    }
+
+    public int getRequestsPerSecond()
+    {
+        return requestsPerSecond;
+    }
+
+    /** Sets the number of light requests the bridge processes per second.
+     * @param requestsPerSecond The rate, or <code>0</code> to not throttle requests at all.
+     * @return These settings.
+     */
+    public SimulatorSettings setRequestsPerSecond(int requestsPerSecond)
+    {
+        this.requestsPerSecond = requestsPerSecond;
+        return this;
+    }
+
+    public int getGroupRequestCost()
+    {
+        return groupRequestCost;
+    }
+
+    public SimulatorSettings setGroupRequestCost(int groupRequestCost)
+    {
+        this.groupRequestCost = groupRequestCost;
+        return this;
+    }
+
+    public long getMaxQueueDelay()
+    {
+        return maxQueueDelay;
+    }
+
+    public SimulatorSettings setMaxQueueDelay(long maxQueueDelay)
+    {
+        this.maxQueueDelay = maxQueueDelay;
+        return this;
+    }
+
+    public double getErrorRate()
+    {
+        return errorRate;
+    }
+
+    public SimulatorSettings setErrorRate(double errorRate)
+    {
+        this.errorRate = errorRate;
+        return this;
+    }
+
+    public double getTimeoutRate()
+    {
+        return timeoutRate;
+    }
+
+    public SimulatorSettings setTimeoutRate(double timeoutRate)
+    {
+        this.timeoutRate = timeoutRate;
+        return this;
+    }
+
+    public long getTimeout()
+    {
+        return timeout;
+    }
+
+    public SimulatorSettings setTimeout(long timeout)
+    {
+        this.timeout = timeout;
+        return this;
+    }
+
+    public long getSeed()
+    {
+        return seed;
+    }
+
+    public SimulatorSettings setSeed(long seed)
+    {
+        this.seed = seed;
+        return this;
+    }
+
+    //endregion
+}
@@ -0,0 +1,168 @@
+/*
+ * This file is part of Hue SmartSwitch
+ *
+ * Hue SmartSwitch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package com.iot.extron.smartlightswitch.models;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BridgeRequestSchedulerTest
+{
+    @Test
+    public void burstOfLightRequestsIsSentUpToTheBucketCapacity()
+    {
+        BridgeRequestScheduler scheduler = new BridgeRequestScheduler();
+        int[] sent = new int[1];
+
+        for (int i = 0; i < BridgeRequestScheduler.BUCKET_CAPACITY + 5; i++)
+            scheduler.schedule(BridgeRequestScheduler.Lane.INTERACTIVE, () -> sent[0]++);
+
+        assertEquals((int)BridgeRequestScheduler.BUCKET_CAPACITY, sent[0]);
+        assertEquals(5, scheduler.getQueuedCount(BridgeRequestScheduler.Lane.INTERACTIVE));
+    }
+
+    @Test
+    public void groupRequestCostsTheWholeBucket() throws InterruptedException
+    {
+        BridgeRequestScheduler scheduler = new BridgeRequestScheduler();
+        final long[] sentTimes = new long[2];
+        final CountDownLatch latch = new CountDownLatch(2);
+
+        long start = System.nanoTime();
+
+        for (int i = 0; i < 2; i++)
+        {
+            final int index = i;
+
+            scheduler.schedule(BridgeRequestScheduler.Lane.INTERACTIVE, BridgeRequestScheduler.GROUP_REQUEST_COST, () ->
+            {
+                sentTimes[index] = System.nanoTime();
+                latch.countDown();
+            });
+        }
+
+        assertEquals(1, latch.getCount());
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+
+        // A full bucket holds exactly one group request, so the second waits for the bucket to refill at the light request rate.
+        long expectedWait = (long)(BridgeRequestScheduler.GROUP_REQUEST_COST / BridgeRequestScheduler.REQUESTS_PER_SECOND * 1000);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(sentTimes[0] - start) < expectedWait / 2);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(sentTimes[1] - sentTimes[0]) >= expectedWait * 9 / 10);
+    }
+
+    @Test
+    public void groupRequestIsNotOvertakenByCheaperRequests() throws InterruptedException
+    {
+        BridgeRequestScheduler scheduler = new BridgeRequestScheduler();
+        final List<String> sent = new ArrayList<>();
+        final CountDownLatch latch = new CountDownLatch(2);
+
+        // Spend one token, so the group request has to wait even though a light request could still go out.
+        scheduler.schedule(BridgeRequestScheduler.Lane.INTERACTIVE, () -> { });
+
+        scheduler.schedule(BridgeRequestScheduler.Lane.SCENE, BridgeRequestScheduler.GROUP_REQUEST_COST, () ->
+        {
+            synchronized (sent)
+            {
+                sent.add("scene");
+            }
+
+            latch.countDown();
+        });
+
+        scheduler.schedule(BridgeRequestScheduler.Lane.REFRESH, () ->
+        {
+            synchronized (sent)
+            {
+                sent.add("refresh");
+            }
+
+            latch.countDown();
+        });
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+
+        synchronized (sent)
+        {
+            assertEquals(Arrays.asList("scene", "refresh"), sent);
+        }
+    }
+
+    @Test
+    public void requestThatThrowsDoesNotDropTheRestOfItsBatch() throws InterruptedException
+    {
+        BridgeRequestScheduler scheduler = new BridgeRequestScheduler();
+        CountDownLatch latch = new CountDownLatch(2);
+
+        // Empty the bucket, then hold up the scheduler's thread long enough for the requests behind to be sent together in one batch.
+        scheduler.schedule(BridgeRequestScheduler.Lane.INTERACTIVE, BridgeRequestScheduler.GROUP_REQUEST_COST, () -> { });
+        scheduler.schedule(BridgeRequestScheduler.Lane.INTERACTIVE, () -> sleep(400));
+        scheduler.schedule(BridgeRequestScheduler.Lane.INTERACTIVE, () ->
+        {
+            throw new IllegalStateException("Not connected");
+        });
+        scheduler.schedule(BridgeRequestScheduler.Lane.INTERACTIVE, latch::countDown);
+        scheduler.schedule(BridgeRequestScheduler.Lane.INTERACTIVE, latch::countDown);
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void costAboveTheBucketCapacityIsStillSent()
+    {
+        BridgeRequestScheduler scheduler = new BridgeRequestScheduler();
+        CountDownLatch latch = new CountDownLatch(1);
+
+        scheduler.schedule(BridgeRequestScheduler.Lane.INTERACTIVE, 1000, latch::countDown);
+
+        assertEquals(0, latch.getCount());
+    }
+
+    @Test
+    public void refreshLaneKeepsOnlyTheLatestRequest()
+    {
+        BridgeRequestScheduler scheduler = new BridgeRequestScheduler();
+
+        for (int i = 0; i < BridgeRequestScheduler.BUCKET_CAPACITY; i++)
+            scheduler.schedule(BridgeRequestScheduler.Lane.INTERACTIVE, () -> { });
+
+        scheduler.schedule(BridgeRequestScheduler.Lane.REFRESH, () -> { });
+        scheduler.schedule(BridgeRequestScheduler.Lane.REFRESH, () -> { });
+
+        assertEquals(1, scheduler.getQueuedCount(BridgeRequestScheduler.Lane.REFRESH));
+    }
+
+    private static void sleep(long millis)
+    {
+        try
+        {
+            Thread.sleep(millis);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
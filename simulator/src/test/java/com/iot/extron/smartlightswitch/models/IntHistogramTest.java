@@ -0,0 +1,167 @@
+/*
+ * This file is part of Hue SmartSwitch
+ *
+ * Hue SmartSwitch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package com.iot.extron.smartlightswitch.models;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IntHistogramTest
+{
+    /** The number of slots a new histogram starts with, which values must collide in to test probing before the table grows. */
+    private static final int DEFAULT_CAPACITY = 8;
+
+    @Test
+    public void removingTheHeadOfAWrappedProbeRunShiftsTheRestBack()
+    {
+        // Three values that all hash to the last slot, so the second and third wrap around to the start of the table.
+        int[] values = findCollidingValues(DEFAULT_CAPACITY - 1, 3);
+        IntHistogram histogram = new IntHistogram();
+
+        for (int value : values)
+            histogram.add(value);
+
+        assertTrue(histogram.remove(values[0]));
+
+        assertFalse(histogram.contains(values[0]));
+        assertTrue(histogram.contains(values[1]));
+        assertTrue(histogram.contains(values[2]));
+        assertEquals(2, histogram.size());
+
+        // Once shifted back, the remaining values can be removed and re-added without leaving stale slots behind.
+        assertTrue(histogram.remove(values[2]));
+        assertTrue(histogram.contains(values[1]));
+        assertTrue(histogram.add(values[0]));
+        assertEquals(1, histogram.count(values[0]));
+        assertEquals(1, histogram.count(values[1]));
+        assertEquals(2, histogram.size());
+    }
+
+    @Test
+    public void removingFromTheMiddleOfAProbeRunKeepsValuesWithOtherHomesReachable()
+    {
+        int[] home2 = findCollidingValues(2, 2);
+        int[] home3 = findCollidingValues(3, 1);
+        IntHistogram histogram = new IntHistogram();
+
+        // Fills slots 2, 3 and 4, with the value whose home is slot 3 pushed to slot 4.
+        histogram.add(home2[0]);
+        histogram.add(home2[1]);
+        histogram.add(home3[0]);
+
+        assertTrue(histogram.remove(home2[1]));
+
+        assertTrue(histogram.contains(home2[0]));
+        assertTrue(histogram.contains(home3[0]));
+        assertFalse(histogram.contains(home2[1]));
+    }
+
+    @Test
+    public void countsOccurrencesUntilTheLastIsRemoved()
+    {
+        IntHistogram histogram = new IntHistogram();
+
+        assertTrue(histogram.add(42));
+        assertFalse(histogram.add(42));
+        assertEquals(2, histogram.count(42));
+        assertEquals(42, histogram.getSingleValue(-1));
+
+        assertFalse(histogram.remove(42));
+        assertTrue(histogram.remove(42));
+        assertFalse(histogram.remove(42));
+        assertTrue(histogram.isEmpty());
+        assertEquals(-1, histogram.getSingleValue(-1));
+    }
+
+    @Test
+    public void matchesAMapUnderRandomAddsAndRemoves()
+    {
+        Random random = new Random(1);
+        IntHistogram histogram = new IntHistogram();
+        Map<Integer, Integer> expected = new HashMap<>();
+
+        for (int i = 0; i < 200000; i++)
+        {
+            // A small range of values keeps the table dense with long probe runs.
+            int value = random.nextInt(64) * 0x010101;
+
+            if (random.nextInt(3) == 0)
+            {
+                Integer count = expected.get(value);
+                boolean last = count != null && count == 1;
+
+                assertEquals(last, histogram.remove(value));
+
+                if (count != null)
+                {
+                    if (count == 1)
+                        expected.remove(value);
+                    else
+                        expected.put(value, count - 1);
+                }
+            }
+            else
+            {
+                assertEquals(!expected.containsKey(value), histogram.add(value));
+                expected.merge(value, 1, Integer::sum);
+            }
+
+            // Clearing now and then checks that a refilled table does not see values from before.
+            if (i % 1000 == 999)
+            {
+                assertMatches(expected, histogram);
+                histogram.clear();
+                expected.clear();
+            }
+        }
+    }
+
+    private static void assertMatches(Map<Integer, Integer> expected, IntHistogram histogram)
+    {
+        for (Map.Entry<Integer, Integer> entry : expected.entrySet())
+            assertEquals((int)entry.getValue(), histogram.count(entry.getKey()));
+
+        int[] sorted = expected.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+        assertArrayEquals(sorted, histogram.toSortedArray());
+        assertEquals(expected.size(), histogram.size());
+    }
+
+    /** Finds values whose home slot in a new histogram is the specified slot, by searching with the same hash as {@link IntHistogram}. */
+    private static int[] findCollidingValues(int slot, int count)
+    {
+        int[] values = new int[count];
+        int found = 0;
+
+        for (int value = 1; found < count; value++)
+        {
+            int h = value * 0x9E3779B9;
+
+            if (((h ^ (h >>> 16)) & (DEFAULT_CAPACITY - 1)) == slot)
+                values[found++] = value;
+        }
+
+        return values;
+    }
+}
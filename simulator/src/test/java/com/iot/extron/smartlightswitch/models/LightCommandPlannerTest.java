@@ -0,0 +1,187 @@
+/*
+ * This file is part of Hue SmartSwitch
+ *
+ * Hue SmartSwitch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package com.iot.extron.smartlightswitch.models;
+
+import com.iot.extron.smartlightswitch.simulator.SimulatedBridge;
+import com.iot.extron.smartlightswitch.simulator.SimulatorSettings;
+import com.philips.lighting.hue.sdk.wrapper.domain.device.light.LightState;
+import com.philips.lighting.hue.sdk.wrapper.domain.device.light.LightType;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+public class LightCommandPlannerTest
+{
+    @Test
+    public void largeGroupOfTargetedLightsIsSentOneGroupCommand()
+    {
+        SimulatedBridge bridge = createBridge(15);
+        bridge.addGroup("1", "Large", ids(1, LightCommandPlanner.MIN_GROUP_COVERAGE));
+
+        List<Light> lights = singleLights(bridge, 1, 15);
+        LightCommandPlanner.Plan plan = LightCommandPlanner.plan(lights, bridge);
+
+        assertEquals(1, countGroups(plan.getCommands()));
+        assertEquals(15 - LightCommandPlanner.MIN_GROUP_COVERAGE, plan.getCommands().size() - 1);
+
+        // Every light hears back from exactly one command.
+        for (int i = 0; i < lights.size(); i++)
+            assertEquals(1, plan.getCommandsForLight(i).size());
+    }
+
+    @Test
+    public void groupThatCostsMoreThanItsLightsIsNotUsed()
+    {
+        SimulatedBridge bridge = createBridge(15);
+        bridge.addGroup("1", "Small", ids(1, LightCommandPlanner.MIN_GROUP_COVERAGE - 1));
+
+        LightCommandPlanner.Plan plan = LightCommandPlanner.plan(singleLights(bridge, 1, 15), bridge);
+
+        assertEquals(0, countGroups(plan.getCommands()));
+        assertEquals(15, plan.getCommands().size());
+    }
+
+    @Test
+    public void smallSelectedGroupIsSentAsOneGroupCommand()
+    {
+        SimulatedBridge bridge = createBridge(3);
+        Light group = bridge.createGroupLight(bridge.addGroup("1", "Small", ids(1, 3)));
+
+        LightCommandPlanner.Plan plan = LightCommandPlanner.plan(Collections.singletonList(group), bridge);
+
+        assertEquals(Collections.singletonList(group), plan.getCommands());
+        assertEquals(Collections.singletonList(0), plan.getCommandsForLight(0));
+    }
+
+    @Test
+    public void lightSelectedAlongWithItsGroupIsReachedByTheGroupCommand()
+    {
+        SimulatedBridge bridge = createBridge(4);
+        Light group = bridge.createGroupLight(bridge.addGroup("1", "Small", ids(1, 3)));
+
+        List<Light> lights = new ArrayList<>();
+        lights.add(group);
+        lights.addAll(singleLights(bridge, 3, 4));
+
+        LightCommandPlanner.Plan plan = LightCommandPlanner.plan(lights, bridge);
+
+        // The group, and the light outside it.
+        assertEquals(2, plan.getCommands().size());
+        assertSame(group, plan.getCommands().get(0));
+        assertEquals(Collections.singletonList(0), plan.getCommandsForLight(1));
+        assertEquals(Collections.singletonList(1), plan.getCommandsForLight(2));
+    }
+
+    @Test
+    public void selectedGroupWithAMemberMissingFromTheBridgeIsStillSentAsAGroup()
+    {
+        int size = LightCommandPlanner.MIN_GROUP_COVERAGE;
+        SimulatedBridge bridge = createBridge(size);
+
+        List<String> memberIds = new ArrayList<>(ids(1, size));
+        memberIds.add("99");
+
+        Light group = bridge.createGroupLight(bridge.addGroup("1", "Stale", memberIds));
+        LightCommandPlanner.Plan plan = LightCommandPlanner.plan(Collections.singletonList(group), bridge);
+
+        assertEquals(1, plan.getCommands().size());
+        assertSame(group, plan.getCommands().get(0));
+    }
+
+    @Test
+    public void groupContainingAnUntargetedLightIsNotUsed()
+    {
+        int size = LightCommandPlanner.MIN_GROUP_COVERAGE + 1;
+        SimulatedBridge bridge = createBridge(size);
+        bridge.addGroup("1", "Partly targeted", ids(1, size));
+
+        LightCommandPlanner.Plan plan = LightCommandPlanner.plan(singleLights(bridge, 1, size - 1), bridge);
+
+        assertEquals(0, countGroups(plan.getCommands()));
+        assertEquals(size - 1, plan.getCommands().size());
+    }
+
+    @Test
+    public void withoutALayoutEachLightIsSentAsSelected()
+    {
+        SimulatedBridge bridge = createBridge(LightCommandPlanner.MIN_GROUP_COVERAGE);
+        bridge.addGroup("1", "Large", ids(1, LightCommandPlanner.MIN_GROUP_COVERAGE));
+
+        List<Light> lights = bridge.createLights();
+        LightCommandPlanner.Plan plan = LightCommandPlanner.plan(lights, (LightCommandPlanner.BridgeLayout)null);
+
+        assertEquals(lights, plan.getCommands());
+        assertFalse(plan.getCommandsForLight(0).isEmpty());
+    }
+
+    private static SimulatedBridge createBridge(int lightCount)
+    {
+        SimulatedBridge bridge = new SimulatedBridge(new SimulatorSettings());
+
+        for (String id : ids(1, lightCount))
+        {
+            LightState state = new LightState();
+            state.setOn(true);
+            state.setBrightness(254);
+
+            bridge.addLight(id, "Light " + id, LightType.DIMMABLE, state);
+        }
+
+        return bridge;
+    }
+
+    private static List<String> ids(int first, int last)
+    {
+        List<String> ids = new ArrayList<>();
+
+        for (int id = first; id <= last; id++)
+            ids.add(Integer.toString(id));
+
+        return ids;
+    }
+
+    private static List<Light> singleLights(SimulatedBridge bridge, int first, int last)
+    {
+        List<Light> lights = new ArrayList<>();
+
+        for (String id : ids(first, last))
+            lights.add(new SingleLight(bridge.getLight(id)));
+
+        return lights;
+    }
+
+    private static int countGroups(List<Light> commands)
+    {
+        int groups = 0;
+
+        for (Light command : commands)
+        {
+            if (command.isGroup())
+                groups++;
+        }
+
+        return groups;
+    }
+}
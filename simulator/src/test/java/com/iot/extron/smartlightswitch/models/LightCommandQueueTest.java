@@ -0,0 +1,237 @@
+/*
+ * This file is part of Hue SmartSwitch
+ *
+ * Hue SmartSwitch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package com.iot.extron.smartlightswitch.models;
+
+import com.philips.lighting.hue.sdk.wrapper.connection.BridgeConnectionType;
+import com.philips.lighting.hue.sdk.wrapper.connection.BridgeResponseCallback;
+import com.philips.lighting.hue.sdk.wrapper.domain.Bridge;
+import com.philips.lighting.hue.sdk.wrapper.domain.HueError;
+import com.philips.lighting.hue.sdk.wrapper.domain.ReturnCode;
+import com.philips.lighting.hue.sdk.wrapper.domain.clip.ClipResponse;
+import com.philips.lighting.hue.sdk.wrapper.domain.device.light.LightState;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class LightCommandQueueTest
+{
+    @Test
+    public void failedSendIsReportedAndReleasesTheLight()
+    {
+        RecordingLight light = new RecordingLight("1", false);
+        light.throwOnApply = true;
+
+        LightCommandQueue queue = new LightCommandQueue(new BridgeRequestScheduler());
+        List<ReturnCode> results = new ArrayList<>();
+
+        queue.submit(light, brightness(10), BridgeConnectionType.LOCAL, record(results));
+
+        assertEquals(Collections.singletonList(ReturnCode.ERROR), results);
+        assertEquals(0, queue.getBusyCount());
+
+        // The light is no longer held in flight, so the next command is sent rather than left pending forever.
+        light.throwOnApply = false;
+        queue.submit(light, brightness(20), BridgeConnectionType.LOCAL, record(results));
+
+        assertEquals(2, light.attempts);
+        assertEquals(1, light.requests.size());
+    }
+
+    @Test
+    public void cachedLightFailsThroughItsCallback()
+    {
+        CachedLight light = new CachedLight(new LightSnapshot("1", "Light 1", true, 254, 0, new int[0], false), false, Collections.singletonList("1"));
+
+        LightCommandQueue queue = new LightCommandQueue(new BridgeRequestScheduler());
+        List<ReturnCode> results = new ArrayList<>();
+
+        queue.submit(light, brightness(10), BridgeConnectionType.LOCAL, record(results));
+
+        assertEquals(Collections.singletonList(ReturnCode.BRIDGE_NOT_SET), results);
+        assertEquals(0, queue.getBusyCount());
+    }
+
+    @Test
+    public void statesSubmittedWhileInFlightAreMergedIntoOneRequest()
+    {
+        RecordingLight light = new RecordingLight("1", false);
+        LightCommandQueue queue = new LightCommandQueue(new BridgeRequestScheduler());
+        List<ReturnCode> results = new ArrayList<>();
+
+        queue.submit(light, brightness(10), BridgeConnectionType.LOCAL, record(results));
+
+        LightState on = new LightState();
+        on.setOn(true);
+
+        queue.submit(light, on, BridgeConnectionType.LOCAL, record(results));
+        queue.submit(light, brightness(20), BridgeConnectionType.LOCAL, record(results));
+
+        assertEquals(1, light.requests.size());
+        assertEquals(1, queue.getBusyCount());
+
+        light.complete(0, ReturnCode.SUCCESS);
+
+        // The two waiting states went out together, with the newer brightness.
+        assertEquals(2, light.requests.size());
+        assertEquals(Integer.valueOf(20), light.requests.get(1).state.getBrightness());
+        assertEquals(Boolean.TRUE, light.requests.get(1).state.isOn());
+        assertEquals(Collections.singletonList(ReturnCode.SUCCESS), results);
+
+        light.complete(1, ReturnCode.SUCCESS);
+
+        assertEquals(3, results.size());
+        assertEquals(0, queue.getBusyCount());
+    }
+
+    @Test
+    public void lightsAndGroupsWithTheSameIdentifierAreQueuedSeparately() throws InterruptedException
+    {
+        RecordingLight light = new RecordingLight("1", false);
+        RecordingLight group = new RecordingLight("1", true);
+        LightCommandQueue queue = new LightCommandQueue(new BridgeRequestScheduler());
+
+        queue.submit(group, brightness(10), BridgeConnectionType.LOCAL, record(new ArrayList<>()));
+        queue.submit(light, brightness(10), BridgeConnectionType.LOCAL, record(new ArrayList<>()));
+
+        // The group request uses the whole bucket, so the light's request is sent once the bucket has refilled, rather than merged into the group's.
+        assertEquals(1, group.requests.size());
+        assertEquals(2, queue.getBusyCount());
+
+        long deadline = System.currentTimeMillis() + 5000;
+
+        while (light.requests.isEmpty() && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+
+        assertEquals(1, light.requests.size());
+        assertEquals(1, group.requests.size());
+    }
+
+    @Test
+    public void lightThatAnswersAndThenThrowsCompletesOnce()
+    {
+        RecordingLight light = new RecordingLight("1", false);
+        light.answerThenThrow = true;
+
+        LightCommandQueue queue = new LightCommandQueue(new BridgeRequestScheduler());
+        List<ReturnCode> results = new ArrayList<>();
+
+        queue.submit(light, brightness(10), BridgeConnectionType.LOCAL, record(results));
+
+        assertEquals(Collections.singletonList(ReturnCode.SUCCESS), results);
+        assertEquals(0, queue.getBusyCount());
+    }
+
+    @Test
+    public void unansweredRequestTimesOutAndIgnoresTheLateAnswer() throws InterruptedException
+    {
+        RecordingLight light = new RecordingLight("1", false);
+        LightCommandQueue queue = new LightCommandQueue(new BridgeRequestScheduler(), 100);
+        List<ReturnCode> results = Collections.synchronizedList(new ArrayList<ReturnCode>());
+
+        queue.submit(light, brightness(10), BridgeConnectionType.LOCAL, record(results));
+        queue.submit(light, brightness(20), BridgeConnectionType.LOCAL, record(results));
+
+        long deadline = System.currentTimeMillis() + 5000;
+
+        while (light.requests.size() < 2 && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+
+        // The first request timed out, which released the pending state to be sent.
+        assertEquals(Collections.singletonList(ReturnCode.REQUEST_TIMED_OUT), results);
+        assertEquals(2, light.requests.size());
+
+        light.complete(0, ReturnCode.SUCCESS);
+        light.complete(1, ReturnCode.SUCCESS);
+
+        assertEquals(Arrays.asList(ReturnCode.REQUEST_TIMED_OUT, ReturnCode.SUCCESS), results);
+        assertEquals(0, queue.getBusyCount());
+    }
+
+    private static LightState brightness(int brightness)
+    {
+        LightState state = new LightState();
+        state.setBrightness(brightness);
+        return state;
+    }
+
+    private static BridgeResponseCallback record(final List<ReturnCode> results)
+    {
+        return new BridgeResponseCallback()
+        {
+            @Override
+            public void handleCallback(Bridge bridge, ReturnCode returnCode, List<ClipResponse> responses, List<HueError> errors)
+            {
+                results.add(returnCode);
+            }
+        };
+    }
+
+    /** A light that records the requests sent to it and only answers them when told to. */
+    private static class RecordingLight extends CachedLight
+    {
+        final List<Request> requests = Collections.synchronizedList(new ArrayList<Request>());
+        int attempts;
+        boolean throwOnApply;
+        boolean answerThenThrow;
+
+        RecordingLight(String identifier, boolean group)
+        {
+            super(new LightSnapshot(identifier, "Light " + identifier, true, 254, 0, new int[0], false), group, Collections.singletonList(identifier));
+        }
+
+        @Override
+        public void applyLightState(LightState state, BridgeConnectionType connectionType, BridgeResponseCallback callback)
+        {
+            attempts++;
+
+            if (throwOnApply)
+                throw new IllegalStateException("Could not send to light " + getIdentifier());
+
+            if (answerThenThrow)
+            {
+                callback.handleCallback(null, ReturnCode.SUCCESS, Collections.emptyList(), Collections.emptyList());
+                throw new IllegalStateException("Failed after answering");
+            }
+
+            requests.add(new Request(state.clone(), callback));
+        }
+
+        void complete(int request, ReturnCode returnCode)
+        {
+            requests.get(request).callback.handleCallback(null, returnCode, Collections.emptyList(), Collections.emptyList());
+        }
+    }
+
+    private static class Request
+    {
+        final LightState state;
+        final BridgeResponseCallback callback;
+
+        Request(LightState state, BridgeResponseCallback callback)
+        {
+            this.state = state;
+            this.callback = callback;
+        }
+    }
+}